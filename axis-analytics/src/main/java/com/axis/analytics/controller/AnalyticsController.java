@@ -1,17 +1,36 @@
 package com.axis.analytics.controller;
 
+import com.axis.analytics.live.GoalSummaryFeed;
 import com.axis.analytics.model.document.GoalEventDocument;
 import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.dto.ActivityCalendarResponse;
+import com.axis.analytics.model.dto.AnalyticsQueryRequest;
+import com.axis.analytics.model.dto.AnalyticsQueryResponse;
+import com.axis.analytics.model.dto.GoalSummaryChange;
+import com.axis.analytics.model.dto.GoalSummaryResponse;
+import com.axis.analytics.model.dto.GoalTimelinePageResponse;
+import com.axis.analytics.model.dto.RollupBucketResponse;
+import com.axis.analytics.model.dto.StatusDurationResponse;
+import com.axis.analytics.model.enums.RollupGranularity;
+import com.axis.analytics.query.AnalyticsQueryService;
 import com.axis.analytics.service.AnalyticsService;
 import com.axis.common.security.SecurityUtils;
 import io.quarkus.security.Authenticated;
+import io.smallrye.mutiny.Multi;
 import jakarta.inject.Inject;
+import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Path("/api/analytics")
@@ -23,15 +42,41 @@ public class AnalyticsController {
     @Inject
     AnalyticsService analyticsService;
 
+    @Inject
+    AnalyticsQueryService queryService;
+
+    @Inject
+    GoalSummaryFeed summaryFeed;
+
     @Inject
     SecurityUtils securityUtils;
 
     @GET
     @Path("/goals/{goalId}/timeline")
-    @Operation(summary = "Get full event timeline for a goal")
-    public List<GoalEventDocument> getTimeline(@PathParam("goalId") String goalId) {
+    @Operation(summary = "Get the event timeline of a goal, one page at a time")
+    public GoalTimelinePageResponse getTimeline(
+            @PathParam("goalId") String goalId,
+            @Parameter(description = "Only events of these types") @QueryParam("eventType") Set<String> eventTypes,
+            @Parameter(description = "Only events that occurred at or after this instant") @QueryParam("from") Instant from,
+            @Parameter(description = "Only events that occurred before this instant") @QueryParam("to") Instant to,
+            @Parameter(description = "Cursor returned by the previous page") @QueryParam("cursor") String cursor,
+            @Parameter(description = "Number of events per page") @QueryParam("size") @DefaultValue("50") int size) {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return analyticsService.getGoalTimeline(goalId, userId, eventTypes, from, to, cursor, size);
+    }
+
+    @GET
+    @Path("/goals/{goalId}/timeline/stream")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Stream the whole event timeline of a goal as newline-delimited JSON")
+    public Multi<GoalEventDocument> streamTimeline(
+            @PathParam("goalId") String goalId,
+            @Parameter(description = "Only events of these types") @QueryParam("eventType") Set<String> eventTypes,
+            @Parameter(description = "Only events that occurred at or after this instant") @QueryParam("from") Instant from,
+            @Parameter(description = "Only events that occurred before this instant") @QueryParam("to") Instant to) {
         UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
-        return analyticsService.getGoalTimeline(goalId, userId);
+        return analyticsService.streamGoalTimeline(goalId, userId, eventTypes, from, to);
     }
 
     @GET
@@ -44,9 +89,75 @@ public class AnalyticsController {
 
     @GET
     @Path("/goals/summary")
-    @Operation(summary = "Get summary for all user goals")
-    public List<GoalSnapshot> getSummary() {
+    @Operation(summary = "Get summary for all user goals",
+        description = "Title, status and completion rate of each goal; open a goal's progress for its history")
+    public List<GoalSummaryResponse> getSummary() {
         UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
         return analyticsService.getUserSummary(userId);
     }
-}
\ No newline at end of file
+
+    @GET
+    @Path("/goals/summary/stream")
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Stream the summary of all user goals as newline-delimited JSON")
+    public Multi<GoalSummaryResponse> streamSummary() {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return analyticsService.streamUserSummary(userId);
+    }
+
+    @GET
+    @Path("/goals/summary/live")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Follow the summary of all user goals as server-sent events",
+        description = "Starts with an UPSERT per goal, then sends each change as it is stored; reload on RESYNC")
+    public Multi<GoalSummaryChange> liveSummary() {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return summaryFeed.watch(userId);
+    }
+
+    @GET
+    @Path("/rollups")
+    @Operation(summary = "Get goal and sub-goal activity counters per day, week or month",
+        description = "Without a range, returns the last 12 buckets up to now")
+    public List<RollupBucketResponse> getRollups(
+            @Parameter(description = "Bucket size") @QueryParam("granularity") @DefaultValue("WEEK") RollupGranularity granularity,
+            @Parameter(description = "Start of the range; rounded down to its bucket") @QueryParam("from") Instant from,
+            @Parameter(description = "End of the range, exclusive; defaults to now") @QueryParam("to") Instant to) {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return analyticsService.getUserRollups(userId, granularity, from, to);
+    }
+
+    @GET
+    @Path("/activity")
+    @Operation(summary = "Get the current user's completions per day and completion streaks",
+        description = "Without a range, returns the last 365 days up to today (UTC)")
+    public ActivityCalendarResponse getActivity(
+            @Parameter(description = "First day, defaults to 364 days before the last") @QueryParam("from") LocalDate from,
+            @Parameter(description = "Last day, inclusive; defaults to today") @QueryParam("to") LocalDate to) {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return analyticsService.getActivityCalendar(userId, from, to);
+    }
+
+    @GET
+    @Path("/durations")
+    @Operation(summary = "Get time-in-status percentiles of the current user's goals or sub-goals",
+        description = "Mean, p50, p90 and p99 of how long items stayed in each status before leaving it")
+    public List<StatusDurationResponse> getStatusDurations(
+            @Parameter(description = "GOAL or SUB_GOAL") @QueryParam("entityType") @DefaultValue("GOAL") String entityType,
+            @Parameter(description = "Restrict to one life aspect; all aspects when omitted") @QueryParam("lifeAspectId") String lifeAspectId) {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return analyticsService.getStatusDurations(userId, entityType, lifeAspectId);
+    }
+
+    @POST
+    @Path("/query")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Aggregate the caller's goals, events or status durations by chosen dimensions",
+        description = "Results are cached per user and query for a few minutes")
+    public AnalyticsQueryResponse query(@Valid AnalyticsQueryRequest request) {
+        UUID userId = securityUtils.getCurrentUserIdAsUUID().orElseThrow();
+        return queryService.query(userId, request);
+    }
+}
@@ -0,0 +1,31 @@
+package com.axis.analytics.controller;
+
+import com.axis.analytics.index.AnalyticsIndexManager;
+import com.axis.analytics.model.dto.IndexStatusResponse;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Path("/api/analytics/diagnostics")
+@RolesAllowed("admin")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Analytics Diagnostics", description = "Operational insight into the analytics store")
+public class DiagnosticsController {
+
+    @Inject
+    AnalyticsIndexManager indexManager;
+
+    @GET
+    @Path("/indexes")
+    @Operation(summary = "List declared and present indexes with their usage, flagging missing and unused ones")
+    public List<IndexStatusResponse> getIndexes() {
+        return indexManager.diagnose();
+    }
+}
@@ -0,0 +1,59 @@
+package com.axis.analytics.controller;
+
+import com.axis.analytics.messaging.GoalEventDeadLetters;
+import com.axis.analytics.model.dto.ParkedEventResponse;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Path("/api/analytics/admin/parked-events")
+@RolesAllowed("admin")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Analytics Parking Lot", description = "Goal events that failed every retry")
+public class ParkingLotController {
+
+    @Inject
+    GoalEventDeadLetters deadLetters;
+
+    @GET
+    @Operation(summary = "List parked events, most recently parked first")
+    public List<ParkedEventResponse> list(
+            @Parameter(description = "Id of the last event of the previous page") @QueryParam("before") String before,
+            @Parameter(description = "Number of events per page") @QueryParam("size") @DefaultValue("50") int size) {
+        return deadLetters.list(before, size);
+    }
+
+    @GET
+    @Path("/{id}")
+    @Operation(summary = "Inspect a parked event including its message body")
+    public ParkedEventResponse get(@PathParam("id") String id) {
+        return deadLetters.get(id);
+    }
+
+    @POST
+    @Path("/{id}/replay")
+    @Operation(summary = "Send a parked event back for processing and remove it from the parking lot")
+    @APIResponses({
+        @APIResponse(responseCode = "202", description = "Event republished"),
+        @APIResponse(responseCode = "404", description = "No parked event with this id")
+    })
+    public Response replay(@PathParam("id") String id) {
+        deadLetters.replay(id);
+        return Response.accepted().build();
+    }
+}
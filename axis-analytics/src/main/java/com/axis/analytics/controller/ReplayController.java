@@ -0,0 +1,44 @@
+package com.axis.analytics.controller;
+
+import com.axis.analytics.model.dto.ReplayStatusResponse;
+import com.axis.analytics.replay.SnapshotReplayService;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+@Path("/api/analytics/admin/replay")
+@RolesAllowed("admin")
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Analytics Replay", description = "Rebuilding goal snapshots from the raw event log")
+public class ReplayController {
+
+    @Inject
+    SnapshotReplayService replayService;
+
+    @POST
+    @Operation(summary = "Start rebuilding all goal snapshots from the event log",
+        description = "Rebuilds the snapshots and their buckets; rollups, status duration sketches and "
+            + "activity calendars are left as they are")
+    @APIResponses({
+        @APIResponse(responseCode = "202", description = "Replay started"),
+        @APIResponse(responseCode = "409", description = "A replay or event retention is already running")
+    })
+    public Response start() {
+        return Response.accepted(replayService.start()).build();
+    }
+
+    @GET
+    @Operation(summary = "Get the progress of the current or last replay")
+    public ReplayStatusResponse status() {
+        return replayService.status();
+    }
+}
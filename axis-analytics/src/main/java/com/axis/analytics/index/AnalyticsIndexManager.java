@@ -0,0 +1,350 @@
+package com.axis.analytics.index;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalEventSegment;
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.JobLease;
+import com.axis.analytics.model.document.ProjectionCheckpoint;
+import com.axis.analytics.model.document.StatusDurationSketch;
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.analytics.model.document.UserActivity;
+import com.axis.analytics.model.document.UserRollup;
+import com.axis.analytics.model.dto.IndexStatusResponse;
+import com.axis.analytics.model.dto.IndexStatusResponse.IndexState;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalEventSegmentRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.JobLeaseRepository;
+import com.axis.analytics.repository.ProjectionCheckpointRepository;
+import com.axis.analytics.repository.StatusDurationSketchRepository;
+import com.axis.analytics.repository.StatusPeriodBucketRepository;
+import com.axis.analytics.repository.SubGoalBucketRepository;
+import com.axis.analytics.repository.UserActivityRepository;
+import com.axis.analytics.repository.UserRollupRepository;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declares the indexes of the analytics collections and reconciles them at startup: missing
+ * indexes are created, indexes whose definition drifted are rebuilt (alternating between the
+ * declared name and a {@code _rebuilt} one, see {@link #rebuild}), and indexes nobody declared
+ * are reported but left alone. The service does not start while a unique index cannot be built.
+ * {@link #diagnose()} compares the declarations with {@code $indexStats} to find missing and
+ * unused indexes.
+ */
+@Slf4j
+@ApplicationScoped
+public class AnalyticsIndexManager {
+
+    private static final String ID_INDEX = "_id_";
+
+    /** Suffix of the name a drifted index is rebuilt under while the old one still exists. */
+    private static final String REPLACEMENT_SUFFIX = "_rebuilt";
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    GoalEventSegmentRepository segmentRepository;
+
+    @Inject
+    GoalSnapshotRepository snapshotRepository;
+
+    @Inject
+    SubGoalBucketRepository subGoalBucketRepository;
+
+    @Inject
+    StatusPeriodBucketRepository periodBucketRepository;
+
+    @Inject
+    UserRollupRepository rollupRepository;
+
+    @Inject
+    StatusDurationSketchRepository sketchRepository;
+
+    @Inject
+    UserActivityRepository activityRepository;
+
+    @Inject
+    ProjectionCheckpointRepository checkpointRepository;
+
+    @Inject
+    JobLeaseRepository leaseRepository;
+
+    @ConfigProperty(name = "axis.analytics.indexes.reconcile", defaultValue = "true")
+    boolean reconcile;
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!reconcile) {
+            log.info("Index reconciliation disabled");
+            return;
+        }
+        collections().forEach(this::reconcile);
+    }
+
+    private Map<MongoCollection<?>, List<IndexModel>> collections() {
+        Map<MongoCollection<?>, List<IndexModel>> declared = new LinkedHashMap<>();
+        declared.put(eventRepository.mongoCollection(), eventIndexes());
+        declared.put(segmentRepository.mongoCollection(), segmentIndexes());
+        declared.put(snapshotRepository.mongoCollection(), snapshotIndexes());
+        declared.put(subGoalBucketRepository.mongoCollection(), subGoalBucketIndexes());
+        declared.put(periodBucketRepository.mongoCollection(), periodBucketIndexes());
+        declared.put(rollupRepository.mongoCollection(), rollupIndexes());
+        declared.put(sketchRepository.mongoCollection(), sketchIndexes());
+        declared.put(activityRepository.mongoCollection(), activityIndexes());
+        declared.put(checkpointRepository.mongoCollection(), checkpointIndexes());
+        declared.put(leaseRepository.mongoCollection(), leaseIndexes());
+        return declared;
+    }
+
+    /**
+     * Indexes of {@link GoalEventDocument}: redelivery detection, the keyset-paged timeline queries
+     * and finding events due for compaction.
+     */
+    static List<IndexModel> eventIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("eventId"),
+                new IndexOptions().name("ux_goal_events_event_id").unique(true)),
+            new IndexModel(Indexes.ascending("goalId", "userId", "occurredAt", "_id"),
+                new IndexOptions().name("ix_goal_events_goal_user_occurred")),
+            new IndexModel(Indexes.ascending("userId", "occurredAt"),
+                new IndexOptions().name("ix_goal_events_user_occurred")),
+            new IndexModel(Indexes.ascending("occurredAt"),
+                new IndexOptions().name("ix_goal_events_occurred"))
+        );
+    }
+
+    /** Indexes of {@link GoalEventSegment}: timeline and replay reads per goal, and archiving by age. */
+    static List<IndexModel> segmentIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("goalId", "userId", "firstOccurredAt"),
+                new IndexOptions().name("ix_goal_event_segments_goal_user_first")),
+            new IndexModel(Indexes.ascending("lastOccurredAt"),
+                new IndexOptions().name("ix_goal_event_segments_last"))
+        );
+    }
+
+    /** Indexes of {@link GoalSnapshot}: one snapshot per goal, looked up by goal or by owner. */
+    public static List<IndexModel> snapshotIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("goalId"),
+                new IndexOptions().name("ux_goal_snapshots_goal_id").unique(true)),
+            new IndexModel(Indexes.ascending("userId"),
+                new IndexOptions().name("ix_goal_snapshots_user_id"))
+        );
+    }
+
+    /** Indexes of {@link SubGoalBucket}: buckets of a goal, and the bucket holding a given sub-goal. */
+    public static List<IndexModel> subGoalBucketIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("goalId", "subGoals.subGoalId"),
+                new IndexOptions().name("ix_goal_subgoal_buckets_goal_subgoal"))
+        );
+    }
+
+    /** Indexes of {@link StatusPeriodBucket}: the buckets of one goal or sub-goal in fill order. */
+    public static List<IndexModel> periodBucketIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("goalId", "subGoalId", "_id"),
+                new IndexOptions().name("ix_goal_status_period_buckets_scope"))
+        );
+    }
+
+    /** Indexes of {@link UserRollup}: one document per user, granularity and bucket. */
+    static List<IndexModel> rollupIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("userId", "granularity", "bucketStart"),
+                new IndexOptions().name("ux_user_rollups_user_bucket").unique(true))
+        );
+    }
+
+    /** Indexes of {@link StatusDurationSketch}: one sketch per user, entity type, aspect scope and status. */
+    static List<IndexModel> sketchIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("userId", "entityType", "lifeAspectId", "status"),
+                new IndexOptions().name("ux_status_duration_sketches_scope").unique(true))
+        );
+    }
+
+    /** Indexes of {@link UserActivity}: one calendar per user, which also settles racing first writes. */
+    static List<IndexModel> activityIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("userId"),
+                new IndexOptions().name("ux_user_activity_user_id").unique(true))
+        );
+    }
+
+    /** Indexes of {@link ProjectionCheckpoint}: one checkpoint per event partition. */
+    static List<IndexModel> checkpointIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("partition"),
+                new IndexOptions().name("ux_projection_checkpoints_partition").unique(true))
+        );
+    }
+
+    /** Indexes of {@link JobLease}: one lease per name, which is what keeps a held lease from being taken. */
+    static List<IndexModel> leaseIndexes() {
+        return List.of(
+            new IndexModel(Indexes.ascending("name"),
+                new IndexOptions().name("ux_job_leases_name").unique(true))
+        );
+    }
+
+    private void reconcile(MongoCollection<?> collection, List<IndexModel> declared) {
+        String collectionName = collection.getNamespace().getCollectionName();
+        Map<String, Document> existing = existingIndexes(collection);
+        for (IndexModel index : declared) {
+            String name = index.getOptions().getName();
+            String currentName = presentName(existing, name);
+            Document current = currentName == null ? null : existing.remove(currentName);
+            try {
+                if (current == null) {
+                    collection.createIndexes(List.of(index));
+                    log.info("Created index {}.{}", collectionName, name);
+                } else if (!matches(index, current)) {
+                    rebuild(collection, index, currentName, current);
+                    log.info("Rebuilt index {}.{}: definition changed", collectionName, name);
+                }
+            } catch (MongoException e) {
+                // Writes rely on unique indexes to detect redeliveries and racing upserts; running
+                // without one (e.g. duplicates block it) would silently double-apply events
+                if (Boolean.TRUE.equals(index.getOptions().isUnique())) {
+                    throw new IllegalStateException("Unique index " + collectionName + "." + name
+                        + " cannot be built; remove the duplicate documents and restart", e);
+                }
+                log.error("Failed to reconcile index {}.{}", collectionName, name, e);
+            }
+        }
+        existing.remove(ID_INDEX);
+        existing.keySet().forEach(name -> log.warn("Undeclared index {}.{}", collectionName, name));
+    }
+
+    /**
+     * Builds the new definition under the other of the index's two names before dropping the old
+     * one, so queries and uniqueness checks keep an index while it builds. Only when the key
+     * pattern is unchanged (just the options differ) the server refuses to hold both, and the old
+     * index has to go first.
+     */
+    private static void rebuild(MongoCollection<?> collection, IndexModel index, String currentName, Document current) {
+        String name = index.getOptions().getName();
+        String replacement = currentName.equals(name) ? name + REPLACEMENT_SUFFIX : name;
+        IndexModel model = new IndexModel(index.getKeys(), index.getOptions().name(replacement));
+        if (sameKeys(index.getKeys().toBsonDocument(), current.get("key", Document.class).toBsonDocument())) {
+            collection.dropIndex(currentName);
+            collection.createIndexes(List.of(model));
+        } else {
+            collection.createIndexes(List.of(model));
+            collection.dropIndex(currentName);
+        }
+    }
+
+    /** The name a declared index is present under: its own, or the one its last rebuild used. */
+    private static String presentName(Map<String, Document> existing, String name) {
+        if (existing.containsKey(name)) {
+            return name;
+        }
+        return existing.containsKey(name + REPLACEMENT_SUFFIX) ? name + REPLACEMENT_SUFFIX : null;
+    }
+
+    /**
+     * Reports every declared and every present index with its usage since the last server restart.
+     */
+    public List<IndexStatusResponse> diagnose() {
+        List<IndexStatusResponse> report = new ArrayList<>();
+        collections().forEach((collection, declared) -> {
+            String collectionName = collection.getNamespace().getCollectionName();
+            Map<String, Document> stats = new HashMap<>();
+            collection.aggregate(List.of(new Document("$indexStats", new Document())), Document.class)
+                .forEach(stat -> stats.put(stat.getString("name"), stat));
+            Map<String, Document> existing = existingIndexes(collection);
+
+            for (IndexModel index : declared) {
+                String name = presentName(stats, index.getOptions().getName());
+                if (name == null) {
+                    name = index.getOptions().getName();
+                }
+                Document stat = stats.remove(name);
+                boolean unique = Boolean.TRUE.equals(index.getOptions().isUnique());
+                report.add(status(collectionName, name, index.getKeys().toBsonDocument(), unique,
+                    stat, stat == null ? IndexState.MISSING : null));
+            }
+            stats.remove(ID_INDEX);
+            stats.forEach((name, stat) -> {
+                Document definition = existing.getOrDefault(name, new Document());
+                report.add(status(collectionName, name, stat.get("key", Document.class).toBsonDocument(),
+                    definition.getBoolean("unique", false), stat, IndexState.UNDECLARED));
+            });
+        });
+        return report;
+    }
+
+    private static IndexStatusResponse status(String collection, String name, BsonDocument keys, boolean unique,
+                                              Document stat, IndexState state) {
+        Long accesses = null;
+        Date since = null;
+        if (stat != null) {
+            Document counters = stat.get("accesses", Document.class);
+            accesses = ((Number) counters.get("ops")).longValue();
+            since = counters.getDate("since");
+        }
+        if (state == null) {
+            state = accesses == 0 ? IndexState.UNUSED : IndexState.OK;
+        }
+        Map<String, Object> keyMap = new LinkedHashMap<>();
+        keys.forEach((field, direction) -> keyMap.put(field, direction.isNumber()
+            ? direction.asNumber().intValue() : direction.asString().getValue()));
+        return new IndexStatusResponse(collection, name, keyMap, unique, state, accesses,
+            since == null ? null : since.toInstant());
+    }
+
+    private static Map<String, Document> existingIndexes(MongoCollection<?> collection) {
+        Map<String, Document> existing = new LinkedHashMap<>();
+        collection.listIndexes().forEach(index -> existing.put(index.getString("name"), index));
+        return existing;
+    }
+
+    private static boolean matches(IndexModel declared, Document current) {
+        boolean unique = Boolean.TRUE.equals(declared.getOptions().isUnique());
+        if (unique != current.getBoolean("unique", false)) {
+            return false;
+        }
+        return sameKeys(declared.getKeys().toBsonDocument(), current.get("key", Document.class).toBsonDocument());
+    }
+
+    private static boolean sameKeys(BsonDocument wanted, BsonDocument actual) {
+        if (!new ArrayList<>(wanted.keySet()).equals(new ArrayList<>(actual.keySet()))) {
+            return false;
+        }
+        for (Map.Entry<String, BsonValue> key : wanted.entrySet()) {
+            BsonValue other = actual.get(key.getKey());
+            // Shell-created indexes may store the direction as a double
+            boolean same = key.getValue().isNumber() && other.isNumber()
+                ? key.getValue().asNumber().doubleValue() == other.asNumber().doubleValue()
+                : key.getValue().equals(other);
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,297 @@
+package com.axis.analytics.live;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.dto.GoalSummaryChange;
+import com.axis.analytics.model.dto.GoalSummaryChange.ChangeType;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.ReactiveGoalSnapshotRepository;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live changes of the users' goal summaries. One change stream on {@code goal_snapshots} per
+ * replica is shared by all connected dashboards and fanned out by user; it is opened with the
+ * first subscriber and closed once the last one is gone.
+ * <p>
+ * The server only returns inserts, replaces, deletes and the updates touching a summary field,
+ * trimmed to the fields a summary needs. Deletes are routed to their user through the
+ * collection's pre-images. When the stream cannot be resumed, every subscriber receives a
+ * RESYNC and is expected to reload its summary.
+ */
+@Slf4j
+@ApplicationScoped
+public class GoalSummaryFeed {
+
+    private static final List<String> SUMMARY_FIELDS = List.of("title", "currentStatus", "completionRate");
+
+    private static final List<Bson> PIPELINE = List.of(
+        Aggregates.match(Filters.or(
+            Filters.in("operationType", "insert", "replace", "delete", "invalidate"),
+            Filters.and(Filters.eq("operationType", "update"), Filters.or(SUMMARY_FIELDS.stream()
+                .map(field -> Filters.exists("updateDescription.updatedFields." + field))
+                .toList()))
+        )),
+        Aggregates.project(Projections.include(
+            "operationType", "ns", "documentKey",
+            "updateDescription.updatedFields.title",
+            "updateDescription.updatedFields.currentStatus",
+            "updateDescription.updatedFields.completionRate",
+            "fullDocument.goalId", "fullDocument.userId", "fullDocument.title",
+            "fullDocument.currentStatus", "fullDocument.completionRate",
+            "fullDocumentBeforeChange.goalId", "fullDocumentBeforeChange.userId"
+        ))
+    );
+
+    /** Error codes of a resume token the server no longer has the history for. */
+    private static final List<Integer> HISTORY_LOST = List.of(280, 286);
+
+    /** The stream starts this far before the first subscriber so its initial read overlaps it. */
+    private static final Duration START_OVERLAP = Duration.ofSeconds(5);
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    @Inject
+    GoalSnapshotRepository snapshotRepository;
+
+    @Inject
+    ReactiveGoalSnapshotRepository reactiveSnapshotRepository;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "axis.analytics.live.buffer", defaultValue = "256")
+    int buffer;
+
+    private final BroadcastProcessor<Change> changes = BroadcastProcessor.create();
+    private int subscribers;
+    /** Thread reading the stream; null while there is none. */
+    private Thread reader;
+    private boolean shutdown;
+    private boolean preImagesWarned;
+
+    @PostConstruct
+    void init() {
+        meterRegistry.gauge("axis.analytics.live.subscribers", this, GoalSummaryFeed::subscribers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        changes.onComplete();
+    }
+
+    /**
+     * Current summary of the user's goals as UPSERTs, then their changes as they are stored.
+     * Changes made while the summary is read are sent after it; a subscriber more than
+     * {@code axis.analytics.live.buffer} changes behind is failed.
+     */
+    public Multi<GoalSummaryChange> watch(UUID userId) {
+        String user = userId.toString();
+        return Multi.createFrom().deferred(() -> {
+            UnicastProcessor<GoalSummaryChange> pending = UnicastProcessor.create();
+            Cancellable subscription = changes
+                .filter(change -> change.userId() == null || change.userId().equals(user))
+                .subscribe().with(change -> pending.onNext(change.delta()), pending::onError, pending::onComplete);
+            join();
+            Multi<GoalSummaryChange> current = reactiveSnapshotRepository.streamSummariesByUserId(user)
+                .map(GoalSummaryFeed::upsert);
+            return Multi.createBy().concatenating().streams(current, pending.onOverflow().buffer(buffer))
+                .onTermination().invoke(() -> {
+                    subscription.cancel();
+                    leave();
+                });
+        });
+    }
+
+    private synchronized void join() {
+        subscribers++;
+        if (reader == null && !shutdown) {
+            Instant startAt = Instant.now().minus(START_OVERLAP);
+            reader = Thread.ofVirtual().name("goal-summary-feed").unstarted(() -> run(startAt));
+            reader.start();
+        }
+    }
+
+    private synchronized void leave() {
+        subscribers--;
+    }
+
+    private synchronized int subscribers() {
+        return subscribers;
+    }
+
+    /** Whether the stream is still needed; once it is not, the next subscriber starts a new one. */
+    private synchronized boolean keepRunning() {
+        if (reader == Thread.currentThread() && (subscribers == 0 || shutdown)) {
+            reader = null;
+        }
+        return reader == Thread.currentThread();
+    }
+
+    private void run(Instant startAt) {
+        log.info("Opening the goal summary change stream");
+        BsonDocument resumeToken = null;
+        Duration backoff = Duration.ofSeconds(1);
+        while (keepRunning()) {
+            enablePreImages();
+            ChangeStreamIterable<Document> stream = snapshotRepository.mongoCollection()
+                .withDocumentClass(Document.class)
+                .watch(PIPELINE)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                stream = stream.resumeAfter(resumeToken);
+            } else if (startAt != null) {
+                stream = stream.startAtOperationTime(new BsonTimestamp((int) startAt.getEpochSecond(), 0));
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                backoff = Duration.ofSeconds(1);
+                while (keepRunning()) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (cursor.getResumeToken() != null) {
+                        resumeToken = cursor.getResumeToken();
+                    }
+                    if (change == null) {
+                        continue;
+                    }
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        log.warn("Goal summary change stream invalidated; reopening it");
+                        resumeToken = null;
+                        startAt = null;
+                        changes.onNext(new Change(null, resync()));
+                        break;
+                    }
+                    dispatch(change);
+                }
+            } catch (MongoException e) {
+                if (HISTORY_LOST.contains(e.getCode())) {
+                    log.warn("Goal summary change stream cannot be resumed; subscribers resync", e);
+                    resumeToken = null;
+                    startAt = null;
+                    changes.onNext(new Change(null, resync()));
+                } else {
+                    log.warn("Goal summary change stream failed; resuming in {}", backoff, e);
+                    sleep(backoff);
+                    backoff = backoff.multipliedBy(2);
+                    if (backoff.compareTo(MAX_BACKOFF) > 0) {
+                        backoff = MAX_BACKOFF;
+                    }
+                }
+            }
+        }
+        log.info("Closed the goal summary change stream");
+    }
+
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT, REPLACE -> {
+                Document snapshot = change.getFullDocument();
+                if (snapshot != null) {
+                    changes.onNext(new Change(snapshot.getString("userId"), upsert(snapshot)));
+                }
+            }
+            case UPDATE -> {
+                // Looked up after the update; missing when the goal was deleted since, which a DELETE follows
+                Document snapshot = change.getFullDocument();
+                if (snapshot == null || change.getUpdateDescription() == null) {
+                    return;
+                }
+                BsonDocument fields = change.getUpdateDescription().getUpdatedFields();
+                changes.onNext(new Change(snapshot.getString("userId"), new GoalSummaryChange(ChangeType.UPDATE,
+                    snapshot.getString("goalId"), string(fields.get("title")), string(fields.get("currentStatus")),
+                    number(fields.get("completionRate")))));
+            }
+            case DELETE -> {
+                Document before = change.getFullDocumentBeforeChange();
+                if (before == null) {
+                    log.debug("Deleted goal snapshot {} has no pre-image; not sent", change.getDocumentKey());
+                    return;
+                }
+                changes.onNext(new Change(before.getString("userId"), new GoalSummaryChange(ChangeType.DELETE,
+                    before.getString("goalId"), null, null, null)));
+            }
+            default -> {
+            }
+        }
+    }
+
+    /** Deletes only carry the goal's key; the pre-image tells whose goal it was. */
+    private void enablePreImages() {
+        try {
+            snapshotRepository.mongoDatabase().runCommand(new Document("collMod", "goal_snapshots")
+                .append("changeStreamPreAndPostImages", new Document("enabled", true)));
+        } catch (MongoException e) {
+            if (!preImagesWarned) {
+                preImagesWarned = true;
+                log.warn("Could not enable pre-images on goal_snapshots; deleted goals are not sent live", e);
+            }
+        }
+    }
+
+    private static GoalSummaryChange upsert(GoalSnapshot snapshot) {
+        return new GoalSummaryChange(ChangeType.UPSERT, snapshot.getGoalId(), snapshot.getTitle(),
+            snapshot.getCurrentStatus(), snapshot.getCompletionRate());
+    }
+
+    private static GoalSummaryChange upsert(Document snapshot) {
+        Number completionRate = snapshot.get("completionRate", Number.class);
+        return new GoalSummaryChange(ChangeType.UPSERT, snapshot.getString("goalId"), snapshot.getString("title"),
+            snapshot.getString("currentStatus"), completionRate == null ? 0.0 : completionRate.doubleValue());
+    }
+
+    private static GoalSummaryChange resync() {
+        return new GoalSummaryChange(ChangeType.RESYNC, null, null, null, null);
+    }
+
+    private static String string(BsonValue value) {
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+
+    private static Double number(BsonValue value) {
+        return value != null && value.isNumber() ? value.asNumber().doubleValue() : null;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** A change for one user's subscribers, or for all of them when {@code userId} is null. */
+    private record Change(String userId, GoalSummaryChange delta) {}
+}
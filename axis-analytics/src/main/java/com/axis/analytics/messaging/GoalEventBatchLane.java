@@ -0,0 +1,211 @@
+package com.axis.analytics.messaging;
+
+import com.axis.analytics.projection.ProjectionPausedException;
+import com.axis.analytics.service.AnalyticsService;
+import com.axis.common.event.GoalDomainEvent;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serial lane of a stripe of goals. Collects up to {@code maxSize} messages or waits at most
+ * {@code maxWait} after the first one, puts them back into per-goal sequence order, applies the
+ * ready ones as one batch and then acks them. Stale events are acked without being applied;
+ * events that fail on their own are handed to the dead letters for a delayed retry. Events
+ * refused because a snapshot replay paused the projection are requeued instead.
+ */
+@Slf4j
+class GoalEventBatchLane implements Runnable {
+
+    /** {@code retried} events come back from a retry tier and bypass the reorder buffer. */
+    record Pending(Message<?> message, GoalDomainEvent event, boolean retried) {}
+
+    private final String name;
+    private final AnalyticsService analyticsService;
+    private final GoalEventDeadLetters deadLetters;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final GoalEventReorderBuffer reorderBuffer;
+    private final Timer lagTimer;
+    private final Runnable onPaused;
+    private final BlockingQueue<Pending> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    GoalEventBatchLane(String name, AnalyticsService analyticsService, GoalEventDeadLetters deadLetters,
+                       int maxSize, Duration maxWait, int queueCapacity, GoalEventReorderBuffer reorderBuffer,
+                       Timer lagTimer, Runnable onPaused) {
+        this.name = name;
+        this.analyticsService = analyticsService;
+        this.deadLetters = deadLetters;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.reorderBuffer = reorderBuffer;
+        this.lagTimer = lagTimer;
+        this.onPaused = onPaused;
+        this.thread = Thread.ofVirtual().name("analytics-" + name).start(this);
+    }
+
+    /**
+     * Queues the message and completes once it is accepted. When the queue is full the stage
+     * stays pending until there is room, which holds back the channel delivering to this lane.
+     */
+    CompletionStage<Void> submit(Message<?> message, GoalDomainEvent event, boolean retried) {
+        Pending pending = new Pending(message, event, retried);
+        if (queue.offer(pending)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> accepted = new CompletableFuture<>();
+        Thread.ofVirtual().name("analytics-" + name + "-backpressure").start(() -> {
+            try {
+                queue.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                message.nack(e);
+            }
+            accepted.complete(null);
+        });
+        return accepted;
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    String name() {
+        return name;
+    }
+
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            List<Pending> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<Pending> ready = new ArrayList<>();
+            List<Pending> sequenced = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                // A retried event's gap was skipped long ago; the buffer would drop it as stale
+                (pending.retried() ? ready : sequenced).add(pending);
+            }
+            try {
+                long now = System.nanoTime();
+                collect(reorderBuffer.offer(sequenced, now), ready);
+                collect(reorderBuffer.expire(now), ready);
+            } catch (Exception e) {
+                log.error("Lane {} failed to order a batch of {} events", name, batch.size(), e);
+                batch.forEach(p -> p.message().nack(e));
+                continue;
+            }
+            if (!ready.isEmpty()) {
+                flush(ready);
+            }
+        }
+    }
+
+    private void collect(GoalEventReorderBuffer.Released released, List<Pending> ready) {
+        ready.addAll(released.ready());
+        for (Pending stale : released.stale()) {
+            log.debug("Lane {} skipped stale event {} (sequence {})", name, stale.event().eventId(),
+                stale.event().sequence());
+            stale.message().ack();
+        }
+    }
+
+    /**
+     * Waits for the next messages, or only until the oldest sequence gap expires; may then
+     * return an empty batch.
+     */
+    private List<Pending> nextBatch() throws InterruptedException {
+        List<Pending> batch = new ArrayList<>(maxSize);
+        Pending first = reorderBuffer.hasWaiting()
+            ? queue.poll(reorderBuffer.nanosUntilNextExpiry(System.nanoTime()), TimeUnit.NANOSECONDS)
+            : queue.take();
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxSize - 1);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxSize - batch.size());
+        }
+        return batch;
+    }
+
+    private void flush(List<Pending> batch) {
+        try {
+            analyticsService.processBatch(batch.stream().map(Pending::event).toList());
+            batch.forEach(this::applied);
+            log.debug("Lane {} applied batch of {} events", name, batch.size());
+        } catch (ProjectionPausedException e) {
+            requeue(batch, e);
+        } catch (Exception e) {
+            // Isolate the failing message instead of redelivering the whole batch
+            reorderBuffer.invalidate(batch);
+            log.warn("Lane {} failed to apply batch of {} events, retrying one by one", name, batch.size(), e);
+            for (Pending pending : batch) {
+                try {
+                    analyticsService.processEvent(pending.event());
+                    applied(pending);
+                } catch (ProjectionPausedException paused) {
+                    requeue(List.of(pending), paused);
+                } catch (Exception single) {
+                    deadLetters.retryOrPark(pending.message(), pending.event(), single);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the events back to the broker and has the consumer stop delivering until the
+     * projection resumes. They did not fail, so they keep their attempts and their place in the
+     * queue, and come back through the reorder buffer.
+     */
+    private void requeue(List<Pending> batch, ProjectionPausedException e) {
+        reorderBuffer.invalidate(batch);
+        onPaused.run();
+        log.info("Lane {} requeued {} events: {}", name, batch.size(), e.getMessage());
+        batch.forEach(p -> p.message().nack(e));
+    }
+
+    /**
+     * Acks an applied event and records its lag. Retried events are left out of the lag: their
+     * retry delay is intended and would hide the lag of the live stream.
+     */
+    private void applied(Pending pending) {
+        if (!pending.retried() && pending.event().occurredAt() != null) {
+            lagTimer.record(Duration.between(pending.event().occurredAt(), Instant.now()));
+        }
+        pending.message().ack();
+    }
+}
@@ -1,30 +1,275 @@
 package com.axis.analytics.messaging;
 
+import com.axis.analytics.projection.SnapshotProjection;
 import com.axis.analytics.service.AnalyticsService;
 import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.reactive.messaging.ChannelRegistry;
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
+/**
+ * Consumes the partitioned goal event queues and stripes the events over a fixed set of
+ * virtual-thread lanes by goal id. A lane applies its events serially in batches and acks them
+ * once committed, so lanes run in parallel while the events of one goal stay in order.
+ * Events that still arrive out of order are put back in sequence by the lane's reorder buffer.
+ * A full lane holds back the channel that feeds it, which lets the unacked messages reach the
+ * channel's prefetch limit and stops the broker from delivering more. While a snapshot replay
+ * pauses the projection, the channels are paused as well.
+ */
 @Slf4j
 @ApplicationScoped
 public class GoalEventConsumer {
 
+    /** Salt of the lane hash, so it shares nothing with the partition hash of the goal id. */
+    private static final long LANE_SEED = 0x9e3779b97f4a7c15L;
+
     @Inject
     AnalyticsService analyticsService;
 
-    @Incoming("goal-events-in")
-    public CompletionStage<Void> consume(Message<GoalDomainEvent> message) {
+    @Inject
+    GoalEventDeadLetters deadLetters;
+
+    @Inject
+    SnapshotProjection projection;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    ChannelRegistry channelRegistry;
+
+    @Inject
+    Config config;
+
+    /** Number of partitions the producers route to; one goal-events-p* channel must consume each. */
+    @ConfigProperty(name = "axis.events.partitions", defaultValue = "4")
+    int partitions;
+
+    @ConfigProperty(name = "axis.analytics.batch.max-size", defaultValue = "100")
+    int batchMaxSize;
+
+    @ConfigProperty(name = "axis.analytics.batch.max-wait", defaultValue = "50ms")
+    Duration batchMaxWait;
+
+    @ConfigProperty(name = "axis.analytics.reorder.max-delay", defaultValue = "2s")
+    Duration reorderMaxDelay;
+
+    @ConfigProperty(name = "axis.analytics.reorder.max-goals", defaultValue = "10000")
+    int reorderMaxGoals;
+
+    /** Zero sizes the lanes by the available cores. */
+    @ConfigProperty(name = "axis.analytics.lanes.count", defaultValue = "0")
+    int laneCount;
+
+    @ConfigProperty(name = "axis.analytics.lanes.queue-capacity", defaultValue = "512")
+    int laneQueueCapacity;
+
+    private final AtomicBoolean deliveryPaused = new AtomicBoolean();
+    private List<GoalEventBatchLane> lanes;
+    private Counter redeliveredCounter;
+    private Timer lagTimer;
+
+    @PostConstruct
+    void init() {
+        checkPartitionChannels();
+        // Lanes mostly wait on MongoDB, so a couple per core keeps the cores busy
+        int count = laneCount > 0 ? laneCount : 2 * Runtime.getRuntime().availableProcessors();
+        lagTimer = Timer.builder("axis.analytics.events.lag")
+            .description("Time from an event occurring to its being applied to the analytics store, "
+                + "without events that came back from a retry tier")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(10))
+            .maximumExpectedValue(Duration.ofHours(6))
+            .register(meterRegistry);
+        lanes = IntStream.range(0, count).mapToObj(this::newLane).toList();
+        for (GoalEventBatchLane lane : lanes) {
+            Gauge.builder("axis.analytics.lanes.queued", lane, GoalEventBatchLane::queued)
+                .description("Events received but not yet taken by the lane")
+                .tag("lane", lane.name())
+                .register(meterRegistry);
+        }
+        redeliveredCounter = Counter.builder("axis.analytics.events.redelivered")
+            .description("Messages the broker delivered again after a nack, a requeue or a lost consumer")
+            .register(meterRegistry);
+        log.info("Applying goal events on {} lanes", count);
+    }
+
+    @Incoming("goal-events-p0")
+    @Incoming("goal-events-p1")
+    @Incoming("goal-events-p2")
+    @Incoming("goal-events-p3")
+    public CompletionStage<Void> consume(Message<Object> message) {
+        return accept(message, false);
+    }
+
+    /** Events coming back from a retry tier; they have lost their place in the goal's sequence. */
+    @Incoming("goal-events-retried")
+    public CompletionStage<Void> consumeRetried(Message<Object> message) {
+        return accept(message, true);
+    }
+
+    private CompletionStage<Void> accept(Message<Object> message, boolean retried) {
+        if (message.getMetadata(IncomingRabbitMQMetadata.class).map(IncomingRabbitMQMetadata::isRedeliver).orElse(false)) {
+            redeliveredCounter.increment();
+        }
+        GoalDomainEvent event;
         try {
-            analyticsService.processEvent(message.getPayload());
-            return message.ack();
+            event = decode(message);
         } catch (Exception e) {
-            log.error("Failed to process goal event", e);
-            return message.nack(e);
+            log.error("Failed to decode goal event", e);
+            return deadLetters.park(message, e);
+        }
+
+        if (!retried) {
+            projection.assigned(event);
+        }
+        // Acked by the lane; the returned stage only completes once the lane has accepted the message
+        return laneOf(event).submit(message, event, retried);
+    }
+
+    /**
+     * The partition channels are declared statically, so refuse to start when they do not cover
+     * exactly the {@code axis.events.partitions} routing keys: a missing one would let the
+     * exchange drop the events of its partition.
+     */
+    private void checkPartitionChannels() {
+        List<String> channels;
+        try {
+            channels = Arrays.stream(GoalEventConsumer.class.getMethod("consume", Message.class)
+                    .getAnnotationsByType(Incoming.class))
+                .map(Incoming::value)
+                .toList();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        if (channels.size() != partitions) {
+            throw new IllegalStateException("axis.events.partitions is " + partitions + " but "
+                + channels.size() + " goal-events-p* channels are declared: " + channels);
+        }
+        for (int partition = 0; partition < partitions; partition++) {
+            String channel = "goal-events-p" + partition;
+            String routingKey = "goal.event." + partition;
+            Optional<String> bound = config.getOptionalValue(
+                "mp.messaging.incoming." + channel + ".routing-keys", String.class);
+            if (!channels.contains(channel) || !bound.map(routingKey::equals).orElse(false)) {
+                throw new IllegalStateException("Partition " + partition + " needs channel " + channel
+                    + " bound to routing key " + routingKey + ", found " + bound.orElse("none"));
+            }
+        }
+    }
+
+    /** Stops taking goal events off the queues; a lane found the projection paused. */
+    void pauseDelivery() {
+        if (deliveryPaused.compareAndSet(false, true)) {
+            channels().forEach(channel -> channelRegistry.getPausable(channel).pause());
+            log.info("Stopped taking goal events while a snapshot replay pauses the projection");
+        }
+    }
+
+    @Scheduled(every = "${axis.analytics.projection.pause-poll:1s}",
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void resumeDelivery() {
+        if (deliveryPaused.get() && !projection.paused()) {
+            // Cleared first: a lane finding the projection paused again pauses the channels anew
+            deliveryPaused.set(false);
+            channels().forEach(channel -> channelRegistry.getPausable(channel).resume());
+            log.info("Taking goal events again, the snapshot projection resumed");
+        }
+    }
+
+    private List<String> channels() {
+        List<String> channels = new ArrayList<>();
+        IntStream.range(0, partitions).forEach(partition -> channels.add("goal-events-p" + partition));
+        channels.add("goal-events-retried");
+        return channels;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.forEach(GoalEventBatchLane::stop);
+    }
+
+    /** All events of a goal share a lane; the few events without a goal go to the first one. */
+    private GoalEventBatchLane laneOf(GoalDomainEvent event) {
+        return event.goalId() == null
+            ? lanes.getFirst()
+            : lanes.get(laneIndex(event.goalId(), lanes.size()));
+    }
+
+    /**
+     * Lane of a goal, from a hash independent of the partition hash. This replica only sees goals
+     * the jump hash put in its partitions, and jump hashes of one key for different bucket counts
+     * are correlated by design, so reusing it would crowd those goals into a few lanes (into a
+     * single one when there are as many lanes as partitions). The lane count never changes while
+     * running, so a seeded 64-bit finalizer and a modulo are enough.
+     */
+    static int laneIndex(UUID goalId, int lanes) {
+        long hash = goalId.getMostSignificantBits() ^ Long.rotateLeft(goalId.getLeastSignificantBits(), 32) ^ LANE_SEED;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) lanes);
+    }
+
+    private GoalEventBatchLane newLane(int index) {
+        GoalEventReorderBuffer reorderBuffer = new GoalEventReorderBuffer(reorderMaxDelay, reorderMaxGoals,
+            analyticsService::findLastSequences);
+        return new GoalEventBatchLane("lane-" + index, analyticsService, deadLetters, batchMaxSize, batchMaxWait,
+            laneQueueCapacity, reorderBuffer, lagTimer, this::pauseDelivery);
+    }
+
+    /**
+     * The connector hands JSON bodies over as a JsonObject and everything else as raw bytes;
+     * the content type decides which codec applies.
+     */
+    private GoalDomainEvent decode(Message<Object> message) {
+        String contentType = message.getMetadata(IncomingRabbitMQMetadata.class)
+            .flatMap(IncomingRabbitMQMetadata::getContentType)
+            .orElse(null);
+        Object payload = message.getPayload();
+        if (payload instanceof GoalDomainEvent event) {
+            return event;
         }
+        return GoalEventCodec.decode(contentType, body(payload));
+    }
+
+    /** Raw bytes of a message body, as far as the connector left them raw. */
+    static byte[] body(Object payload) {
+        return switch (payload) {
+            case byte[] bytes -> bytes;
+            case Buffer buffer -> buffer.getBytes();
+            case JsonObject json -> json.toBuffer().getBytes();
+            case String text -> text.getBytes(StandardCharsets.UTF_8);
+            case GoalDomainEvent event -> GoalEventCodec.encode(event, GoalEventCodec.JSON);
+            default -> throw new IllegalArgumentException(
+                "Unsupported goal event payload: " + payload.getClass().getName());
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,284 @@
+package com.axis.analytics.messaging;
+
+import com.axis.analytics.model.document.ParkedGoalEvent;
+import com.axis.analytics.model.dto.ParkedEventResponse;
+import com.axis.analytics.repository.ParkedGoalEventRepository;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventCodec;
+import com.axis.common.exception.BusinessException;
+import com.axis.common.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.reactive.messaging.rabbitmq.IncomingRabbitMQMetadata;
+import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes goal event messages that failed to apply off the partition queues, so a poison message
+ * never blocks them. A failed message is republished to the next delay tier of the retry
+ * exchange and acked; after the tier's delay it comes back through the retried queue. After the
+ * last tier, or right away when it cannot be decoded, the message is parked in MongoDB with its
+ * failure, where admins can inspect and replay it.
+ * A message is only nacked (and requeued by the broker) if it could be neither retried nor parked.
+ */
+@Slf4j
+@ApplicationScoped
+public class GoalEventDeadLetters {
+
+    static final String ATTEMPTS_HEADER = "x-axis-attempts";
+    static final String FIRST_FAILED_AT_HEADER = "x-axis-first-failed-at";
+    static final String ROUTING_KEY_HEADER = "x-axis-routing-key";
+    static final String ERROR_HEADER = "x-axis-error";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final long REPLAY_TIMEOUT_SECONDS = 10;
+
+    @Inject
+    @Channel("goal-events-retry")
+    Emitter<byte[]> emitter;
+
+    @Inject
+    GoalEventRetryTopology topology;
+
+    @Inject
+    ParkedGoalEventRepository parkedRepository;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final ExecutorService parker = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("goal-event-parker-", 0).factory());
+    private Counter parkedCounter;
+
+    @PostConstruct
+    void init() {
+        parkedCounter = meterRegistry.counter("axis.analytics.events.parked");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        parker.shutdown();
+    }
+
+    /**
+     * Sends a message that failed to apply to its next delay tier, or parks it once all tiers
+     * are used up. Blocks while the retry tiers are declared for the first time.
+     */
+    public CompletionStage<Void> retryOrPark(Message<?> message, GoalDomainEvent event, Throwable error) {
+        int attempts = attempts(message) + 1;
+        if (attempts > topology.tierCount()) {
+            return park(message, event, error, attempts);
+        }
+        int tier = attempts - 1;
+        try {
+            topology.ensureDeclared();
+        } catch (Exception e) {
+            log.error("Cannot retry goal event {}, the retry tiers are not available", event.eventId(), e);
+            return message.nack(e);
+        }
+        OutgoingRabbitMQMetadata metadata = OutgoingRabbitMQMetadata.builder()
+            .withRoutingKey(topology.tierRoutingKey(tier))
+            .withContentType(contentType(message))
+            .withDeliveryMode(2)
+            .withHeader(ATTEMPTS_HEADER, attempts)
+            .withHeader(FIRST_FAILED_AT_HEADER, firstFailedAt(message).orElseGet(Instant::now).toString())
+            .withHeader(ROUTING_KEY_HEADER, routingKey(message))
+            .withHeader(ERROR_HEADER, describe(error))
+            .build();
+        return publish(GoalEventConsumer.body(message.getPayload()), metadata)
+            .thenCompose(sent -> {
+                meterRegistry.counter("axis.analytics.events.retried", "tier", String.valueOf(tier)).increment();
+                log.warn("Goal event {} failed (attempt {}), retrying in {}: {}", event.eventId(), attempts,
+                    topology.delay(tier), error.toString());
+                return message.ack();
+            })
+            .exceptionallyCompose(e -> {
+                log.error("Failed to send goal event {} to a retry tier", event.eventId(), e);
+                return message.nack(e);
+            });
+    }
+
+    /** Parks a message that cannot be decoded; retrying it would fail the same way. */
+    public CompletionStage<Void> park(Message<?> message, Throwable error) {
+        return park(message, null, error, attempts(message) + 1);
+    }
+
+    public List<ParkedEventResponse> list(String before, int size) {
+        if (size < 1 || size > 200) {
+            throw new BusinessException("Page size must be between 1 and 200", Response.Status.BAD_REQUEST);
+        }
+        ObjectId after = before == null || before.isBlank() ? null : parseId(before);
+        return parkedRepository.findPage(after, size).stream()
+            .map(parked -> toResponse(parked, false))
+            .toList();
+    }
+
+    public ParkedEventResponse get(String id) {
+        return toResponse(find(id), true);
+    }
+
+    /**
+     * Publishes the parked message straight to the retried queue with a fresh attempt count and
+     * removes it from the parking lot once the broker confirmed it. If it fails again it goes
+     * through the retry tiers and is parked anew.
+     */
+    public void replay(String id) {
+        ParkedGoalEvent parked = find(id);
+        OutgoingRabbitMQMetadata.Builder metadata = OutgoingRabbitMQMetadata.builder()
+            .withRoutingKey(GoalEventRetryTopology.RETRIED_ROUTING_KEY)
+            .withDeliveryMode(2);
+        if (parked.getContentType() != null) {
+            metadata.withContentType(parked.getContentType());
+        }
+        if (parked.getRoutingKey() != null) {
+            metadata.withHeader(ROUTING_KEY_HEADER, parked.getRoutingKey());
+        }
+        try {
+            publish(parked.getBody(), metadata.build()).toCompletableFuture()
+                .get(REPLAY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("Failed to replay parked goal event {}", id, e);
+            throw new BusinessException("Failed to republish the parked event", Response.Status.SERVICE_UNAVAILABLE, e);
+        }
+        parkedRepository.deleteById(parked.getId());
+        log.info("Replayed parked goal event {} ({})", id, parked.getEventId());
+    }
+
+    private CompletionStage<Void> park(Message<?> message, GoalDomainEvent event, Throwable error, int attempts) {
+        ParkedGoalEvent parked = ParkedGoalEvent.builder()
+            .eventId(event == null ? null : event.eventId().toString())
+            .eventType(event == null ? null : event.eventType().name())
+            .goalId(event == null || event.goalId() == null ? null : event.goalId().toString())
+            .routingKey(routingKey(message))
+            .contentType(contentType(message))
+            .body(GoalEventConsumer.body(message.getPayload()))
+            .attempts(attempts)
+            .firstFailedAt(firstFailedAt(message).orElseGet(Instant::now))
+            .parkedAt(Instant.now())
+            .errorType(error.getClass().getName())
+            .errorMessage(truncate(error.getMessage()))
+            .build();
+        // Called from the connector's event loop for undecodable messages, so never block the caller
+        return CompletableFuture.runAsync(() -> parkedRepository.persist(parked), parker)
+            .thenCompose(stored -> {
+                parkedCounter.increment();
+                log.error("Parked goal event {} after {} attempts: {}", parked.getEventId(), attempts, error.toString());
+                return message.ack();
+            })
+            .exceptionallyCompose(e -> {
+                log.error("Failed to park goal event {}", parked.getEventId(), e);
+                return message.nack(e);
+            });
+    }
+
+    private CompletionStage<Void> publish(byte[] body, OutgoingRabbitMQMetadata metadata) {
+        CompletableFuture<Void> confirmed = new CompletableFuture<>();
+        emitter.send(Message.of(body)
+            .addMetadata(metadata)
+            .withAck(() -> {
+                confirmed.complete(null);
+                return CompletableFuture.completedFuture(null);
+            })
+            .withNack(e -> {
+                confirmed.completeExceptionally(e);
+                return CompletableFuture.completedFuture(null);
+            }));
+        return confirmed;
+    }
+
+    private ParkedGoalEvent find(String id) {
+        return parkedRepository.findByIdOptional(parseId(id))
+            .orElseThrow(() -> new ResourceNotFoundException("ParkedGoalEvent", id));
+    }
+
+    private static ObjectId parseId(String id) {
+        if (!ObjectId.isValid(id)) {
+            throw new BusinessException("Invalid parked event id", Response.Status.BAD_REQUEST);
+        }
+        return new ObjectId(id);
+    }
+
+    private static ParkedEventResponse toResponse(ParkedGoalEvent parked, boolean withPayload) {
+        return new ParkedEventResponse(
+            parked.getId().toHexString(), parked.getEventId(), parked.getEventType(), parked.getGoalId(),
+            parked.getRoutingKey(), parked.getAttempts(), parked.getFirstFailedAt(), parked.getParkedAt(),
+            parked.getErrorType(), parked.getErrorMessage(), parked.getContentType(),
+            withPayload ? payloadOf(parked) : null);
+    }
+
+    private static String payloadOf(ParkedGoalEvent parked) {
+        if (parked.getBody() == null) {
+            return null;
+        }
+        boolean json = parked.getContentType() == null || parked.getContentType().startsWith(GoalEventCodec.JSON);
+        return json
+            ? new String(parked.getBody(), StandardCharsets.UTF_8)
+            : Base64.getEncoder().encodeToString(parked.getBody());
+    }
+
+    private static Optional<Map<String, Object>> headers(Message<?> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class).map(IncomingRabbitMQMetadata::getHeaders);
+    }
+
+    private static int attempts(Message<?> message) {
+        return headers(message)
+            .map(headers -> headers.get(ATTEMPTS_HEADER))
+            .map(value -> Integer.parseInt(value.toString()))
+            .orElse(0);
+    }
+
+    private static Optional<Instant> firstFailedAt(Message<?> message) {
+        try {
+            return headers(message)
+                .map(headers -> headers.get(FIRST_FAILED_AT_HEADER))
+                .map(value -> Instant.parse(value.toString()));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** The key the message was first delivered with; retried messages carry it in a header. */
+    private static String routingKey(Message<?> message) {
+        return headers(message)
+            .map(headers -> headers.get(ROUTING_KEY_HEADER))
+            .map(Object::toString)
+            .or(() -> message.getMetadata(IncomingRabbitMQMetadata.class).map(IncomingRabbitMQMetadata::getRoutingKey))
+            .orElse(null);
+    }
+
+    private static String contentType(Message<?> message) {
+        return message.getMetadata(IncomingRabbitMQMetadata.class)
+            .flatMap(IncomingRabbitMQMetadata::getContentType)
+            .orElse(GoalEventCodec.JSON);
+    }
+
+    private static String describe(Throwable error) {
+        return truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+    }
+
+    private static String truncate(String text) {
+        return text == null || text.length() <= MAX_ERROR_LENGTH ? text : text.substring(0, MAX_ERROR_LENGTH);
+    }
+}
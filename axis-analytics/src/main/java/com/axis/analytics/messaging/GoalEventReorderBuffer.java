@@ -0,0 +1,177 @@
+package com.axis.analytics.messaging;
+
+import com.axis.analytics.messaging.GoalEventBatchLane.Pending;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Restores the per-goal order of sequenced events inside one lane. An event whose predecessors
+ * have not arrived yet is held back until they do or until {@code maxDelay} passes, after which
+ * the gap is skipped (the producer failed to publish, or the event was dead-lettered). Events at
+ * or below the last applied sequence of their goal are stale and must not be applied.
+ * Not thread-safe: a buffer belongs to exactly one lane.
+ */
+@Slf4j
+final class GoalEventReorderBuffer {
+
+    record Released(List<Pending> ready, List<Pending> stale) {}
+
+    private static final class GoalState {
+        long lastSequence;
+        boolean loaded;
+        final TreeMap<Long, Pending> waiting = new TreeMap<>();
+        long waitingSinceNanos;
+    }
+
+    private final long maxDelayNanos;
+    private final Function<Collection<String>, Map<String, Long>> lastSequenceLoader;
+    private final Map<String, GoalState> states;
+    private final Set<String> waitingGoals = new HashSet<>();
+
+    /**
+     * @param lastSequenceLoader last applied sequence per goal id, for goals not seen recently
+     * @param maxGoals           number of idle goals whose position is kept in memory
+     */
+    GoalEventReorderBuffer(Duration maxDelay, int maxGoals,
+                           Function<Collection<String>, Map<String, Long>> lastSequenceLoader) {
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.lastSequenceLoader = lastSequenceLoader;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GoalState> eldest) {
+                return size() > maxGoals && eldest.getValue().waiting.isEmpty();
+            }
+        };
+    }
+
+    /**
+     * Accepts newly received events and returns the ones that may be applied now, in order.
+     */
+    Released offer(List<Pending> batch, long nowNanos) {
+        loadPositions(batch);
+        List<Pending> ready = new ArrayList<>();
+        List<Pending> stale = new ArrayList<>();
+        for (Pending pending : batch) {
+            Long sequence = pending.event().sequence();
+            if (sequence == null || pending.event().goalId() == null) {
+                ready.add(pending);
+                continue;
+            }
+            String goalId = pending.event().goalId().toString();
+            GoalState state = states.get(goalId);
+            if (sequence <= state.lastSequence) {
+                stale.add(pending);
+            } else if (sequence == state.lastSequence + 1) {
+                ready.add(pending);
+                state.lastSequence = sequence;
+                release(goalId, state, ready, stale, nowNanos);
+            } else {
+                if (state.waiting.isEmpty()) {
+                    state.waitingSinceNanos = nowNanos;
+                    waitingGoals.add(goalId);
+                }
+                if (state.waiting.putIfAbsent(sequence, pending) != null) {
+                    stale.add(pending);
+                }
+            }
+        }
+        return new Released(ready, stale);
+    }
+
+    /**
+     * Gives up on gaps older than {@code maxDelay} and returns the events that were waiting behind them.
+     */
+    Released expire(long nowNanos) {
+        List<Pending> ready = new ArrayList<>();
+        List<Pending> stale = new ArrayList<>();
+        for (String goalId : List.copyOf(waitingGoals)) {
+            GoalState state = states.get(goalId);
+            if (nowNanos - state.waitingSinceNanos < maxDelayNanos) {
+                continue;
+            }
+            long next = state.waiting.firstKey();
+            log.warn("Skipping missing events {}..{} of goal {}", state.lastSequence + 1, next - 1, goalId);
+            state.lastSequence = next - 1;
+            release(goalId, state, ready, stale, nowNanos);
+        }
+        return new Released(ready, stale);
+    }
+
+    boolean hasWaiting() {
+        return !waitingGoals.isEmpty();
+    }
+
+    /** Time until the oldest gap expires, zero if one already has. */
+    long nanosUntilNextExpiry(long nowNanos) {
+        long earliest = Long.MAX_VALUE;
+        for (String goalId : waitingGoals) {
+            earliest = Math.min(earliest, states.get(goalId).waitingSinceNanos + maxDelayNanos - nowNanos);
+        }
+        return Math.max(0, earliest);
+    }
+
+    /**
+     * Forgets the in-memory position of the goals, e.g. after their events failed to apply,
+     * so it is read back from the store next time.
+     */
+    void invalidate(Collection<Pending> failed) {
+        for (Pending pending : failed) {
+            if (pending.event().goalId() != null) {
+                GoalState state = states.get(pending.event().goalId().toString());
+                if (state != null) {
+                    state.loaded = false;
+                }
+            }
+        }
+    }
+
+    private void release(String goalId, GoalState state, List<Pending> ready, List<Pending> stale, long nowNanos) {
+        while (!state.waiting.isEmpty() && state.waiting.firstKey() <= state.lastSequence + 1) {
+            Map.Entry<Long, Pending> next = state.waiting.pollFirstEntry();
+            if (next.getKey() <= state.lastSequence) {
+                // Only after a reload moved the position past events that were still waiting
+                stale.add(next.getValue());
+            } else {
+                ready.add(next.getValue());
+                state.lastSequence = next.getKey();
+            }
+        }
+        if (state.waiting.isEmpty()) {
+            waitingGoals.remove(goalId);
+        } else {
+            state.waitingSinceNanos = nowNanos;
+        }
+    }
+
+    private void loadPositions(List<Pending> batch) {
+        Set<String> unknown = new HashSet<>();
+        for (Pending pending : batch) {
+            if (pending.event().sequence() != null && pending.event().goalId() != null) {
+                String goalId = pending.event().goalId().toString();
+                GoalState state = states.get(goalId);
+                if (state == null || !state.loaded) {
+                    unknown.add(goalId);
+                }
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+        Map<String, Long> positions = lastSequenceLoader.apply(unknown);
+        for (String goalId : unknown) {
+            GoalState state = states.computeIfAbsent(goalId, id -> new GoalState());
+            state.lastSequence = positions.getOrDefault(goalId, 0L);
+            state.loaded = true;
+        }
+    }
+}
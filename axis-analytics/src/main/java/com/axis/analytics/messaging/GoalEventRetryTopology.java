@@ -0,0 +1,103 @@
+package com.axis.analytics.messaging;
+
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.rabbitmq.RabbitMQClient;
+import io.vertx.rabbitmq.RabbitMQOptions;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Declares the delay tiers of the retry exchange. Each tier is a queue without consumers whose
+ * messages expire after the tier's delay and are then dead-lettered back to the exchange with
+ * the {@code retried} routing key, where the retried queue (declared by its channel) picks them
+ * up. The delay is part of the queue name, since the TTL of an existing queue cannot change.
+ */
+@Slf4j
+@ApplicationScoped
+public class GoalEventRetryTopology {
+
+    static final String EXCHANGE = "axis.analytics.goal-events.retry";
+    static final String RETRIED_ROUTING_KEY = "retried";
+    private static final String TIER_QUEUE_PREFIX = "analytics.goal.events.retry.";
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "axis.analytics.retry.delays", defaultValue = "5s,1m,10m")
+    List<Duration> delays;
+
+    @ConfigProperty(name = "mp.messaging.connector.smallrye-rabbitmq.host")
+    String host;
+
+    @ConfigProperty(name = "mp.messaging.connector.smallrye-rabbitmq.port", defaultValue = "5672")
+    int port;
+
+    @ConfigProperty(name = "mp.messaging.connector.smallrye-rabbitmq.username")
+    String username;
+
+    @ConfigProperty(name = "mp.messaging.connector.smallrye-rabbitmq.password")
+    String password;
+
+    @ConfigProperty(name = "mp.messaging.connector.smallrye-rabbitmq.virtual-host", defaultValue = "/")
+    String virtualHost;
+
+    private volatile boolean declared;
+
+    void onStart(@Observes StartupEvent ev) {
+        try {
+            ensureDeclared();
+        } catch (Exception e) {
+            // Retried before the first failed event is sent to a tier
+            log.warn("Failed to declare the goal event retry tiers", e);
+        }
+    }
+
+    int tierCount() {
+        return delays.size();
+    }
+
+    Duration delay(int tier) {
+        return delays.get(tier);
+    }
+
+    String tierRoutingKey(int tier) {
+        return "delay." + delays.get(tier).toMillis();
+    }
+
+    /** Declares the exchange and tier queues unless that already succeeded; blocks while doing so. */
+    synchronized void ensureDeclared() {
+        if (declared) {
+            return;
+        }
+        RabbitMQClient client = RabbitMQClient.create(vertx, new RabbitMQOptions()
+            .setHost(host)
+            .setPort(port)
+            .setUser(username)
+            .setPassword(password)
+            .setVirtualHost(virtualHost));
+        client.startAndAwait();
+        try {
+            client.exchangeDeclareAndAwait(EXCHANGE, "direct", true, false);
+            for (int tier = 0; tier < delays.size(); tier++) {
+                String queue = TIER_QUEUE_PREFIX + delays.get(tier).toMillis() + "ms";
+                client.queueDeclareAndAwait(queue, true, false, false, new JsonObject()
+                    .put("x-message-ttl", delays.get(tier).toMillis())
+                    .put("x-dead-letter-exchange", EXCHANGE)
+                    .put("x-dead-letter-routing-key", RETRIED_ROUTING_KEY));
+                client.queueBindAndAwait(queue, EXCHANGE, tierRoutingKey(tier));
+            }
+        } finally {
+            client.stopAndAwait();
+        }
+        declared = true;
+        log.info("Declared {} goal event retry tiers: {}", delays.size(), delays);
+    }
+}
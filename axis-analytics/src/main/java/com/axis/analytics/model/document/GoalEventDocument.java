@@ -1,5 +1,8 @@
 package com.axis.analytics.model.document;
 
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -8,6 +11,7 @@ import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import java.time.Instant;
 import java.util.Map;
+import java.util.UUID;
 
 @MongoEntity(collection = "goal_events")
 @Data
@@ -29,4 +33,34 @@ public class GoalEventDocument {
     public String lifeAspectId;
     public Map<String, Object> changes;
     public Instant occurredAt;
+    public Long sequence;
+    /**
+     * False from storing the event until its rollup, duration sketch and calendar increments have
+     * all been applied, then removed; a redelivery of an event still marked applies those that
+     * did not land, the others skip it by their applied event ids.
+     */
+    @JsonIgnore
+    public Boolean processed;
+    /** Length of the status period the event closed, fixed when the event was stored. */
+    @JsonIgnore
+    public Long closedPeriodMs;
+
+    public GoalDomainEvent toDomainEvent() {
+        return new GoalDomainEvent(
+            UUID.fromString(eventId),
+            GoalEventType.valueOf(eventType),
+            entityType,
+            UUID.fromString(entityId),
+            UUID.fromString(goalId),
+            UUID.fromString(userId),
+            lifeAspectId,
+            previousStatus,
+            newStatus,
+            title,
+            description,
+            changes,
+            occurredAt,
+            sequence
+        );
+    }
 }
\ No newline at end of file
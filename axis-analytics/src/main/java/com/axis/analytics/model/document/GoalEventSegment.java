@@ -0,0 +1,34 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consecutive older events of one goal compacted into a single document. {@code events} holds
+ * them gzip-compressed as NDJSON, oldest first; the id is the id of the first event, so
+ * compacting the same events twice yields the same segment.
+ */
+@MongoEntity(collection = "goal_event_segments")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoalEventSegment {
+    public ObjectId id;
+    public String goalId;
+    public String userId;
+    public Instant firstOccurredAt;
+    public Instant lastOccurredAt;
+    public int count;
+    /** Distinct event types in the segment, so type-filtered timelines can skip it. */
+    @Builder.Default
+    public List<String> eventTypes = new ArrayList<>();
+    public byte[] events;
+}
@@ -1,14 +1,22 @@
 package com.axis.analytics.model.document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.bson.codecs.pojo.annotations.BsonIgnore;
+import org.bson.types.ObjectId;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Current state and counters of one goal. Status periods and sub-goal summaries grow without
+ * bound, so they live in {@link StatusPeriodBucket} and {@link SubGoalBucket} documents and are
+ * only attached to the snapshot when a single goal is read.
+ */
 @MongoEntity(collection = "goal_snapshots")
 @Data
 @Builder
@@ -20,13 +28,30 @@ public class GoalSnapshot {
     public String title;
     public String lifeAspectId;
     public String currentStatus;
+    /** Start of the open status period. */
+    public Instant statusSince;
     public Instant createdAt;
     public Instant completedAt;
+    @BsonIgnore
     @Builder.Default
     public List<StatusPeriod> statusHistory = new ArrayList<>();
+    @BsonIgnore
     @Builder.Default
     public List<SubGoalSummary> subGoals = new ArrayList<>();
     public int totalSubGoals;
     public int completedSubGoals;
     public double completionRate;
+    /** Highest per-goal event sequence applied so far, null before the first sequenced event. */
+    @JsonIgnore
+    public Long lastSequence;
+    /** Ids of the most recently applied events, used to skip redeliveries. */
+    @JsonIgnore
+    @Builder.Default
+    public List<String> appliedEventIds = new ArrayList<>();
+    /**
+     * Id in {@code goal_events} of the last event the write-behind projection applied, null when
+     * written by direct updates. Also the version the projection expects when it writes back.
+     */
+    @JsonIgnore
+    public ObjectId projectedEventId;
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+
+/**
+ * Cluster-wide lease of a job that must not run on two replicas at once. The holder renews
+ * {@code expiresAt} while it works; once that has passed, any replica may take the lease.
+ */
+@MongoEntity(collection = "job_leases")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+    public ObjectId id;
+    public String name;
+    /** Replica and job holding the lease. */
+    public String owner;
+    public Instant expiresAt;
+}
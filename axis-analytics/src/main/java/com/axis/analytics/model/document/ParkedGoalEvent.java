@@ -0,0 +1,34 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+
+/**
+ * A goal event message that could not be applied after all retries, kept with its original
+ * body and the last failure until an admin replays it.
+ */
+@MongoEntity(collection = "goal_event_parking_lot")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkedGoalEvent {
+    public ObjectId id;
+    /** Event fields are null when the body could not be decoded. */
+    public String eventId;
+    public String eventType;
+    public String goalId;
+    public String routingKey;
+    public String contentType;
+    public byte[] body;
+    public int attempts;
+    public Instant firstFailedAt;
+    public Instant parkedAt;
+    public String errorType;
+    public String errorMessage;
+}
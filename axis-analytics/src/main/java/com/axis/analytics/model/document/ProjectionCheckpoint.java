@@ -0,0 +1,34 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+
+/**
+ * Recovery point of the write-behind snapshot projection for one event partition: every event
+ * of the partition's goals stored in {@code goal_events} before {@code position} is reflected in
+ * {@code goal_snapshots}, so after a crash only the events from there on are replayed.
+ */
+@MongoEntity(collection = "projection_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectionCheckpoint {
+    public ObjectId id;
+    public int partition;
+    public ObjectId position;
+    /** Host of the replica owning the partition; null while events wait for a new owner to replay them. */
+    public String owner;
+    /**
+     * Fencing token, incremented whenever the partition changes hands: by every takeover, and by
+     * taking it from its owner. An owner may only move the checkpoint while it is at the epoch its
+     * takeover returned.
+     */
+    public long epoch;
+    public Instant updatedAt;
+}
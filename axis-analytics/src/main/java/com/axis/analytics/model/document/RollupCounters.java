@@ -0,0 +1,19 @@
+package com.axis.analytics.model.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupCounters {
+    private long goalsCreated;
+    private long goalsCompleted;
+    private long goalsCanceled;
+    private long subGoalsCreated;
+    private long subGoalsCompleted;
+    private long subGoalsCanceled;
+}
@@ -0,0 +1,39 @@
+package com.axis.analytics.model.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distribution of the time goals or sub-goals of one user spent in one status, across all life
+ * aspects ({@code lifeAspectId} null) or within one. {@code buckets} holds the counts of a
+ * {@link com.axis.analytics.sketch.LogLinearHistogram} of durations in milliseconds.
+ */
+@MongoEntity(collection = "status_duration_sketches")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusDurationSketch {
+    public ObjectId id;
+    public String userId;
+    public String entityType;
+    public String lifeAspectId;
+    public String status;
+    public long count;
+    public long sumMs;
+    @Builder.Default
+    public Map<String, Long> buckets = new HashMap<>();
+    /** Ids of the most recently applied events, used to skip redeliveries. */
+    @JsonIgnore
+    @Builder.Default
+    public List<String> appliedEventIds = new ArrayList<>();
+}
@@ -1,5 +1,6 @@
 package com.axis.analytics.model.document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,18 @@ public class StatusPeriod {
     private Instant enteredAt;
     private Instant exitedAt;
     private Long durationMs;
+    /** Id of the event that opened the period, so a redelivered event does not add it twice. */
+    @JsonIgnore
+    private String openedBy;
+
+    /**
+     * Periods are closed with a single {@code $set} of {@code exitedAt}, so the duration is
+     * derived from the timestamps when it was not stored.
+     */
+    public Long getDurationMs() {
+        if (durationMs != null || enteredAt == null || exitedAt == null) {
+            return durationMs;
+        }
+        return exitedAt.toEpochMilli() - enteredAt.toEpochMilli();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to {@code SnapshotBucketUpdates.CAPACITY} consecutive status periods of a goal
+ * ({@code subGoalId} null) or of one of its sub-goals. Buckets are filled in {@code _id} order.
+ */
+@MongoEntity(collection = "goal_status_period_buckets")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusPeriodBucket {
+    public ObjectId id;
+    public String goalId;
+    public String subGoalId;
+    public int count;
+    @Builder.Default
+    public List<StatusPeriod> periods = new ArrayList<>();
+}
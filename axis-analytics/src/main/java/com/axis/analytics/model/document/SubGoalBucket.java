@@ -0,0 +1,27 @@
+package com.axis.analytics.model.document;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Up to {@code SnapshotBucketUpdates.CAPACITY} sub-goal summaries of one goal. {@code count}
+ * tracks the number of entries so a writer can find a bucket with room without loading it.
+ */
+@MongoEntity(collection = "goal_subgoal_buckets")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubGoalBucket {
+    public ObjectId id;
+    public String goalId;
+    public int count;
+    @Builder.Default
+    public List<SubGoalSummary> subGoals = new ArrayList<>();
+}
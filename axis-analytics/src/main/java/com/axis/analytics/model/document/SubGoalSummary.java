@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.bson.codecs.pojo.annotations.BsonIgnore;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,9 +17,27 @@ public class SubGoalSummary {
     private String subGoalId;
     private String title;
     private String currentStatus;
+    /** Start of the open status period. */
+    private Instant statusSince;
     private Instant createdAt;
     private Instant completedAt;
     private Long totalDurationMs;
+    /** Stored in {@link StatusPeriodBucket}s, attached on read. */
+    @BsonIgnore
     @Builder.Default
     private List<StatusPeriod> statusHistory = new ArrayList<>();
+
+    /**
+     * Time spent before completion: the sum of all periods closed by the time the sub-goal
+     * was completed. Derived when not stored.
+     */
+    public Long getTotalDurationMs() {
+        if (totalDurationMs != null || completedAt == null) {
+            return totalDurationMs;
+        }
+        return statusHistory.stream()
+            .filter(p -> p.getExitedAt() != null && !p.getExitedAt().isAfter(completedAt))
+            .mapToLong(StatusPeriod::getDurationMs)
+            .sum();
+    }
 }
\ No newline at end of file
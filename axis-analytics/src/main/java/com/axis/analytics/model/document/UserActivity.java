@@ -0,0 +1,46 @@
+package com.axis.analytics.model.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Completion calendar of one user: per year, one byte per UTC day (index day of year - 1)
+ * counting the goals and sub-goals completed that day, saturating at 255. The streaks are kept
+ * alongside, so a heatmap is served from this document alone.
+ * {@code version} is bumped on every write; events of one user are applied by several lanes,
+ * so writers replace the document only if nobody changed it since they read it. The ids of the
+ * recorded completions are replaced along with the counters, which makes recording idempotent.
+ */
+@MongoEntity(collection = "user_activity")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserActivity {
+    public ObjectId id;
+    public String userId;
+    @Builder.Default
+    public Map<String, byte[]> years = new HashMap<>();
+    /** Latest day with a completion. */
+    public LocalDate lastActiveDay;
+    /** Consecutive active days ending on {@code lastActiveDay}. */
+    public int currentStreak;
+    public int longestStreak;
+    /** Ids of the most recently recorded completions, used to skip redeliveries. */
+    @JsonIgnore
+    @Builder.Default
+    public List<String> appliedEventIds = new ArrayList<>();
+    public long version;
+    public Instant updatedAt;
+}
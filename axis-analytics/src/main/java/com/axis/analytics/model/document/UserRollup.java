@@ -0,0 +1,38 @@
+package com.axis.analytics.model.document;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Activity counters of one user in one time bucket, overall and per life aspect.
+ * Maintained incrementally with {@code $inc} as events arrive.
+ */
+@MongoEntity(collection = "user_rollups")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRollup {
+    public ObjectId id;
+    public String userId;
+    public String granularity;
+    public Instant bucketStart;
+    @Builder.Default
+    public RollupCounters totals = new RollupCounters();
+    @Builder.Default
+    public Map<String, RollupCounters> lifeAspects = new HashMap<>();
+    /** Ids of the most recently applied events, used to skip redeliveries. */
+    @JsonIgnore
+    @Builder.Default
+    public List<String> appliedEventIds = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Schema(description = "Completions of the current user per day, for an activity heatmap, and their streaks")
+public record ActivityCalendarResponse(
+
+    @Schema(description = "First day of the calendar (UTC)")
+    LocalDate from,
+
+    @Schema(description = "Last day of the calendar, inclusive (UTC)")
+    LocalDate to,
+
+    @Schema(description = "Goals and sub-goals completed on each day from 'from' to 'to'; capped at 255")
+    List<Integer> completions,
+
+    @Schema(description = "Consecutive days with a completion up to today or yesterday; 0 once a day was missed")
+    int currentStreak,
+
+    @Schema(description = "Longest run of consecutive days with a completion ever")
+    int longestStreak,
+
+    @Schema(description = "Latest day with a completion")
+    LocalDate lastActiveDay
+
+) {}
@@ -0,0 +1,43 @@
+package com.axis.analytics.model.dto;
+
+import com.axis.analytics.model.enums.QueryDimension;
+import com.axis.analytics.model.enums.QueryMeasure;
+import com.axis.analytics.model.enums.QuerySource;
+import com.axis.analytics.model.enums.RollupGranularity;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Schema(description = "Ad-hoc aggregation over the caller's goals, e.g. completion rate by life aspect")
+public record AnalyticsQueryRequest(
+
+    @Schema(description = "Data to aggregate")
+    @NotNull(message = "Source is required")
+    QuerySource source,
+
+    @Schema(description = "Dimensions to group by, at most three; one row in total when empty")
+    List<QueryDimension> dimensions,
+
+    @Schema(description = "Measures to compute per row")
+    @NotEmpty(message = "At least one measure is required")
+    List<QueryMeasure> measures,
+
+    @Schema(description = "Size of a TIME_BUCKET; required when grouping by it")
+    RollupGranularity granularity,
+
+    @Schema(description = "Only data at or after this instant; required for EVENTS and no older than "
+        + "the compaction age (axis.analytics.retention.compact-after); not supported for DURATIONS")
+    Instant from,
+
+    @Schema(description = "Only data before this instant; not supported for DURATIONS")
+    Instant to,
+
+    @Schema(description = "Allowed values per dimension, e.g. {\"STATUS\": [\"COMPLETED\"]}")
+    Map<QueryDimension, Set<String>> filters
+
+) {}
@@ -0,0 +1,31 @@
+package com.axis.analytics.model.dto;
+
+import com.axis.analytics.model.enums.QueryDimension;
+import com.axis.analytics.model.enums.QueryMeasure;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Schema(description = "Result of an ad-hoc analytics query")
+public record AnalyticsQueryResponse(
+
+    @Schema(description = "One row per combination of dimension values, ordered by those values")
+    List<Row> rows,
+
+    @Schema(description = "When the result was computed; repeated queries are served from cache for a few minutes")
+    Instant computedAt
+
+) {
+
+    public record Row(
+
+        @Schema(description = "Dimension values of the row; time buckets as ISO instants")
+        Map<QueryDimension, String> dimensions,
+
+        @Schema(description = "Measure values of the row, null where there was nothing to measure")
+        Map<QueryMeasure, Number> measures
+
+    ) {}
+}
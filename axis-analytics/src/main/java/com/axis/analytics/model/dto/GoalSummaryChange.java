@@ -0,0 +1,31 @@
+package com.axis.analytics.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(description = "A change of one goal in the current user's summary; fields that did not change are omitted")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record GoalSummaryChange(
+
+    @Schema(description = "UPSERT: the whole summary of a goal; UPDATE: the fields that changed; "
+        + "DELETE: the goal is gone; RESYNC: changes may have been missed, reload the summary")
+    ChangeType type,
+
+    @Schema(description = "Goal ID")
+    String goalId,
+
+    @Schema(description = "Goal title")
+    String title,
+
+    @Schema(description = "Current status of the goal")
+    String currentStatus,
+
+    @Schema(description = "Fraction of completed sub-goals, from 0 to 1")
+    Double completionRate
+
+) {
+
+    public enum ChangeType {
+        UPSERT, UPDATE, DELETE, RESYNC
+    }
+}
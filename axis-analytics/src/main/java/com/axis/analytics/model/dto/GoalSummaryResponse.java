@@ -0,0 +1,20 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(description = "Dashboard view of one goal")
+public record GoalSummaryResponse(
+
+    @Schema(description = "Goal id")
+    String goalId,
+
+    @Schema(description = "Goal title")
+    String title,
+
+    @Schema(description = "Current progress status")
+    String currentStatus,
+
+    @Schema(description = "Fraction of completed sub-goals, 0 to 1")
+    double completionRate
+
+) {}
@@ -0,0 +1,17 @@
+package com.axis.analytics.model.dto;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "One page of a goal's event timeline, oldest events first")
+public record GoalTimelinePageResponse(
+
+    @Schema(description = "Events of this page in the order they occurred")
+    List<GoalEventDocument> events,
+
+    @Schema(description = "Opaque cursor for loading the next page, null when there are no more events")
+    String nextCursor
+
+) {}
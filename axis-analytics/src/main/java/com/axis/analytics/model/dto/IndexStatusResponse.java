@@ -0,0 +1,37 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Schema(description = "State of one index of an analytics collection")
+public record IndexStatusResponse(
+
+    @Schema(description = "Collection the index belongs to")
+    String collection,
+
+    @Schema(description = "Index name")
+    String name,
+
+    @Schema(description = "Indexed fields and their direction")
+    Map<String, Object> keys,
+
+    @Schema(description = "Whether the index enforces uniqueness")
+    boolean unique,
+
+    @Schema(description = "OK, MISSING (declared but absent), UNUSED (present, never used since the server started) or UNDECLARED (present but not declared by the service)")
+    IndexState state,
+
+    @Schema(description = "Number of operations that used the index, null when the index is missing")
+    Long accesses,
+
+    @Schema(description = "Start of the access counter, usually the last server or index restart")
+    Instant accessesSince
+
+) {
+
+    public enum IndexState {
+        OK, MISSING, UNUSED, UNDECLARED
+    }
+}
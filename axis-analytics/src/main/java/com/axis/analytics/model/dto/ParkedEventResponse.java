@@ -0,0 +1,46 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Goal event that failed every retry and waits in the parking lot")
+public record ParkedEventResponse(
+
+    @Schema(description = "Parking lot entry id")
+    String id,
+
+    @Schema(description = "Event id, null if the message could not be decoded")
+    String eventId,
+
+    @Schema(description = "Event type, null if the message could not be decoded")
+    String eventType,
+
+    @Schema(description = "Goal the event belongs to")
+    String goalId,
+
+    @Schema(description = "Routing key the message was first delivered with")
+    String routingKey,
+
+    @Schema(description = "Processing attempts made before parking")
+    int attempts,
+
+    @Schema(description = "When the first attempt failed")
+    Instant firstFailedAt,
+
+    @Schema(description = "When the event was parked")
+    Instant parkedAt,
+
+    @Schema(description = "Exception type of the last failure")
+    String errorType,
+
+    @Schema(description = "Message of the last failure")
+    String errorMessage,
+
+    @Schema(description = "Content type of the message body")
+    String contentType,
+
+    @Schema(description = "Message body (Base64 unless JSON); only included when a single event is inspected")
+    String payload
+
+) {}
@@ -0,0 +1,36 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Progress of the snapshot rebuild from the raw event log")
+public record ReplayStatusResponse(
+
+    @Schema(description = "IDLE (never run), RUNNING, COMPLETED or FAILED")
+    ReplayState state,
+
+    @Schema(description = "When the current or last replay started")
+    Instant startedAt,
+
+    @Schema(description = "When the last replay finished, null while running")
+    Instant finishedAt,
+
+    @Schema(description = "Events in the log when the replay started")
+    long totalEvents,
+
+    @Schema(description = "Events replayed so far")
+    long replayedEvents,
+
+    @Schema(description = "Goals whose snapshot has been rebuilt so far")
+    long rebuiltGoals,
+
+    @Schema(description = "Failure reason of the last replay")
+    String error
+
+) {
+
+    public enum ReplayState {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.axis.analytics.model.dto;
+
+import com.axis.analytics.model.document.RollupCounters;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Schema(description = "Goal activity of the current user in one time bucket")
+public record RollupBucketResponse(
+
+    @Schema(description = "Start of the bucket (UTC; weeks start on Monday)")
+    Instant bucketStart,
+
+    @Schema(description = "Counters across all life aspects")
+    RollupCounters totals,
+
+    @Schema(description = "Counters per life aspect id")
+    Map<String, RollupCounters> lifeAspects
+
+) {}
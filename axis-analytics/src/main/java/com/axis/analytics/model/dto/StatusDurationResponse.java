@@ -0,0 +1,26 @@
+package com.axis.analytics.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+@Schema(description = "How long goals stayed in one status before leaving it")
+public record StatusDurationResponse(
+
+    @Schema(description = "Progress status")
+    String status,
+
+    @Schema(description = "Number of completed stays in this status")
+    long count,
+
+    @Schema(description = "Mean duration in milliseconds")
+    Long meanMs,
+
+    @Schema(description = "Median duration in milliseconds (within ~3%)")
+    Long p50Ms,
+
+    @Schema(description = "90th percentile duration in milliseconds (within ~3%)")
+    Long p90Ms,
+
+    @Schema(description = "99th percentile duration in milliseconds (within ~3%)")
+    Long p99Ms
+
+) {}
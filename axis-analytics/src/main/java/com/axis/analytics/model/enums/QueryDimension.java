@@ -0,0 +1,15 @@
+package com.axis.analytics.model.enums;
+
+/**
+ * What the rows of an ad-hoc analytics query are grouped by.
+ */
+public enum QueryDimension {
+    LIFE_ASPECT,
+    /** New status of an event, current status of a goal, or the status a duration was spent in. */
+    STATUS,
+    EVENT_TYPE,
+    /** GOAL or SUB_GOAL. */
+    ENTITY_TYPE,
+    /** Start of the UTC day, week (from Monday) or month, per the query's granularity. */
+    TIME_BUCKET
+}
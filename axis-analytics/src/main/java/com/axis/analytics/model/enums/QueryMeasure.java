@@ -0,0 +1,15 @@
+package com.axis.analytics.model.enums;
+
+/**
+ * Value an ad-hoc analytics query computes per row.
+ */
+public enum QueryMeasure {
+    /** Events, goals, or completed status periods, depending on the source. */
+    COUNT,
+    DISTINCT_GOALS,
+    /** Average fraction of completed sub-goals. */
+    COMPLETION_RATE,
+    AVG_DURATION_MS,
+    P50_DURATION_MS,
+    P90_DURATION_MS
+}
@@ -0,0 +1,13 @@
+package com.axis.analytics.model.enums;
+
+/**
+ * Data an ad-hoc analytics query aggregates.
+ */
+public enum QuerySource {
+    /** Goal events still in the hot tier, i.e. younger than the compaction age. */
+    EVENTS,
+    /** Current goal snapshots, bucketed in time by creation. */
+    GOALS,
+    /** Time-in-status sketches; they cover all time, so no time range applies. */
+    DURATIONS
+}
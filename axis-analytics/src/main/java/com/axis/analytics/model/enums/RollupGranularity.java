@@ -0,0 +1,39 @@
+package com.axis.analytics.model.enums;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Size of a rollup bucket. Buckets are aligned in UTC; weeks start on Monday.
+ */
+public enum RollupGranularity {
+    DAY(ChronoUnit.DAYS),
+    WEEK(ChronoUnit.WEEKS),
+    MONTH(ChronoUnit.MONTHS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Instant bucketStart(Instant instant) {
+        LocalDate date = LocalDate.ofInstant(instant, ZoneOffset.UTC);
+        LocalDate start = switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+        return start.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    /** Start of the bucket {@code buckets} buckets after the one starting at {@code bucketStart}. */
+    public Instant plus(Instant bucketStart, long buckets) {
+        return LocalDate.ofInstant(bucketStart, ZoneOffset.UTC).plus(buckets, unit)
+            .atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
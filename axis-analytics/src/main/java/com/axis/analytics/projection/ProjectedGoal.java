@@ -0,0 +1,33 @@
+package com.axis.analytics.projection;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import org.bson.types.ObjectId;
+
+/**
+ * A goal held by the write-behind projection. Guarded by its own monitor: the lane owning the
+ * goal applies events to it while the flush copies and evicts it.
+ */
+final class ProjectedGoal {
+
+    final String goalId;
+
+    /** Current state; null while the goal has no snapshot. */
+    GoalSnapshot snapshot;
+
+    /** {@code projectedEventId} of the stored snapshot, which the write-back expects unchanged. */
+    ObjectId storedEventId;
+
+    boolean dirty;
+
+    /** Dropped from the projection; the next event loads the goal again. */
+    boolean evicted;
+
+    long touchedNanos;
+
+    ProjectedGoal(String goalId, GoalSnapshot stored) {
+        this.goalId = goalId;
+        this.snapshot = stored;
+        this.storedEventId = stored == null ? null : stored.getProjectedEventId();
+        this.touchedNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,12 @@
+package com.axis.analytics.projection;
+
+/**
+ * A snapshot replay has paused the partition, so its events cannot be projected until it
+ * resumes. Not a failure of the events: they are to be delivered again later, not retried.
+ */
+public class ProjectionPausedException extends RuntimeException {
+
+    public ProjectionPausedException(int partition) {
+        super("Partition " + partition + " of the snapshot projection is paused by a snapshot replay");
+    }
+}
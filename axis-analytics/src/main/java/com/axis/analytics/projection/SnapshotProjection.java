@@ -0,0 +1,663 @@
+package com.axis.analytics.projection;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.ProjectionCheckpoint;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.ProjectionCheckpointRepository;
+import com.axis.analytics.service.impl.AnalyticsServiceImpl;
+import com.axis.analytics.service.impl.SnapshotUpdates;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventPartitioner;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Optional write-behind mode for goal snapshots. Recently active snapshots are held in memory,
+ * one shard per event partition this replica receives events for, and events are applied to
+ * them in memory. Dirty snapshots are written back in one bulkWrite every flush interval or once
+ * enough of them changed, so a burst on a goal costs one write instead of one per event.
+ * <p>
+ * A replica owns a partition while the broker delivers the partition's queue to it; the queues
+ * have a single active consumer. The first event delivered takes the partition's checkpoint
+ * over and replays the events stored from its position, so the changes lost with a crashed
+ * replica are recovered; events are skipped for goals already past them. After each write-back
+ * the checkpoint is moved to the id in {@code goal_events} below which every event is reflected
+ * in the stored snapshots, as long as this replica still owns it.
+ * <p>
+ * Ownership is fenced by the checkpoint's epoch: every takeover increments it, and so does
+ * taking the partition from its owner. An owner only checks and moves the checkpoint at the
+ * epoch its takeover returned, so a replica that lost the partition never moves it again, even
+ * once it took it over anew, whatever the clocks behind the ids say.
+ * <p>
+ * Every write-back only replaces a snapshot still at the version it was read or last written
+ * at ({@code projectedEventId}). A mismatch, or a checkpoint at another epoch, means the
+ * partition was lost: its goals are dropped from memory, its checkpoint stays where it was, and
+ * the next event delivered to this replica recovers it again. A snapshot replay pauses every
+ * partition the same way while it replaces the stored snapshots; events of a paused partition
+ * fail with {@link ProjectionPausedException} and are delivered again after the resume. Events
+ * of other partitions, coming back from the shared retry tier, are not held; their partition's
+ * checkpoint is moved back before them and taken from its owner, which recovers them.
+ * <p>
+ * Buckets, rollups and sketches are still written per batch; only snapshots are held back.
+ * Reads of a single goal see the held snapshot, listings see the stored ones, at most one
+ * flush interval behind.
+ */
+@Slf4j
+@ApplicationScoped
+public class SnapshotProjection {
+
+    private static final int RECOVERY_BATCH = 1000;
+
+    @Inject
+    GoalSnapshotRepository snapshotRepository;
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    ProjectionCheckpointRepository checkpointRepository;
+
+    @Inject
+    @CacheName(AnalyticsServiceImpl.SUMMARY_CACHE)
+    Cache summaryCache;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "axis.analytics.projection.write-behind", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "axis.analytics.projection.max-goals", defaultValue = "20000")
+    int maxGoals;
+
+    @ConfigProperty(name = "axis.analytics.projection.flush-dirty", defaultValue = "1000")
+    int flushDirty;
+
+    @ConfigProperty(name = "axis.events.partitions", defaultValue = "4")
+    int partitions;
+
+    /** Lower bounds of the ids of the batches being applied; a checkpoint must not pass them. */
+    private final ConcurrentSkipListSet<ObjectId> inFlight = new ConcurrentSkipListSet<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger dirtyGoals = new AtomicInteger();
+    private final String owner = System.getenv().getOrDefault("HOSTNAME", "localhost");
+    private List<Shard> shards;
+    private Counter flushedCounter;
+    private Counter conflictCounter;
+
+    @PostConstruct
+    void init() {
+        shards = IntStream.range(0, partitions).mapToObj(Shard::new).toList();
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.gauge("axis.analytics.projection.goals", this, SnapshotProjection::heldGoals);
+        meterRegistry.gauge("axis.analytics.projection.dirty", dirtyGoals);
+        flushedCounter = meterRegistry.counter("axis.analytics.projection.flushed");
+        conflictCounter = meterRegistry.counter("axis.analytics.projection.conflicts");
+        log.info("Write-behind snapshot projection enabled for up to {} goals", maxGoals);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a batch about to be stored. The returned ticket is smaller than the ids its
+     * events will get, and holds the checkpoints back until {@link #end} releases it.
+     */
+    public ObjectId begin() {
+        synchronized (inFlight) {
+            ObjectId ticket = new ObjectId();
+            inFlight.add(ticket);
+            return ticket;
+        }
+    }
+
+    public void end(ObjectId ticket) {
+        inFlight.remove(ticket);
+    }
+
+    /** The event was delivered through its partition's queue, so this replica consumes the partition. */
+    public void assigned(GoalDomainEvent event) {
+        if (enabled && event.goalId() != null) {
+            shardOf(event).assigned = true;
+        }
+    }
+
+    /**
+     * Applies stored events to the held snapshots, in order. {@code positions} holds the id of
+     * each event in {@code goal_events}, null for events stored before (redeliveries). Events of
+     * partitions this replica is not assigned are handed to their owner instead. May write the
+     * dirty snapshots back before returning.
+     *
+     * @throws ProjectionPausedException if a snapshot replay paused a partition of the events
+     */
+    public void apply(List<GoalDomainEvent> events, List<ObjectId> positions) {
+        Map<Shard, List<Integer>> byShard = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            byShard.computeIfAbsent(shardOf(events.get(i)), shard -> new ArrayList<>()).add(i);
+        }
+        byShard.forEach((shard, indexes) -> {
+            if (!shard.assigned) {
+                handOver(shard, indexes.stream().map(events::get).toList(), indexes.stream().map(positions::get).toList());
+                return;
+            }
+            ensureOwned(shard);
+            load(shard, indexes.stream().map(i -> events.get(i).goalId().toString()).collect(Collectors.toSet()));
+            indexes.forEach(i -> applyTo(shard, events.get(i), positions.get(i), false));
+        });
+        if (dirtyGoals.get() >= flushDirty || heldGoals() > maxGoals) {
+            flush();
+        }
+    }
+
+    /**
+     * Copies of the held snapshots among the goals. A goal that is held but has no snapshot
+     * maps to null; goals that are not held are left out.
+     */
+    public Map<String, GoalSnapshot> held(Collection<String> goalIds) {
+        Map<String, GoalSnapshot> held = new HashMap<>();
+        if (!enabled) {
+            return held;
+        }
+        for (String goalId : goalIds) {
+            ProjectedGoal goal = shardOf(goalId).goals.get(goalId);
+            if (goal == null) {
+                continue;
+            }
+            synchronized (goal) {
+                if (!goal.evicted) {
+                    held.put(goalId, goal.snapshot == null ? null : copy(goal.snapshot));
+                }
+            }
+        }
+        return held;
+    }
+
+    @Scheduled(every = "${axis.analytics.projection.flush-interval:1s}",
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    /** Writes the dirty snapshots back, unless a write-back is already running. */
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            writeBack();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            writeBack();
+        } catch (Exception e) {
+            log.error("Failed to write back the held snapshots; they are recovered from the checkpoints", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops every replica from writing snapshots back before the stored ones are replaced behind
+     * the projection's back. The partitions are taken from their owners, which drop their held
+     * goals with their next flush, and nobody takes them over until {@link #resume}; events of
+     * the partitions fail to apply until then. This replica drops its held goals right away.
+     */
+    public void pause() {
+        if (!enabled) {
+            return;
+        }
+        // Locally first, so no write-back of this replica runs into the replay
+        flushLock.lock();
+        try {
+            for (Shard shard : shards) {
+                shard.recovery.lock();
+                try {
+                    shard.goals.values().forEach(this::evict);
+                    shard.owned = false;
+                } finally {
+                    shard.recovery.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        // A partition taken over again in between is dropped by the next flush, like on other replicas
+        checkpointRepository.pause(partitions);
+        log.info("Paused the snapshot projection and dropped the held snapshots");
+    }
+
+    /**
+     * Lets the partitions be taken over again after {@link #pause}. Their next owners replay the
+     * events from {@code recoverFrom} on, or from their previous checkpoints if it is null.
+     */
+    public void resume(ObjectId recoverFrom) {
+        if (!enabled) {
+            return;
+        }
+        checkpointRepository.resume(partitions, recoverFrom);
+        log.info("Resumed the snapshot projection, recovering from {}", recoverFrom);
+    }
+
+    /** Whether a snapshot replay paused the partitions and has not resumed them yet. */
+    public boolean paused() {
+        return enabled && checkpointRepository.anyPaused();
+    }
+
+    /**
+     * Takes the partition's checkpoint over and recovers the partition from it when this replica
+     * applies its first event since it was assigned the partition. Fails right away while the
+     * partition is paused, without holding up the other partitions' lanes.
+     */
+    private void ensureOwned(Shard shard) {
+        if (shard.owned) {
+            return;
+        }
+        shard.recovery.lock();
+        try {
+            if (shard.owned) {
+                return;
+            }
+            // A new checkpoint starts at the batches in flight: everything stored before is in the snapshots
+            ProjectionCheckpoint checkpoint = checkpointRepository.takeOver(shard.partition, checkpointPosition(), owner);
+            if (checkpoint == null) {
+                throw new ProjectionPausedException(shard.partition);
+            }
+            if (checkpoint.getPosition() != null) {
+                recover(shard, checkpoint.getPosition());
+            }
+            shard.epoch = checkpoint.getEpoch();
+            shard.owned = true;
+        } finally {
+            shard.recovery.unlock();
+        }
+    }
+
+    /**
+     * Drops the partition after another replica wrote one of its snapshots or took its
+     * checkpoint, or a snapshot replay paused it, unless this replica took it over again since
+     * {@code epoch}. Its held changes are recovered from the checkpoint, which is left alone,
+     * once the partition is delivered to this replica again.
+     */
+    private void lose(Shard shard, long epoch) {
+        shard.recovery.lock();
+        try {
+            if (!shard.owned || shard.epoch != epoch) {
+                return;
+            }
+            shard.owned = false;
+            shard.assigned = false;
+            shard.goals.values().forEach(this::evict);
+        } finally {
+            shard.recovery.unlock();
+        }
+        log.warn("Lost partition {} of the snapshot projection, dropped its held snapshots",
+            shard.partition);
+    }
+
+    /**
+     * Drops goals a lane loaded into a partition while it was being lost, unless the partition is
+     * being recovered right now.
+     */
+    private void dropUnowned(Shard shard) {
+        if (!shard.recovery.tryLock()) {
+            return;
+        }
+        try {
+            if (!shard.owned) {
+                shard.goals.values().forEach(this::evict);
+            }
+        } finally {
+            shard.recovery.unlock();
+        }
+    }
+
+    /**
+     * Events of a partition consumed by another replica, coming back from the retry tier. Its
+     * owner holds the goals, so the checkpoint is moved back before the events and its epoch
+     * moved on; the owner notices with its next flush and replays them once it is delivered the
+     * partition again.
+     */
+    private void handOver(Shard shard, List<GoalDomainEvent> events, List<ObjectId> positions) {
+        List<ObjectId> ids = new ArrayList<>(positions.stream().filter(Objects::nonNull).toList());
+        List<String> stored = IntStream.range(0, events.size())
+            .filter(i -> positions.get(i) == null)
+            .mapToObj(i -> events.get(i).eventId().toString())
+            .toList();
+        if (!stored.isEmpty()) {
+            ids.addAll(eventRepository.findIds(stored));
+        }
+        ids.stream().min(Comparator.naturalOrder()).ifPresent(from -> {
+            checkpointRepository.rewind(shard.partition, from);
+            log.info("Handed {} events of partition {} over to its owner, recovering from {}",
+                events.size(), shard.partition, from);
+        });
+    }
+
+    private void recover(Shard shard, ObjectId from) {
+        int replayed = 0;
+        List<GoalEventDocument> page = new ArrayList<>();
+        try (MongoCursor<GoalEventDocument> cursor = eventRepository.mongoCollection()
+                .find(Filters.gte("_id", from))
+                .sort(Sorts.ascending("_id"))
+                .cursor()) {
+            while (cursor.hasNext()) {
+                GoalEventDocument document = cursor.next();
+                if (document.getGoalId() != null && shardOf(document.getGoalId()) == shard) {
+                    page.add(document);
+                }
+                if (page.size() >= RECOVERY_BATCH) {
+                    replayed += replay(shard, page);
+                }
+            }
+        }
+        replayed += replay(shard, page);
+        log.info("Recovered partition {} of the snapshot projection from {}: replayed {} events",
+            shard.partition, from, replayed);
+    }
+
+    private int replay(Shard shard, List<GoalEventDocument> page) {
+        int replayed = page.size();
+        load(shard, page.stream().map(GoalEventDocument::getGoalId).collect(Collectors.toSet()));
+        page.forEach(event -> applyTo(shard, event.toDomainEvent(), event.getId(), true));
+        page.clear();
+        return replayed;
+    }
+
+    /** Reads the goals that are not held yet from the store, in one query. */
+    private void load(Shard shard, Set<String> goalIds) {
+        List<String> missing = goalIds.stream().filter(goalId -> !shard.goals.containsKey(goalId)).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<String, GoalSnapshot> stored = snapshotRepository.findAllByGoalIds(missing).stream()
+            .collect(Collectors.toMap(GoalSnapshot::getGoalId, snapshot -> snapshot));
+        for (String goalId : missing) {
+            shard.goals.putIfAbsent(goalId, new ProjectedGoal(goalId, stored.get(goalId)));
+        }
+    }
+
+    /**
+     * Applies the event to its held goal. Only a replay skips events by their position: live
+     * events were stored just now, possibly by a replica whose clock is behind the one that
+     * stamped the snapshot, and are skipped by their id if a replay got to them first.
+     */
+    private void applyTo(Shard shard, GoalDomainEvent event, ObjectId position, boolean replayed) {
+        String goalId = event.goalId().toString();
+        while (true) {
+            ProjectedGoal goal = shard.goals.get(goalId);
+            if (goal == null) {
+                // Evicted since the batch was loaded
+                load(shard, Set.of(goalId));
+                continue;
+            }
+            synchronized (goal) {
+                if (goal.evicted) {
+                    continue;
+                }
+                GoalSnapshot snapshot = goal.snapshot;
+                boolean applied = replayed && snapshot != null && snapshot.getProjectedEventId() != null
+                    && position.compareTo(snapshot.getProjectedEventId()) <= 0;
+                if (!applied) {
+                    snapshot = SnapshotUpdates.apply(snapshot, event);
+                    if (snapshot != null && position != null) {
+                        snapshot.setProjectedEventId(position);
+                    }
+                    goal.snapshot = snapshot;
+                    if (!goal.dirty) {
+                        goal.dirty = true;
+                        dirtyGoals.incrementAndGet();
+                    }
+                }
+                goal.touchedNanos = System.nanoTime();
+                return;
+            }
+        }
+    }
+
+    private void writeBack() {
+        ObjectId checkpoint = checkpointPosition();
+        List<ProjectedGoal> flushed = new ArrayList<>();
+        List<GoalSnapshot> copies = new ArrayList<>();
+        List<WriteModel<GoalSnapshot>> writes = new ArrayList<>();
+        // Epoch each written partition is held at; the checkpoints are only moved at these
+        Map<Shard, Long> epochs = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            long epoch = shard.epoch;
+            // Taken over or paused since the last write-back: the held goals must not be written
+            if (shard.owned && !checkpointRepository.owns(shard.partition, epoch)) {
+                lose(shard, epoch);
+            }
+            if (!shard.owned) {
+                dropUnowned(shard);
+                continue;
+            }
+            epochs.put(shard, shard.epoch);
+            for (ProjectedGoal goal : shard.goals.values()) {
+                synchronized (goal) {
+                    if (!goal.dirty || goal.evicted) {
+                        continue;
+                    }
+                    goal.dirty = false;
+                    dirtyGoals.decrementAndGet();
+                    GoalSnapshot copy = goal.snapshot == null ? null : copy(goal.snapshot);
+                    writes.add(copy == null
+                        ? new DeleteOneModel<>(Filters.eq("goalId", goal.goalId))
+                        : new ReplaceOneModel<>(
+                            Filters.and(Filters.eq("goalId", goal.goalId), Filters.eq("projectedEventId", goal.storedEventId)),
+                            copy, new ReplaceOptions().upsert(true)));
+                    flushed.add(goal);
+                    copies.add(copy);
+                }
+            }
+        }
+
+        Set<Integer> conflicts = Set.of();
+        Set<Integer> failures = Set.of();
+        if (!writes.isEmpty()) {
+            try {
+                snapshotRepository.mongoCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+                // The filter missed and the upsert ran into the stored snapshot: someone else wrote it
+                conflicts = e.getWriteErrors().stream()
+                    .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY)
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+                failures = e.getWriteErrors().stream()
+                    .filter(error -> ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY)
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+                if (e.getWriteConcernError() != null) {
+                    failures = IntStream.range(0, writes.size()).boxed().collect(Collectors.toSet());
+                }
+            } catch (MongoException e) {
+                log.error("Failed to write back {} snapshots, retrying with the next flush", writes.size(), e);
+                failures = IntStream.range(0, writes.size()).boxed().collect(Collectors.toSet());
+            }
+        }
+
+        Set<String> users = new HashSet<>();
+        Set<Shard> lost = new HashSet<>();
+        for (int i = 0; i < flushed.size(); i++) {
+            ProjectedGoal goal = flushed.get(i);
+            synchronized (goal) {
+                if (conflicts.contains(i)) {
+                    log.warn("Snapshot of goal {} was written by another replica", goal.goalId);
+                    conflictCounter.increment();
+                    lost.add(shardOf(goal.goalId));
+                } else if (failures.contains(i)) {
+                    if (!goal.dirty && !goal.evicted) {
+                        goal.dirty = true;
+                        dirtyGoals.incrementAndGet();
+                    }
+                } else {
+                    GoalSnapshot written = copies.get(i);
+                    goal.storedEventId = written == null ? null : written.getProjectedEventId();
+                    if (written != null) {
+                        users.add(written.getUserId());
+                    }
+                }
+            }
+        }
+        flushedCounter.increment(flushed.size() - conflicts.size() - failures.size());
+        // Summaries are read from the store, so they only change now
+        users.forEach(userId -> summaryCache.invalidate(UUID.fromString(userId)).await().indefinitely());
+
+        lost.forEach(shard -> lose(shard, epochs.remove(shard)));
+
+        if (!failures.isEmpty()) {
+            log.warn("Failed to write back {} of {} snapshots, keeping the checkpoints", failures.size(), writes.size());
+        } else {
+            // Also without writes: an owner that has nothing to write still learns it was taken over
+            epochs.forEach((shard, epoch) -> {
+                if (!checkpointRepository.advance(shard.partition, checkpoint, epoch)) {
+                    lose(shard, epoch);
+                }
+            });
+        }
+        evictIdle();
+    }
+
+    /** Drops the least recently used clean goals while more than max-goals are held. */
+    private void evictIdle() {
+        int excess = heldGoals() - maxGoals;
+        if (excess <= 0) {
+            return;
+        }
+        List<ProjectedGoal> idle = shards.stream()
+            .flatMap(shard -> shard.goals.values().stream())
+            .sorted(Comparator.comparingLong(goal -> goal.touchedNanos))
+            .toList();
+        for (ProjectedGoal goal : idle) {
+            if (excess <= 0) {
+                break;
+            }
+            synchronized (goal) {
+                if (!goal.dirty && !goal.evicted) {
+                    evict(goal);
+                    excess--;
+                }
+            }
+        }
+    }
+
+    private void evict(ProjectedGoal goal) {
+        synchronized (goal) {
+            if (goal.dirty) {
+                goal.dirty = false;
+                dirtyGoals.decrementAndGet();
+            }
+            goal.evicted = true;
+            shardOf(goal.goalId).goals.remove(goal.goalId, goal);
+        }
+    }
+
+    /** Every event stored below this id has been applied to the held snapshots. */
+    private ObjectId checkpointPosition() {
+        synchronized (inFlight) {
+            return inFlight.isEmpty() ? new ObjectId() : inFlight.first();
+        }
+    }
+
+    private int heldGoals() {
+        return shards.stream().mapToInt(shard -> shard.goals.size()).sum();
+    }
+
+    private Shard shardOf(GoalDomainEvent event) {
+        return shards.get(GoalEventPartitioner.partition(event.goalId(), partitions));
+    }
+
+    private Shard shardOf(String goalId) {
+        return shards.get(GoalEventPartitioner.partition(UUID.fromString(goalId), partitions));
+    }
+
+    private static GoalSnapshot copy(GoalSnapshot snapshot) {
+        return GoalSnapshot.builder()
+            .goalId(snapshot.getGoalId())
+            .userId(snapshot.getUserId())
+            .title(snapshot.getTitle())
+            .lifeAspectId(snapshot.getLifeAspectId())
+            .currentStatus(snapshot.getCurrentStatus())
+            .statusSince(snapshot.getStatusSince())
+            .createdAt(snapshot.getCreatedAt())
+            .completedAt(snapshot.getCompletedAt())
+            .totalSubGoals(snapshot.getTotalSubGoals())
+            .completedSubGoals(snapshot.getCompletedSubGoals())
+            .completionRate(snapshot.getCompletionRate())
+            .lastSequence(snapshot.getLastSequence())
+            .appliedEventIds(new ArrayList<>(snapshot.getAppliedEventIds()))
+            .projectedEventId(snapshot.getProjectedEventId())
+            .build();
+    }
+
+    /** The held goals of one event partition. */
+    private static final class Shard {
+        final int partition;
+        final Map<String, ProjectedGoal> goals = new ConcurrentHashMap<>();
+        final ReentrantLock recovery = new ReentrantLock();
+        /** The partition's queue was delivered to this replica since it last lost the partition. */
+        volatile boolean assigned;
+        volatile boolean owned;
+        /** Epoch of the checkpoint since this replica last took the partition over. */
+        volatile long epoch;
+
+        Shard(int partition) {
+            this.partition = partition;
+        }
+    }
+}
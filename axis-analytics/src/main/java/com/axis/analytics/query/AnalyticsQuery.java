@@ -0,0 +1,92 @@
+package com.axis.analytics.query;
+
+import com.axis.analytics.model.dto.AnalyticsQueryRequest;
+import com.axis.analytics.model.enums.QueryDimension;
+import com.axis.analytics.model.enums.QueryMeasure;
+import com.axis.analytics.model.enums.QuerySource;
+import com.axis.analytics.model.enums.RollupGranularity;
+import com.axis.common.exception.BusinessException;
+import jakarta.ws.rs.core.Response;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A validated query in canonical form: dimensions and measures in declaration order without
+ * duplicates, filters sorted, and the granularity only kept when it is used. Two requests asking
+ * the same question of the same user yield equal queries, which makes this the cache key.
+ */
+record AnalyticsQuery(String userId, QuerySource source, List<QueryDimension> dimensions,
+                      List<QueryMeasure> measures, RollupGranularity granularity, Instant from, Instant to,
+                      SortedMap<QueryDimension, SortedSet<String>> filters) {
+
+    private static final int MAX_DIMENSIONS = 3;
+
+    /**
+     * {@code hotSince} is the oldest time the raw events are still stored individually; EVENTS
+     * queries must stay within it, since older events only exist in compacted segments.
+     */
+    static AnalyticsQuery normalize(String userId, AnalyticsQueryRequest request, Instant hotSince) {
+        QuerySource source = request.source();
+        Set<QueryDimension> dimensions = request.dimensions() == null || request.dimensions().isEmpty()
+            ? EnumSet.noneOf(QueryDimension.class) : EnumSet.copyOf(request.dimensions());
+        if (dimensions.size() > MAX_DIMENSIONS) {
+            throw badRequest("At most " + MAX_DIMENSIONS + " dimensions can be combined");
+        }
+        for (QueryDimension dimension : dimensions) {
+            if (!AnalyticsQueryCompiler.supports(source, dimension)) {
+                throw badRequest(source + " cannot be grouped by " + dimension);
+            }
+        }
+        Set<QueryMeasure> measures = EnumSet.copyOf(request.measures());
+        for (QueryMeasure measure : measures) {
+            if (!AnalyticsQueryCompiler.supports(source, measure)) {
+                throw badRequest(measure + " cannot be measured on " + source);
+            }
+        }
+
+        boolean timeBuckets = dimensions.contains(QueryDimension.TIME_BUCKET);
+        if (timeBuckets && request.granularity() == null) {
+            throw badRequest("Grouping by TIME_BUCKET requires a granularity");
+        }
+        if (source == QuerySource.DURATIONS && (request.from() != null || request.to() != null)) {
+            throw badRequest("DURATIONS cover all time and cannot be restricted to a time range");
+        }
+        if (source == QuerySource.EVENTS && (request.from() == null || request.from().isBefore(hotSince))) {
+            throw badRequest("EVENTS only cover recent events; 'from' must be on or after "
+                + hotSince.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS));
+        }
+        if (request.from() != null && request.to() != null && !request.from().isBefore(request.to())) {
+            throw badRequest("'from' must be before 'to'");
+        }
+
+        SortedMap<QueryDimension, SortedSet<String>> filters = new TreeMap<>();
+        if (request.filters() != null) {
+            for (Map.Entry<QueryDimension, Set<String>> filter : request.filters().entrySet()) {
+                if (filter.getKey() == QueryDimension.TIME_BUCKET
+                        || !AnalyticsQueryCompiler.supports(source, filter.getKey())) {
+                    throw badRequest(source + " cannot be filtered by " + filter.getKey());
+                }
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    throw badRequest("Filter on " + filter.getKey() + " needs at least one value");
+                }
+                filters.put(filter.getKey(), new TreeSet<>(filter.getValue()));
+            }
+        }
+
+        return new AnalyticsQuery(userId, source, List.copyOf(dimensions), List.copyOf(measures),
+            timeBuckets ? request.granularity() : null, request.from(), request.to(), filters);
+    }
+
+    private static BusinessException badRequest(String message) {
+        return new BusinessException(message, Response.Status.BAD_REQUEST);
+    }
+}
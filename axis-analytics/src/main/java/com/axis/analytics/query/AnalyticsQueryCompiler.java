@@ -0,0 +1,224 @@
+package com.axis.analytics.query;
+
+import com.axis.analytics.model.dto.AnalyticsQueryResponse;
+import com.axis.analytics.model.enums.QueryDimension;
+import com.axis.analytics.model.enums.QueryMeasure;
+import com.axis.analytics.model.enums.QuerySource;
+import com.axis.analytics.model.enums.RollupGranularity;
+import com.axis.analytics.sketch.LogLinearHistogram;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles an {@link AnalyticsQuery} into a {@code $match}/{@code $group} pipeline and maps the
+ * groups back to rows. The match always starts with the caller's user id (and the time range
+ * where there is one), so the planner can serve it from the user-leading index of the source
+ * collection.
+ */
+final class AnalyticsQueryCompiler {
+
+    /** Upper bound on returned rows, so a fine time bucket over a long range cannot explode. */
+    static final int MAX_ROWS = 1000;
+
+    private static final String SUM_MS = "sumMs";
+    private static final String DURATION_COUNT = "durationCount";
+    private static final String BUCKETS = "buckets";
+    /** Group key field of the goal; dimension keys are upper case, so it cannot clash. */
+    private static final String GOAL_KEY = "goalId";
+
+    private AnalyticsQueryCompiler() {
+    }
+
+    static boolean supports(QuerySource source, QueryDimension dimension) {
+        return field(source, dimension) != null;
+    }
+
+    static boolean supports(QuerySource source, QueryMeasure measure) {
+        return switch (measure) {
+            case COUNT -> true;
+            case DISTINCT_GOALS -> source == QuerySource.EVENTS;
+            case COMPLETION_RATE -> source == QuerySource.GOALS;
+            case AVG_DURATION_MS, P50_DURATION_MS, P90_DURATION_MS -> source == QuerySource.DURATIONS;
+        };
+    }
+
+    static List<Bson> pipeline(AnalyticsQuery query) {
+        QuerySource source = query.source();
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("userId", query.userId()));
+        if (query.from() != null) {
+            filters.add(Filters.gte(field(source, QueryDimension.TIME_BUCKET), query.from()));
+        }
+        if (query.to() != null) {
+            filters.add(Filters.lt(field(source, QueryDimension.TIME_BUCKET), query.to()));
+        }
+        if (source == QuerySource.DURATIONS) {
+            // Every duration is sketched twice: across all life aspects and within its own
+            boolean perAspect = query.dimensions().contains(QueryDimension.LIFE_ASPECT)
+                || query.filters().containsKey(QueryDimension.LIFE_ASPECT);
+            filters.add(perAspect ? Filters.ne("lifeAspectId", null) : Filters.eq("lifeAspectId", null));
+        }
+        query.filters().forEach((dimension, values) -> filters.add(Filters.in(field(source, dimension), values)));
+
+        Document groupKey = null;
+        if (!query.dimensions().isEmpty()) {
+            groupKey = new Document();
+            for (QueryDimension dimension : query.dimensions()) {
+                groupKey.append(dimension.name(), dimension == QueryDimension.TIME_BUCKET
+                    ? timeBucket(query, "$" + field(source, dimension))
+                    : "$" + field(source, dimension));
+            }
+        }
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(Filters.and(filters)));
+        if (query.measures().contains(QueryMeasure.DISTINCT_GOALS)) {
+            pipeline.addAll(distinctGoalGroups(query, groupKey));
+        } else {
+            pipeline.add(Aggregates.group(groupKey, accumulators(query)));
+        }
+        pipeline.add(Aggregates.sort(Sorts.ascending("_id")));
+        pipeline.add(Aggregates.limit(MAX_ROWS));
+        return pipeline;
+    }
+
+    /**
+     * Groups by the dimensions and the goal first, then counts those groups per dimensions, so no
+     * group has to hold the set of its goals in memory.
+     */
+    private static List<Bson> distinctGoalGroups(AnalyticsQuery query, Document groupKey) {
+        Document perGoal = groupKey == null ? new Document() : new Document(groupKey);
+        perGoal.append(GOAL_KEY, "$goalId");
+        Document perDimensions = null;
+        if (groupKey != null) {
+            perDimensions = new Document();
+            for (String dimension : groupKey.keySet()) {
+                perDimensions.append(dimension, "$_id." + dimension);
+            }
+        }
+        List<BsonField> goalAccumulators = new ArrayList<>();
+        List<BsonField> accumulators = new ArrayList<>();
+        if (query.measures().contains(QueryMeasure.COUNT)) {
+            goalAccumulators.add(Accumulators.sum(QueryMeasure.COUNT.name(), 1));
+            accumulators.add(Accumulators.sum(QueryMeasure.COUNT.name(), "$" + QueryMeasure.COUNT.name()));
+        }
+        accumulators.add(Accumulators.sum(QueryMeasure.DISTINCT_GOALS.name(), 1));
+        return List.of(Aggregates.group(perGoal, goalAccumulators), Aggregates.group(perDimensions, accumulators));
+    }
+
+    static AnalyticsQueryResponse.Row toRow(AnalyticsQuery query, Document group) {
+        Document key = group.get("_id", Document.class);
+        Map<QueryDimension, String> dimensions = new LinkedHashMap<>();
+        for (QueryDimension dimension : query.dimensions()) {
+            Object value = key == null ? null : key.get(dimension.name());
+            dimensions.put(dimension, switch (value) {
+                case null -> null;
+                case Date date -> date.toInstant().toString();
+                default -> value.toString();
+            });
+        }
+        Map<QueryMeasure, Number> measures = new EnumMap<>(QueryMeasure.class);
+        Map<String, Long> buckets = query.measures().contains(QueryMeasure.P50_DURATION_MS)
+            || query.measures().contains(QueryMeasure.P90_DURATION_MS) ? mergeBuckets(group) : null;
+        for (QueryMeasure measure : query.measures()) {
+            measures.put(measure, switch (measure) {
+                case COUNT -> group.get(measure.name(), Number.class).longValue();
+                case DISTINCT_GOALS -> group.get(measure.name(), Number.class).longValue();
+                case COMPLETION_RATE -> group.get(measure.name(), Number.class);
+                case AVG_DURATION_MS -> {
+                    long count = group.get(DURATION_COUNT, Number.class).longValue();
+                    yield count > 0 ? group.get(SUM_MS, Number.class).longValue() / count : null;
+                }
+                case P50_DURATION_MS -> LogLinearHistogram.valueAtQuantile(buckets, 0.5);
+                case P90_DURATION_MS -> LogLinearHistogram.valueAtQuantile(buckets, 0.9);
+            });
+        }
+        return new AnalyticsQueryResponse.Row(dimensions, measures);
+    }
+
+    /** Document field a dimension groups and filters on, null if the source does not have it. */
+    private static String field(QuerySource source, QueryDimension dimension) {
+        return switch (source) {
+            case EVENTS -> switch (dimension) {
+                case LIFE_ASPECT -> "lifeAspectId";
+                case STATUS -> "newStatus";
+                case EVENT_TYPE -> "eventType";
+                case ENTITY_TYPE -> "entityType";
+                case TIME_BUCKET -> "occurredAt";
+            };
+            case GOALS -> switch (dimension) {
+                case LIFE_ASPECT -> "lifeAspectId";
+                case STATUS -> "currentStatus";
+                case TIME_BUCKET -> "createdAt";
+                case EVENT_TYPE, ENTITY_TYPE -> null;
+            };
+            case DURATIONS -> switch (dimension) {
+                case LIFE_ASPECT -> "lifeAspectId";
+                case STATUS -> "status";
+                case ENTITY_TYPE -> "entityType";
+                case EVENT_TYPE, TIME_BUCKET -> null;
+            };
+        };
+    }
+
+    /** Same UTC-aligned buckets as the rollups, weeks starting on Monday. */
+    private static Document timeBucket(AnalyticsQuery query, String dateField) {
+        Document truncate = new Document("date", dateField)
+            .append("unit", query.granularity().name().toLowerCase(Locale.ROOT))
+            .append("timezone", "UTC");
+        if (query.granularity() == RollupGranularity.WEEK) {
+            truncate.append("startOfWeek", "monday");
+        }
+        return new Document("$dateTrunc", truncate);
+    }
+
+    private static List<BsonField> accumulators(AnalyticsQuery query) {
+        boolean sketches = query.source() == QuerySource.DURATIONS;
+        List<BsonField> accumulators = new ArrayList<>();
+        for (QueryMeasure measure : query.measures()) {
+            switch (measure) {
+                // A sketch already counts many periods
+                case COUNT -> accumulators.add(Accumulators.sum(measure.name(), sketches ? "$count" : 1));
+                // Counted by distinctGoalGroups
+                case DISTINCT_GOALS -> {
+                }
+                case COMPLETION_RATE -> accumulators.add(Accumulators.avg(measure.name(), "$completionRate"));
+                case AVG_DURATION_MS -> {
+                    accumulators.add(Accumulators.sum(SUM_MS, "$sumMs"));
+                    accumulators.add(Accumulators.sum(DURATION_COUNT, "$count"));
+                }
+                case P50_DURATION_MS, P90_DURATION_MS -> {
+                    if (accumulators.stream().noneMatch(field -> field.getName().equals(BUCKETS))) {
+                        accumulators.add(Accumulators.push(BUCKETS, "$buckets"));
+                    }
+                }
+            }
+        }
+        return accumulators;
+    }
+
+    /** Sketches merge by adding their histogram buckets. */
+    private static Map<String, Long> mergeBuckets(Document group) {
+        Map<String, Long> merged = new HashMap<>();
+        for (Document buckets : group.getList(BUCKETS, Document.class)) {
+            if (buckets == null) {
+                continue;
+            }
+            buckets.forEach((index, count) -> merged.merge(index, ((Number) count).longValue(), Long::sum));
+        }
+        return merged;
+    }
+}
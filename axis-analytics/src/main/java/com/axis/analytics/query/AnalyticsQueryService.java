@@ -0,0 +1,71 @@
+package com.axis.analytics.query;
+
+import com.axis.analytics.model.dto.AnalyticsQueryRequest;
+import com.axis.analytics.model.dto.AnalyticsQueryResponse;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.StatusDurationSketchRepository;
+import com.mongodb.client.MongoCollection;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Answers ad-hoc analytics queries of a user. Results are cached per normalized query and user
+ * for a few minutes, so dashboards repeating the same questions do not aggregate again; they
+ * are not invalidated by new events and may lag by up to the cache's expiry.
+ */
+@Slf4j
+@ApplicationScoped
+public class AnalyticsQueryService {
+
+    public static final String QUERY_CACHE = "analytics-queries";
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    GoalSnapshotRepository snapshotRepository;
+
+    @Inject
+    StatusDurationSketchRepository sketchRepository;
+
+    @Inject
+    @CacheName(QUERY_CACHE)
+    Cache queryCache;
+
+    /** Raw events older than this are compacted into segments, which queries do not read. */
+    @ConfigProperty(name = "axis.analytics.retention.compact-after", defaultValue = "90d")
+    Duration compactAfter;
+
+    public AnalyticsQueryResponse query(UUID userId, AnalyticsQueryRequest request) {
+        AnalyticsQuery query = AnalyticsQuery.normalize(userId.toString(), request, Instant.now().minus(compactAfter));
+        return queryCache.get(query, this::execute).await().indefinitely();
+    }
+
+    private AnalyticsQueryResponse execute(AnalyticsQuery query) {
+        MongoCollection<?> collection = switch (query.source()) {
+            case EVENTS -> eventRepository.mongoCollection();
+            case GOALS -> snapshotRepository.mongoCollection();
+            case DURATIONS -> sketchRepository.mongoCollection();
+        };
+        long started = System.nanoTime();
+        List<Document> groups = collection.aggregate(AnalyticsQueryCompiler.pipeline(query), Document.class)
+            .into(new ArrayList<>());
+        log.debug("Aggregated {} rows of {} in {} ms", groups.size(), query.source(),
+            (System.nanoTime() - started) / 1_000_000);
+        return new AnalyticsQueryResponse(
+            groups.stream().map(group -> AnalyticsQueryCompiler.toRow(query, group)).toList(),
+            Instant.now());
+    }
+}
@@ -0,0 +1,416 @@
+package com.axis.analytics.replay;
+
+import com.axis.analytics.index.AnalyticsIndexManager;
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.analytics.model.dto.ReplayStatusResponse;
+import com.axis.analytics.model.dto.ReplayStatusResponse.ReplayState;
+import com.axis.analytics.projection.SnapshotProjection;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.StatusPeriodBucketRepository;
+import com.axis.analytics.repository.SubGoalBucketRepository;
+import com.axis.analytics.retention.EventHistoryReader;
+import com.axis.analytics.retention.EventLogLease;
+import com.axis.analytics.service.impl.AnalyticsServiceImpl;
+import com.axis.analytics.service.impl.SnapshotWrites;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.exception.BusinessException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.Sorts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds every goal snapshot and its buckets from the raw event log, across all retention
+ * tiers. Events are streamed in goal order, grouped per goal and handed in chunks to a small
+ * worker pool that applies them to shadow collections with the same updates live ingestion uses.
+ * <p>
+ * The log is split at id marks, each taken once the events below it had time to be stored: the
+ * rebuild applies the events below the first mark, a catch-up those up to a second one. Then
+ * the write-behind projection is paused on every replica, each shadow collection replaces its
+ * live one, and a last catch-up applies the events up to a mark taken after the swaps to the
+ * live collections; the projection resumes from that mark. Only events of batches in flight
+ * during the swaps reach the live collections twice. Snapshots skip them by the ids of the last
+ * 64 events they keep, and bucket updates are idempotent.
+ * <p>
+ * The three swaps are separate renames, so for a moment readers can see rebuilt buckets with
+ * the previous snapshots. A replay failing between them leaves that mix until it is run again.
+ * <p>
+ * Only snapshots and their buckets are rebuilt. Rollups, status duration sketches and activity
+ * calendars are increments applied once per stored event, do not depend on the snapshots and
+ * are left as they are.
+ * <p>
+ * Reading is throttled so a full rebuild does not starve live ingestion. A replay holds the
+ * {@link EventLogLease}, so only one runs across the replicas and never alongside retention.
+ */
+@Slf4j
+@ApplicationScoped
+public class SnapshotReplayService {
+
+    private static final String SHADOW_SUFFIX = "_rebuild";
+
+    /**
+     * How long events take to be stored after getting their ids, across writers whose clocks
+     * drift apart, and for other replicas to notice a paused projection with their next flush.
+     */
+    private static final Duration SETTLE = Duration.ofSeconds(10);
+    private static final int CATCH_UP_BATCH = 1000;
+
+    /** Per goal: sequenced events by sequence, events from before sequencing first by time. */
+    private static final Comparator<GoalDomainEvent> REPLAY_ORDER = Comparator
+        .comparing(GoalDomainEvent::sequence, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(GoalDomainEvent::occurredAt);
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    GoalSnapshotRepository snapshotRepository;
+
+    @Inject
+    EventHistoryReader historyReader;
+
+    @Inject
+    SubGoalBucketRepository subGoalBucketRepository;
+
+    @Inject
+    StatusPeriodBucketRepository periodBucketRepository;
+
+    @Inject
+    SnapshotProjection projection;
+
+    @Inject
+    EventLogLease lease;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    @CacheName(AnalyticsServiceImpl.SUMMARY_CACHE)
+    Cache summaryCache;
+
+    @ConfigProperty(name = "axis.analytics.replay.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "axis.analytics.replay.chunk-events", defaultValue = "500")
+    int chunkEvents;
+
+    @ConfigProperty(name = "axis.analytics.replay.max-events-per-second", defaultValue = "5000")
+    int maxEventsPerSecond;
+
+    private final AtomicReference<Run> current = new AtomicReference<>();
+    private Counter replayedEventsCounter;
+    private Counter rebuiltGoalsCounter;
+
+    @PostConstruct
+    void init() {
+        replayedEventsCounter = meterRegistry.counter("axis.analytics.replay.events");
+        rebuiltGoalsCounter = meterRegistry.counter("axis.analytics.replay.goals");
+        meterRegistry.gauge("axis.analytics.replay.running", current,
+            run -> run.get() != null && run.get().state == ReplayState.RUNNING ? 1 : 0);
+    }
+
+    /**
+     * Snapshots written before status periods and sub-goals moved into buckets still embed them,
+     * and the buckets those snapshots are read with do not exist yet. A replay rebuilds both from
+     * the event log, so it starts by itself while such snapshots remain, on the replica that
+     * gets the lease first.
+     */
+    void onStart(@Observes StartupEvent ev) {
+        if (snapshotRepository.hasEmbeddedHistory()) {
+            log.warn("Goal snapshots with embedded history found; replaying the event log to move it into buckets");
+            try {
+                start();
+            } catch (BusinessException e) {
+                log.info("Not replaying on this replica: {}", e.getMessage());
+            }
+        }
+    }
+
+    public ReplayStatusResponse start() {
+        Run previous = current.get();
+        if (previous != null && previous.state == ReplayState.RUNNING) {
+            throw new BusinessException("A snapshot replay is already running", Response.Status.CONFLICT);
+        }
+        EventLogLease.Held held = lease.acquire("replay").orElseThrow(() -> new BusinessException(
+            "A snapshot replay or event retention is running on another replica", Response.Status.CONFLICT));
+        Run run;
+        try {
+            run = new Run(Instant.now(), historyReader.countStoredEvents(), held);
+        } catch (RuntimeException e) {
+            held.close();
+            throw e;
+        }
+        if (!current.compareAndSet(previous, run)) {
+            held.close();
+            throw new BusinessException("A snapshot replay is already running", Response.Status.CONFLICT);
+        }
+        log.info("Starting snapshot replay of {} events", run.totalEvents);
+        Thread.ofVirtual().name("snapshot-replay").start(() -> execute(run));
+        return run.toResponse();
+    }
+
+    public ReplayStatusResponse status() {
+        Run run = current.get();
+        return run == null
+            ? new ReplayStatusResponse(ReplayState.IDLE, null, null, 0, 0, 0, null)
+            : run.toResponse();
+    }
+
+    private void execute(Run run) {
+        ExecutorService pool = Executors.newFixedThreadPool(workers,
+            Thread.ofVirtual().name("snapshot-replay-", 0).factory());
+        try {
+            Targets shadow = prepareShadow();
+            ObjectId rebuiltUpTo = settledMark();
+            rebuild(run, shadow, pool, rebuiltUpTo);
+            ObjectId caughtUpTo = settledMark();
+            catchUp(run, shadow, rebuiltUpTo, caughtUpTo);
+
+            // Held snapshots predate the rebuilt ones and must not be written over them
+            projection.pause();
+            ObjectId swappedAt = null;
+            try {
+                settle();
+                // Buckets first: a snapshot is only visible once the buckets it refers to are
+                swap(shadow.subGoalBuckets(), subGoalBucketRepository.mongoCollection());
+                swap(shadow.periodBuckets(), periodBucketRepository.mongoCollection());
+                swap(shadow.snapshots(), snapshotRepository.mongoCollection());
+                // Events stored up to here may have gone to the replaced collections
+                ObjectId swapped = settledMark();
+                catchUp(run, live(), caughtUpTo, swapped);
+                swappedAt = swapped;
+            } finally {
+                projection.resume(swappedAt);
+            }
+            summaryCache.invalidateAll().await().indefinitely();
+
+            run.finish(ReplayState.COMPLETED, null);
+            log.info("Snapshot replay finished: {} events, {} goals", run.replayedEvents.get(), run.rebuiltGoals.get());
+        } catch (Exception e) {
+            log.error("Snapshot replay failed", e);
+            run.finish(ReplayState.FAILED, e.getMessage());
+        } finally {
+            pool.shutdownNow();
+            run.lease.close();
+        }
+    }
+
+    private Targets prepareShadow() {
+        return new Targets(
+            shadowOf(snapshotRepository.mongoCollection(), AnalyticsIndexManager.snapshotIndexes()),
+            shadowOf(subGoalBucketRepository.mongoCollection(), AnalyticsIndexManager.subGoalBucketIndexes()),
+            shadowOf(periodBucketRepository.mongoCollection(), AnalyticsIndexManager.periodBucketIndexes()));
+    }
+
+    private <T> MongoCollection<T> shadowOf(MongoCollection<T> live, List<IndexModel> indexes) {
+        MongoCollection<T> shadow = snapshotRepository.mongoDatabase()
+            .getCollection(live.getNamespace().getCollectionName() + SHADOW_SUFFIX, live.getDocumentClass());
+        shadow.drop();
+        shadow.createIndexes(indexes);
+        return shadow;
+    }
+
+    private Targets live() {
+        return new Targets(snapshotRepository.mongoCollection(), subGoalBucketRepository.mongoCollection(),
+            periodBucketRepository.mongoCollection());
+    }
+
+    private static void swap(MongoCollection<?> shadow, MongoCollection<?> live) {
+        shadow.renameCollection(live.getNamespace(), new RenameCollectionOptions().dropTarget(true));
+    }
+
+    private void rebuild(Run run, Targets shadow, ExecutorService pool, ObjectId before) throws Exception {
+        int maxChunksInFlight = workers * 2;
+        Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        List<List<GoalDomainEvent>> chunk = new ArrayList<>();
+        int chunkSize = 0;
+        long read = 0;
+        long startedNanos = System.nanoTime();
+
+        try (EventHistoryReader.GoalHistories goals = historyReader.open(before)) {
+            while (goals.hasNext()) {
+                List<GoalDomainEvent> goalEvents = goals.next().stream()
+                    .map(GoalEventDocument::toDomainEvent)
+                    .collect(Collectors.toCollection(ArrayList::new));
+                if (goalEvents.isEmpty()) {
+                    continue;
+                }
+                chunk.add(goalEvents);
+                chunkSize += goalEvents.size();
+                if (chunkSize >= chunkEvents) {
+                    submit(pool, inFlight, failure, shadow, run, chunk);
+                    chunk = new ArrayList<>();
+                    chunkSize = 0;
+                }
+                read += goalEvents.size();
+                throttle(read, startedNanos);
+                run.lease.renew();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            submit(pool, inFlight, failure, shadow, run, chunk);
+        }
+        // Wait for the workers to drain
+        inFlight.acquire(maxChunksInFlight);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, AtomicReference<Exception> failure,
+                        Targets shadow, Run run, List<List<GoalDomainEvent>> chunk)
+            throws Exception {
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                applyChunk(shadow, run, chunk);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void applyChunk(Targets shadow, Run run, List<List<GoalDomainEvent>> chunk) {
+        SnapshotWrites writes = new SnapshotWrites();
+        int events = 0;
+        for (List<GoalDomainEvent> goalEvents : chunk) {
+            goalEvents.sort(REPLAY_ORDER);
+            goalEvents.forEach(writes::add);
+            events += goalEvents.size();
+        }
+        shadow.apply(writes);
+        run.replayedEvents.addAndGet(events);
+        run.rebuiltGoals.addAndGet(chunk.size());
+        replayedEventsCounter.increment(events);
+        rebuiltGoalsCounter.increment(chunk.size());
+    }
+
+    /**
+     * Applies, in arrival order, every event stored with an id from {@code from} up to
+     * {@code to}, exclusive.
+     */
+    private void catchUp(Run run, Targets target, ObjectId from, ObjectId to) {
+        SnapshotWrites writes = new SnapshotWrites();
+        int applied = 0;
+        try (MongoCursor<GoalEventDocument> cursor = eventRepository.mongoCollection()
+                .find(Filters.and(Filters.gte("_id", from), Filters.lt("_id", to)))
+                .sort(Sorts.ascending("_id"))
+                .cursor()) {
+            while (cursor.hasNext()) {
+                writes.add(cursor.next().toDomainEvent());
+                applied++;
+                if (writes.size() >= CATCH_UP_BATCH) {
+                    target.apply(writes);
+                    writes.clear();
+                    run.lease.renew();
+                }
+            }
+        }
+        target.apply(writes);
+        log.info("Caught up {} events on {}", applied, target.snapshots().getNamespace().getCollectionName());
+    }
+
+    private void throttle(long read, long startedNanos) throws InterruptedException {
+        if (maxEventsPerSecond <= 0) {
+            return;
+        }
+        long dueNanos = startedNanos + read * 1_000_000_000L / maxEventsPerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        }
+    }
+
+    /** Takes an id mark at the current time and returns it once the events below it are stored. */
+    private static ObjectId settledMark() throws InterruptedException {
+        // Ids only carry seconds: events at or above the next second got their ids after now
+        ObjectId mark = lowerBound(Instant.now().plusSeconds(1));
+        settle();
+        return mark;
+    }
+
+    private static void settle() throws InterruptedException {
+        Thread.sleep(SETTLE);
+    }
+
+    /** Smallest ObjectId generated at or after {@code instant}. */
+    private static ObjectId lowerBound(Instant instant) {
+        return new ObjectId(String.format("%08x", instant.getEpochSecond()) + "0".repeat(16));
+    }
+
+    /** The snapshot collection and bucket collections one rebuild step writes to. */
+    private record Targets(MongoCollection<GoalSnapshot> snapshots,
+                           MongoCollection<SubGoalBucket> subGoalBuckets,
+                           MongoCollection<StatusPeriodBucket> periodBuckets) {
+
+        void apply(SnapshotWrites writes) {
+            writes.applyTo(snapshots, subGoalBuckets, periodBuckets);
+        }
+    }
+
+    private static final class Run {
+        final Instant startedAt;
+        final long totalEvents;
+        final EventLogLease.Held lease;
+        final AtomicLong replayedEvents = new AtomicLong();
+        final AtomicLong rebuiltGoals = new AtomicLong();
+        volatile ReplayState state = ReplayState.RUNNING;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Run(Instant startedAt, long totalEvents, EventLogLease.Held lease) {
+            this.startedAt = startedAt;
+            this.totalEvents = totalEvents;
+            this.lease = lease;
+        }
+
+        void finish(ReplayState state, String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.state = state;
+        }
+
+        ReplayStatusResponse toResponse() {
+            return new ReplayStatusResponse(state, startedAt, finishedAt, totalEvents,
+                replayedEvents.get(), rebuiltGoals.get(), error);
+        }
+    }
+}
@@ -1,19 +1,153 @@
 package com.axis.analytics.repository;
 
 import com.axis.analytics.model.document.GoalEventDocument;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
 import io.quarkus.mongodb.panache.PanacheMongoRepository;
-import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class GoalEventRepository implements PanacheMongoRepository<GoalEventDocument> {
 
-    public List<GoalEventDocument> findByGoalIdOrderByOccurredAt(String goalId) {
-        return find("goalId", Sort.by("occurredAt", Sort.Direction.Ascending), goalId).list();
+    /**
+     * Inserts the events, skipping those already stored. Returns the positions of the skipped ones.
+     */
+    public Set<Integer> insertIgnoringDuplicates(List<GoalEventDocument> events) {
+        try {
+            mongoCollection().insertMany(events, new InsertManyOptions().ordered(false));
+            return Set.of();
+        } catch (MongoBulkWriteException e) {
+            List<BulkWriteError> errors = e.getWriteErrors();
+            boolean onlyDuplicates = e.getWriteConcernError() == null && errors.stream()
+                .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            return errors.stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        }
+    }
+
+    /** Stored events among {@code eventIds} whose derived increments were not all applied yet. */
+    public List<GoalEventDocument> findUnprocessed(Collection<String> eventIds) {
+        return mongoCollection().find(Filters.and(Filters.in("eventId", eventIds), Filters.eq("processed", false)))
+            .into(new ArrayList<>());
+    }
+
+    /** Ids in {@code goal_events} of the stored events among {@code eventIds}. */
+    public List<ObjectId> findIds(Collection<String> eventIds) {
+        return mongoCollection().find(Filters.in("eventId", eventIds))
+            .projection(new Document("_id", 1))
+            .map(GoalEventDocument::getId)
+            .into(new ArrayList<>());
+    }
+
+    /** Records that all derived increments of the events were applied. */
+    public void markProcessed(Collection<ObjectId> ids) {
+        mongoCollection().updateMany(Filters.in("_id", ids), Updates.unset("processed"));
+    }
+
+    /**
+     * Keyset page of a goal's timeline owned by {@code userId}, ordered by occurrence and id.
+     * {@code eventTypes}, {@code from} (inclusive) and {@code to} (exclusive) are optional filters;
+     * the page starts after the event identified by {@code afterOccurredAt} and {@code afterId}.
+     */
+    public List<GoalEventDocument> findTimelinePage(String goalId, String userId, Collection<String> eventTypes,
+                                                    Instant from, Instant to,
+                                                    Instant afterOccurredAt, ObjectId afterId, int limit) {
+        List<Bson> filters = timelineFilters(goalId, userId, eventTypes, from, to);
+        if (afterOccurredAt != null) {
+            filters.add(Filters.or(
+                Filters.gt("occurredAt", afterOccurredAt),
+                Filters.and(Filters.eq("occurredAt", afterOccurredAt), Filters.gt("_id", afterId))));
+        }
+        return mongoCollection().find(Filters.and(filters))
+            .sort(Sorts.ascending("occurredAt", "_id"))
+            .limit(limit)
+            .into(new ArrayList<>());
+    }
+
+    /** Events of a goal's timeline owned by {@code userId}, narrowed by the optional filters. */
+    static List<Bson> timelineFilters(String goalId, String userId, Collection<String> eventTypes,
+                                      Instant from, Instant to) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("goalId", goalId));
+        filters.add(Filters.eq("userId", userId));
+        if (eventTypes != null && !eventTypes.isEmpty()) {
+            filters.add(Filters.in("eventType", eventTypes));
+        }
+        if (from != null) {
+            filters.add(Filters.gte("occurredAt", from));
+        }
+        if (to != null) {
+            filters.add(Filters.lt("occurredAt", to));
+        }
+        return filters;
+    }
+
+    /**
+     * Goal and owner of events that occurred before {@code cutoff}, looking at no more than
+     * {@code maxEvents} of them. Loads only {@code goalId} and {@code userId}. Events still
+     * waiting for their increments are left out, since only the hot tier records that.
+     */
+    public List<GoalEventDocument> findGoalsWithEventsBefore(Instant cutoff, int maxEvents) {
+        List<Bson> pipeline = List.of(
+            Aggregates.match(Filters.and(Filters.lt("occurredAt", cutoff), Filters.ne("processed", false))),
+            Aggregates.limit(maxEvents),
+            Aggregates.group(new Document("goalId", "$goalId").append("userId", "$userId")));
+        List<GoalEventDocument> goals = new ArrayList<>();
+        for (Document group : mongoCollection().aggregate(pipeline, Document.class)) {
+            Document key = group.get("_id", Document.class);
+            goals.add(GoalEventDocument.builder()
+                .goalId(key.getString("goalId"))
+                .userId(key.getString("userId"))
+                .build());
+        }
+        return goals;
+    }
+
+    /**
+     * The oldest events of a goal that occurred before {@code cutoff}, in timeline order, leaving
+     * out events still waiting for their increments.
+     */
+    public List<GoalEventDocument> findOldestBefore(String goalId, String userId, Instant cutoff, int limit) {
+        return mongoCollection().find(Filters.and(
+                Filters.eq("goalId", goalId),
+                Filters.eq("userId", userId),
+                Filters.lt("occurredAt", cutoff),
+                Filters.ne("processed", false)))
+            .sort(Sorts.ascending("occurredAt", "_id"))
+            .limit(limit)
+            .into(new ArrayList<>());
+    }
+
+    /** All events stored before {@code before} in goal order, for a full replay of the event history. */
+    public FindIterable<GoalEventDocument> findAllInGoalOrder(ObjectId before) {
+        return mongoCollection().find(Filters.lt("_id", before))
+            .sort(Sorts.ascending("goalId", "userId", "occurredAt", "_id"))
+            .batchSize(1000);
+    }
+
+    public void deleteByIds(Collection<ObjectId> ids) {
+        mongoCollection().deleteMany(Filters.in("_id", ids));
     }
 
     public List<GoalEventDocument> findByUserId(String userId) {
         return find("userId", userId).list();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.GoalEventSegment;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@ApplicationScoped
+public class GoalEventSegmentRepository implements PanacheMongoRepository<GoalEventSegment> {
+
+    static final Bson TIMELINE_SEGMENT_ORDER = Sorts.ascending("firstOccurredAt", "_id");
+
+    /**
+     * Segments of a goal's timeline that may hold events at or after {@code from} and before
+     * {@code to} (both optional), in order of their first event. Read lazily.
+     */
+    public FindIterable<GoalEventSegment> findTimelineSegments(String goalId, String userId,
+                                                              Collection<String> eventTypes,
+                                                              Instant from, Instant to) {
+        return mongoCollection().find(timelineSegmentFilter(goalId, userId, eventTypes, from, to))
+            .sort(TIMELINE_SEGMENT_ORDER);
+    }
+
+    static Bson timelineSegmentFilter(String goalId, String userId, Collection<String> eventTypes,
+                                      Instant from, Instant to) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("goalId", goalId));
+        filters.add(Filters.eq("userId", userId));
+        if (eventTypes != null && !eventTypes.isEmpty()) {
+            filters.add(Filters.in("eventTypes", eventTypes));
+        }
+        if (from != null) {
+            filters.add(Filters.gte("lastOccurredAt", from));
+        }
+        if (to != null) {
+            filters.add(Filters.lt("firstOccurredAt", to));
+        }
+        return Filters.and(filters);
+    }
+
+    /** Segments whose newest event is older than {@code cutoff}, in goal order. */
+    public List<GoalEventSegment> findEndingBefore(Instant cutoff, int limit) {
+        return mongoCollection().find(Filters.lt("lastOccurredAt", cutoff))
+            .sort(Sorts.ascending("goalId", "userId", "firstOccurredAt"))
+            .limit(limit)
+            .into(new ArrayList<>());
+    }
+
+    /** All segments in goal order, for a full replay of the event history. */
+    public FindIterable<GoalEventSegment> findAllInGoalOrder() {
+        return mongoCollection().find()
+            .sort(Sorts.ascending("goalId", "userId", "firstOccurredAt"))
+            .batchSize(100);
+    }
+
+    public long countEvents() {
+        Document total = mongoCollection().aggregate(List.of(
+                Aggregates.group(null, Accumulators.sum("events", "$count"))), Document.class)
+            .first();
+        return total == null ? 0 : ((Number) total.get("events")).longValue();
+    }
+
+    public void deleteByIds(Collection<ObjectId> ids) {
+        mongoCollection().deleteMany(Filters.in("_id", ids));
+    }
+}
@@ -1,19 +1,58 @@
 package com.axis.analytics.repository;
 
 import com.axis.analytics.model.document.GoalSnapshot;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import io.quarkus.mongodb.panache.PanacheMongoRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.conversions.Bson;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @ApplicationScoped
 public class GoalSnapshotRepository implements PanacheMongoRepository<GoalSnapshot> {
 
+    static final Bson SUMMARY_FIELDS = Projections.include("goalId", "title", "currentStatus", "completionRate");
+
     public Optional<GoalSnapshot> findByGoalId(String goalId) {
         return find("goalId", goalId).firstResultOptional();
     }
 
-    public List<GoalSnapshot> findByUserId(String userId) {
-        return find("userId", userId).list();
+    /** Loads the given snapshots whole, without their buckets. */
+    public List<GoalSnapshot> findAllByGoalIds(Collection<String> goalIds) {
+        return mongoCollection().find(Filters.in("goalId", goalIds)).into(new ArrayList<>());
+    }
+
+    /** Loads only the goal id and sequence position of the given snapshots. */
+    public List<GoalSnapshot> findByGoalIds(Collection<String> goalIds) {
+        return mongoCollection().find(Filters.in("goalId", goalIds))
+            .projection(Projections.include("goalId", "lastSequence"))
+            .into(new ArrayList<>());
+    }
+
+    /** Loads only the goal id and open period start of the given snapshots. */
+    public List<GoalSnapshot> findStatusSince(Collection<String> goalIds) {
+        return mongoCollection().find(Filters.in("goalId", goalIds))
+            .projection(Projections.include("goalId", "statusSince"))
+            .into(new ArrayList<>());
+    }
+
+    /**
+     * Whether some snapshot still embeds its status history or sub-goals, as written before they
+     * moved into buckets.
+     */
+    public boolean hasEmbeddedHistory() {
+        return mongoCollection().find(Filters.or(Filters.exists("statusHistory"), Filters.exists("subGoals")))
+            .projection(Projections.include("_id"))
+            .first() != null;
+    }
+
+    /** Loads only the fields the dashboard summary shows. */
+    public List<GoalSnapshot> findSummariesByUserId(String userId) {
+        return mongoCollection().find(Filters.eq("userId", userId))
+            .projection(SUMMARY_FIELDS)
+            .into(new ArrayList<>());
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.JobLease;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.time.Instant;
+
+@ApplicationScoped
+public class JobLeaseRepository implements PanacheMongoRepository<JobLease> {
+
+    /**
+     * Takes the lease for {@code ttl} if it is free, expired or already held by {@code owner}.
+     * Relies on the unique index on {@code name}: a lease held by someone else makes the upsert fail.
+     */
+    public boolean acquire(String name, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        try {
+            mongoCollection().updateOne(
+                Filters.and(Filters.eq("name", name),
+                    Filters.or(Filters.lt("expiresAt", now), Filters.eq("owner", owner))),
+                Updates.combine(Updates.set("owner", owner), Updates.set("expiresAt", now.plus(ttl))),
+                new UpdateOptions().upsert(true));
+            return true;
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    /** Extends the lease by {@code ttl} if {@code owner} still holds it. */
+    public boolean renew(String name, String owner, Duration ttl) {
+        return mongoCollection().updateOne(Filters.and(Filters.eq("name", name), Filters.eq("owner", owner)),
+            Updates.set("expiresAt", Instant.now().plus(ttl))).getMatchedCount() > 0;
+    }
+
+    public void release(String name, String owner) {
+        mongoCollection().deleteOne(Filters.and(Filters.eq("name", name), Filters.eq("owner", owner)));
+    }
+}
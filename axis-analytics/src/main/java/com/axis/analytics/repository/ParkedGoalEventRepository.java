@@ -0,0 +1,26 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.ParkedGoalEvent;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import java.util.ArrayList;
+import java.util.List;
+
+@ApplicationScoped
+public class ParkedGoalEventRepository implements PanacheMongoRepository<ParkedGoalEvent> {
+
+    /** Most recently parked first, without the message bodies; {@code before} continues a previous page. */
+    public List<ParkedGoalEvent> findPage(ObjectId before, int size) {
+        Bson filter = before == null ? Filters.empty() : Filters.lt("_id", before);
+        return mongoCollection().find(filter)
+            .projection(Projections.exclude("body"))
+            .sort(Sorts.descending("_id"))
+            .limit(size)
+            .into(new ArrayList<>());
+    }
+}
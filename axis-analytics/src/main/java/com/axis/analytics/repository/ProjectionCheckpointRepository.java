@@ -0,0 +1,119 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.ProjectionCheckpoint;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@ApplicationScoped
+public class ProjectionCheckpointRepository implements PanacheMongoRepository<ProjectionCheckpoint> {
+
+    /** Owner of every partition while a snapshot replay swaps the collections; nobody takes them over. */
+    public static final String PAUSED = "paused";
+
+    public Optional<ProjectionCheckpoint> findByPartition(int partition) {
+        return find("partition", partition).firstResultOptional();
+    }
+
+    /**
+     * Makes {@code owner} the owner of the partition and returns its checkpoint, which starts at
+     * {@code initial} if the partition had none, with the new epoch the owner is fenced by.
+     * Returns null while the partition is paused. Relies on the unique index on
+     * {@code partition}: a paused checkpoint makes the upsert fail.
+     */
+    public ProjectionCheckpoint takeOver(int partition, ObjectId initial, String owner) {
+        try {
+            return mongoCollection().findOneAndUpdate(
+                Filters.and(Filters.eq("partition", partition), Filters.ne("owner", PAUSED)),
+                Updates.combine(
+                    Updates.setOnInsert("position", initial),
+                    Updates.set("owner", owner),
+                    Updates.inc("epoch", 1L),
+                    Updates.set("updatedAt", Instant.now())
+                ), new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+        } catch (MongoException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    /** Whether the partition is still held by the takeover that returned {@code epoch}. */
+    public boolean owns(int partition, long epoch) {
+        return mongoCollection().countDocuments(
+            Filters.and(Filters.eq("partition", partition), Filters.eq("epoch", epoch))) > 0;
+    }
+
+    /** Moves the checkpoint to {@code position} if the takeover that returned {@code epoch} still holds it. */
+    public boolean advance(int partition, ObjectId position, long epoch) {
+        return mongoCollection().updateOne(Filters.and(Filters.eq("partition", partition), Filters.eq("epoch", epoch)),
+            Updates.combine(
+                Updates.set("position", position),
+                Updates.set("updatedAt", Instant.now())
+            )).getMatchedCount() > 0;
+    }
+
+    /**
+     * Moves the checkpoint back to {@code position} unless it is already before it, and takes the
+     * partition away from its owner, which then recovers from there. A paused partition is left
+     * alone: the replay pausing it sets where it resumes.
+     */
+    public void rewind(int partition, ObjectId position) {
+        try {
+            mongoCollection().updateOne(Filters.and(Filters.eq("partition", partition), Filters.ne("owner", PAUSED)),
+                Updates.combine(
+                    Updates.min("position", position),
+                    Updates.set("owner", null),
+                    Updates.inc("epoch", 1L),
+                    Updates.set("updatedAt", Instant.now())
+                ), new UpdateOptions().upsert(true));
+        } catch (MongoException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+        }
+    }
+
+    /** Takes the partitions from their owners and keeps anyone from taking them over. */
+    public void pause(int partitions) {
+        for (int partition = 0; partition < partitions; partition++) {
+            mongoCollection().updateOne(Filters.eq("partition", partition), Updates.combine(
+                Updates.set("owner", PAUSED),
+                Updates.inc("epoch", 1L),
+                Updates.set("updatedAt", Instant.now())
+            ), new UpdateOptions().upsert(true));
+        }
+    }
+
+    public boolean anyPaused() {
+        return count("owner", PAUSED) > 0;
+    }
+
+    /** Releases paused partitions, to be recovered from {@code position}, or from where they were if null. */
+    public void resume(int partitions, ObjectId position) {
+        for (int partition = 0; partition < partitions; partition++) {
+            List<Bson> updates = new ArrayList<>(List.of(
+                Updates.set("owner", null),
+                Updates.set("updatedAt", Instant.now())));
+            if (position != null) {
+                updates.add(Updates.set("position", position));
+            }
+            mongoCollection().updateOne(
+                Filters.and(Filters.eq("partition", partition), Filters.eq("owner", PAUSED)),
+                Updates.combine(updates));
+        }
+    }
+}
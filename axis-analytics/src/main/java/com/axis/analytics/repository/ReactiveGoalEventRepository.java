@@ -0,0 +1,28 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import java.util.Collection;
+
+/** Non-blocking reads of {@code goal_events} for streaming endpoints. */
+@ApplicationScoped
+public class ReactiveGoalEventRepository implements ReactivePanacheMongoRepository<GoalEventDocument> {
+
+    /**
+     * The events of a goal's timeline in occurrence order, with the same filters as
+     * {@link GoalEventRepository#findTimelinePage}. Documents are fetched in driver batches as
+     * the subscriber requests them.
+     */
+    public Multi<GoalEventDocument> streamTimeline(String goalId, String userId, Collection<String> eventTypes,
+                                                   Instant from, Instant to) {
+        return mongoCollection().find(
+            Filters.and(GoalEventRepository.timelineFilters(goalId, userId, eventTypes, from, to)),
+            new FindOptions().sort(Sorts.ascending("occurredAt", "_id")).batchSize(200));
+    }
+}
@@ -0,0 +1,23 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.GoalEventSegment;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import java.util.Collection;
+
+/** Non-blocking reads of {@code goal_event_segments} for streaming endpoints. */
+@ApplicationScoped
+public class ReactiveGoalEventSegmentRepository implements ReactivePanacheMongoRepository<GoalEventSegment> {
+
+    /** Same selection as {@link GoalEventSegmentRepository#findTimelineSegments}, one segment at a time. */
+    public Multi<GoalEventSegment> streamTimelineSegments(String goalId, String userId,
+                                                          Collection<String> eventTypes,
+                                                          Instant from, Instant to) {
+        return mongoCollection().find(
+            GoalEventSegmentRepository.timelineSegmentFilter(goalId, userId, eventTypes, from, to),
+            new FindOptions().sort(GoalEventSegmentRepository.TIMELINE_SEGMENT_ORDER).batchSize(10));
+    }
+}
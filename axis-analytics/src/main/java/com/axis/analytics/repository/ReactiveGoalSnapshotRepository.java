@@ -0,0 +1,19 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.mongodb.client.model.Filters;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/** Non-blocking reads of {@code goal_snapshots} for streaming endpoints. */
+@ApplicationScoped
+public class ReactiveGoalSnapshotRepository implements ReactivePanacheMongoRepository<GoalSnapshot> {
+
+    /** Streaming counterpart of {@link GoalSnapshotRepository#findSummariesByUserId}. */
+    public Multi<GoalSnapshot> streamSummariesByUserId(String userId) {
+        return mongoCollection().find(Filters.eq("userId", userId),
+            new FindOptions().projection(GoalSnapshotRepository.SUMMARY_FIELDS).batchSize(200));
+    }
+}
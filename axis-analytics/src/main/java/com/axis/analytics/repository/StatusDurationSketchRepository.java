@@ -0,0 +1,21 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.StatusDurationSketch;
+import com.mongodb.client.model.Filters;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+
+@ApplicationScoped
+public class StatusDurationSketchRepository implements PanacheMongoRepository<StatusDurationSketch> {
+
+    /** One sketch per status; {@code lifeAspectId} null selects the sketches across all aspects. */
+    public List<StatusDurationSketch> findByScope(String userId, String entityType, String lifeAspectId) {
+        return mongoCollection().find(Filters.and(
+                Filters.eq("userId", userId),
+                Filters.eq("entityType", entityType),
+                Filters.eq("lifeAspectId", lifeAspectId)))
+            .into(new ArrayList<>());
+    }
+}
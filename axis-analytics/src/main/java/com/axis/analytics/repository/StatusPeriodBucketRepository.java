@@ -0,0 +1,20 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+
+@ApplicationScoped
+public class StatusPeriodBucketRepository implements PanacheMongoRepository<StatusPeriodBucket> {
+
+    /** Period buckets of the goal and all its sub-goals, oldest first. */
+    public List<StatusPeriodBucket> findByGoalId(String goalId) {
+        return mongoCollection().find(Filters.eq("goalId", goalId))
+            .sort(Sorts.ascending("subGoalId", "_id"))
+            .into(new ArrayList<>());
+    }
+}
@@ -0,0 +1,28 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@ApplicationScoped
+public class SubGoalBucketRepository implements PanacheMongoRepository<SubGoalBucket> {
+
+    public List<SubGoalBucket> findByGoalId(String goalId) {
+        return mongoCollection().find(Filters.eq("goalId", goalId))
+            .sort(Sorts.ascending("_id"))
+            .into(new ArrayList<>());
+    }
+
+    /** Loads only the id and open period start of the sub-goals of the given goals. */
+    public List<SubGoalBucket> findStatusSince(Collection<String> goalIds) {
+        return mongoCollection().find(Filters.in("goalId", goalIds))
+            .projection(Projections.include("goalId", "subGoals.subGoalId", "subGoals.statusSince"))
+            .into(new ArrayList<>());
+    }
+}
@@ -0,0 +1,42 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.UserActivity;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import java.util.Optional;
+
+@ApplicationScoped
+public class UserActivityRepository implements PanacheMongoRepository<UserActivity> {
+
+    public Optional<UserActivity> findByUserId(String userId) {
+        return find("userId", userId).firstResultOptional();
+    }
+
+    /**
+     * Stores the activity if it is still at {@code expectedVersion} in the store, or does not
+     * exist yet when it has no id. Returns false when another writer got there first.
+     */
+    public boolean saveIfUnchanged(UserActivity activity, long expectedVersion) {
+        activity.setVersion(expectedVersion + 1);
+        activity.setUpdatedAt(Instant.now());
+        if (activity.getId() == null) {
+            try {
+                persist(activity);
+                return true;
+            } catch (MongoWriteException e) {
+                if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+        return mongoCollection().replaceOne(Filters.and(
+                Filters.eq("_id", activity.getId()),
+                Filters.eq("version", expectedVersion)), activity)
+            .getMatchedCount() == 1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.axis.analytics.repository;
+
+import com.axis.analytics.model.document.UserRollup;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Instant;
+import java.util.List;
+
+@ApplicationScoped
+public class UserRollupRepository implements PanacheMongoRepository<UserRollup> {
+
+    public List<UserRollup> findRange(String userId, String granularity, Instant from, Instant to) {
+        return find("userId = ?1 and granularity = ?2 and bucketStart >= ?3 and bucketStart < ?4",
+            Sort.by("bucketStart", Sort.Direction.Ascending), userId, granularity, from, to).list();
+    }
+}
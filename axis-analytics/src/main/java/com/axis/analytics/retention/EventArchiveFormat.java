@@ -0,0 +1,59 @@
+package com.axis.analytics.retention;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed NDJSON of stored goal events, one event per line including its id. Used both
+ * for compacted segments and for archive files, so an archive can be read without Mongo.
+ */
+@ApplicationScoped
+public class EventArchiveFormat {
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    public byte[] compress(List<GoalEventDocument> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(events, bytes);
+        return bytes.toByteArray();
+    }
+
+    public List<GoalEventDocument> decompress(byte[] data) {
+        try (MappingIterator<GoalEventDocument> events = read(new ByteArrayInputStream(data))) {
+            return events.readAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read compacted goal events", e);
+        }
+    }
+
+    public void write(Iterable<GoalEventDocument> events, OutputStream out) {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out);
+             SequenceWriter writer = objectMapper.writerFor(GoalEventDocument.class)
+                 .withRootValueSeparator("\n")
+                 .writeValues(gzip)) {
+            writer.writeAll(events);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write goal events", e);
+        }
+    }
+
+    /** Streams the events of a gzip NDJSON input; closing the iterator closes the input. */
+    public MappingIterator<GoalEventDocument> read(InputStream in) throws IOException {
+        return objectMapper.readerFor(GoalEventDocument.class).readValues(new GZIPInputStream(in));
+    }
+}
@@ -0,0 +1,258 @@
+package com.axis.analytics.retention;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalEventSegment;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalEventSegmentRepository;
+import com.axis.analytics.repository.ReactiveGoalEventSegmentRepository;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.mongodb.client.MongoCursor;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Reads the complete event history across all retention tiers, one goal at a time. Every tier
+ * is read in goal order (archive files are written that way), so the tiers are merged like
+ * sorted runs and memory stays bounded by the events of a single goal.
+ */
+@Slf4j
+@ApplicationScoped
+public class EventHistoryReader {
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    GoalEventSegmentRepository segmentRepository;
+
+    @Inject
+    ReactiveGoalEventSegmentRepository reactiveSegmentRepository;
+
+    @Inject
+    EventArchiveFormat archiveFormat;
+
+    @ConfigProperty(name = "axis.analytics.retention.archive-dir", defaultValue = "/var/axis/archive")
+    String archiveDir;
+
+    /** Timeline order: by occurrence, then by id. */
+    public static final Comparator<GoalEventDocument> TIMELINE_ORDER = Comparator
+        .comparing(GoalEventDocument::getOccurredAt)
+        .thenComparing(GoalEventDocument::getId);
+
+    /**
+     * The compacted counterpart of {@link GoalEventRepository#findTimelinePage}: the first
+     * {@code limit} matching events stored in segments. Segments are decompressed in order of
+     * their first event until no later segment can contribute to the page.
+     */
+    public List<GoalEventDocument> findCompactedTimelinePage(String goalId, String userId, Collection<String> eventTypes,
+                                                             Instant from, Instant to,
+                                                             Instant afterOccurredAt, ObjectId afterId, int limit) {
+        Instant lowerBound = afterOccurredAt != null && (from == null || afterOccurredAt.isAfter(from))
+            ? afterOccurredAt : from;
+        GoalEventDocument after = afterOccurredAt == null ? null
+            : GoalEventDocument.builder().occurredAt(afterOccurredAt).id(afterId).build();
+        List<GoalEventDocument> page = new ArrayList<>();
+        try (MongoCursor<GoalEventSegment> segments = segmentRepository
+                .findTimelineSegments(goalId, userId, eventTypes, lowerBound, to).cursor()) {
+            while (segments.hasNext()) {
+                GoalEventSegment segment = segments.next();
+                if (page.size() >= limit && segment.getFirstOccurredAt().isAfter(page.get(limit - 1).getOccurredAt())) {
+                    break;
+                }
+                for (GoalEventDocument event : archiveFormat.decompress(segment.getEvents())) {
+                    if (matches(event, eventTypes, from, to)
+                            && (after == null || TIMELINE_ORDER.compare(event, after) > 0)) {
+                        page.add(event);
+                    }
+                }
+                page.sort(TIMELINE_ORDER);
+            }
+        }
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
+    /**
+     * Streaming counterpart of {@link #findCompactedTimelinePage}: every matching compacted event,
+     * decompressed one segment at a time as the subscriber asks for more. Events are in order
+     * within a segment; segments of late arrivals may overlap earlier ones.
+     */
+    public Multi<GoalEventDocument> streamCompactedTimeline(String goalId, String userId,
+                                                            Collection<String> eventTypes,
+                                                            Instant from, Instant to) {
+        return reactiveSegmentRepository.streamTimelineSegments(goalId, userId, eventTypes, from, to)
+            .onItem().transformToIterable(segment -> archiveFormat.decompress(segment.getEvents()).stream()
+                .filter(event -> matches(event, eventTypes, from, to))
+                .sorted(TIMELINE_ORDER)
+                .toList());
+    }
+
+    private static boolean matches(GoalEventDocument event, Collection<String> eventTypes, Instant from, Instant to) {
+        return (eventTypes == null || eventTypes.isEmpty() || eventTypes.contains(event.getEventType()))
+            && (from == null || !event.getOccurredAt().isBefore(from))
+            && (to == null || event.getOccurredAt().isBefore(to));
+    }
+
+    /** Events stored in Mongo, hot and compacted; archived events are not counted. */
+    public long countStoredEvents() {
+        return eventRepository.count() + segmentRepository.countEvents();
+    }
+
+    /**
+     * Opens the history of the events stored before {@code before}. Each element holds all
+     * events of one goal, each event once, in no particular order; it may be empty.
+     */
+    public GoalHistories open(ObjectId before) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        try {
+            sources.add(new Source(eventRepository.findAllInGoalOrder(before).cursor(), null));
+            sources.add(new Source(new SegmentEvents(segmentRepository.findAllInGoalOrder().cursor()), null));
+            for (Path file : archiveFiles()) {
+                MappingIterator<GoalEventDocument> events = archiveFormat.read(Files.newInputStream(file));
+                sources.add(new Source(events, events));
+            }
+        } catch (IOException | RuntimeException e) {
+            sources.forEach(Source::close);
+            throw e;
+        }
+        return new GoalHistories(sources, before);
+    }
+
+    private List<Path> archiveFiles() throws IOException {
+        Path dir = Path.of(archiveDir);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(EventRetentionService.ARCHIVE_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+
+    public static final class GoalHistories implements Iterator<List<GoalEventDocument>>, AutoCloseable {
+
+        private final List<Source> sources;
+        private final ObjectId before;
+        private final PriorityQueue<Source> pending = new PriorityQueue<>(Comparator.comparing(Source::goalId));
+
+        private GoalHistories(List<Source> sources, ObjectId before) {
+            this.sources = sources;
+            this.before = before;
+            sources.stream().filter(Source::advance).forEach(pending::add);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public List<GoalEventDocument> next() {
+            if (pending.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            String goalId = pending.peek().goalId();
+            Map<String, GoalEventDocument> events = new LinkedHashMap<>();
+            while (!pending.isEmpty() && pending.peek().goalId().equals(goalId)) {
+                Source source = pending.poll();
+                do {
+                    // Compacted and archived events keep their ids, so the bound holds across tiers
+                    if (source.head.getId().compareTo(before) < 0) {
+                        events.putIfAbsent(source.head.getEventId(), source.head);
+                    }
+                } while (source.advance() && source.goalId().equals(goalId));
+                if (source.head != null) {
+                    pending.add(source);
+                }
+            }
+            return new ArrayList<>(events.values());
+        }
+
+        @Override
+        public void close() {
+            sources.forEach(Source::close);
+        }
+    }
+
+    /** One tier or archive file, positioned on its current event. */
+    private static final class Source {
+        private final Iterator<GoalEventDocument> events;
+        private final AutoCloseable resource;
+        private GoalEventDocument head;
+
+        Source(Iterator<GoalEventDocument> events, AutoCloseable resource) {
+            this.events = events;
+            this.resource = resource != null ? resource : events instanceof AutoCloseable closeable ? closeable : null;
+        }
+
+        boolean advance() {
+            head = events.hasNext() ? events.next() : null;
+            return head != null;
+        }
+
+        String goalId() {
+            return head.getGoalId();
+        }
+
+        void close() {
+            try {
+                if (resource != null) {
+                    resource.close();
+                }
+            } catch (Exception e) {
+                log.warn("Failed to close event history source", e);
+            }
+        }
+    }
+
+    /** Flattens compacted segments into their events. */
+    private final class SegmentEvents implements Iterator<GoalEventDocument>, AutoCloseable {
+        private final MongoCursor<GoalEventSegment> segments;
+        private Iterator<GoalEventDocument> current = Collections.emptyIterator();
+
+        SegmentEvents(MongoCursor<GoalEventSegment> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && segments.hasNext()) {
+                current = archiveFormat.decompress(segments.next().getEvents()).iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public GoalEventDocument next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void close() {
+            segments.close();
+        }
+    }
+}
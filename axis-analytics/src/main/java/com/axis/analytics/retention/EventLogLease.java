@@ -0,0 +1,70 @@
+package com.axis.analytics.retention;
+
+import com.axis.analytics.repository.JobLeaseRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Cluster-wide lease on rewriting the goal event log. Retention moves events between tiers and a
+ * snapshot replay reads every tier and swaps collections, so at most one of them runs at a time
+ * across all replicas. A holder renews the lease as it makes progress; a replica that dies
+ * holding it frees it after {@code axis.analytics.lease.ttl}.
+ */
+@Slf4j
+@ApplicationScoped
+public class EventLogLease {
+
+    static final String NAME = "goal-event-log";
+
+    @Inject
+    JobLeaseRepository leaseRepository;
+
+    @ConfigProperty(name = "axis.analytics.lease.ttl", defaultValue = "2m")
+    Duration ttl;
+
+    private final String replica = System.getenv().getOrDefault("HOSTNAME", "localhost");
+
+    /** The lease for {@code job}, empty if another job or replica holds it. */
+    public Optional<Held> acquire(String job) {
+        String owner = replica + "/" + job;
+        if (!leaseRepository.acquire(NAME, owner, ttl)) {
+            return Optional.empty();
+        }
+        log.info("Acquired the event log lease for {}", owner);
+        return Optional.of(new Held(owner));
+    }
+
+    /** A lease this replica holds; closing it releases the lease. */
+    public final class Held implements AutoCloseable {
+        private final String owner;
+        private long renewedNanos = System.nanoTime();
+
+        private Held(String owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Extends the lease once a quarter of its time has passed. Fails when it expired and was
+         * taken by someone else meanwhile, so the holder stops before both rewrite the log.
+         */
+        public void renew() {
+            if (System.nanoTime() - renewedNanos < ttl.toNanos() / 4) {
+                return;
+            }
+            if (!leaseRepository.renew(NAME, owner, ttl)) {
+                throw new IllegalStateException("Lost the event log lease of " + owner);
+            }
+            renewedNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            leaseRepository.release(NAME, owner);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.axis.analytics.retention;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalEventSegment;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalEventSegmentRepository;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Moves the goal event log through three tiers. Hot events stay in {@code goal_events}; events
+ * older than {@code compact-after} are folded per goal into compressed {@link GoalEventSegment}s,
+ * which the timeline still reads; segments older than {@code archive-after} are exported as gzip
+ * NDJSON files to the archive directory and dropped from Mongo. Each run handles a bounded amount
+ * of work at a capped event rate, so the jobs never compete with ingestion.
+ * <p>
+ * Both steps write their output before deleting the input, so a crash leaves duplicates rather
+ * than gaps: a segment is keyed by its first event and simply re-used, and replay drops an
+ * event that appears in two tiers or archive files. Archive files are synced to disk before
+ * their segments are deleted; the archive directory must be durable storage shared by the
+ * replicas, since any of them may archive and replay.
+ * <p>
+ * A run holds the {@link EventLogLease}, so only one replica moves events at a time and never
+ * while a snapshot replay reads them.
+ */
+@Slf4j
+@ApplicationScoped
+public class EventRetentionService {
+
+    static final String ARCHIVE_SUFFIX = ".ndjson.gz";
+
+    private static final DateTimeFormatter ARCHIVE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'")
+        .withZone(ZoneOffset.UTC);
+
+    @Inject
+    GoalEventRepository eventRepository;
+
+    @Inject
+    GoalEventSegmentRepository segmentRepository;
+
+    @Inject
+    EventArchiveFormat archiveFormat;
+
+    @Inject
+    EventLogLease lease;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "axis.analytics.retention.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "axis.analytics.retention.compact-after", defaultValue = "90d")
+    Duration compactAfter;
+
+    @ConfigProperty(name = "axis.analytics.retention.archive-after", defaultValue = "365d")
+    Duration archiveAfter;
+
+    @ConfigProperty(name = "axis.analytics.retention.archive-dir", defaultValue = "/var/axis/archive")
+    String archiveDir;
+
+    @ConfigProperty(name = "axis.analytics.retention.segment-events", defaultValue = "500")
+    int segmentEvents;
+
+    @ConfigProperty(name = "axis.analytics.retention.max-events-per-run", defaultValue = "50000")
+    int maxEventsPerRun;
+
+    @ConfigProperty(name = "axis.analytics.retention.max-events-per-second", defaultValue = "2000")
+    int maxEventsPerSecond;
+
+    private Counter compactedEventsCounter;
+    private Counter archivedEventsCounter;
+
+    @PostConstruct
+    void init() {
+        compactedEventsCounter = meterRegistry.counter("axis.analytics.retention.compacted.events");
+        archivedEventsCounter = meterRegistry.counter("axis.analytics.retention.archived.events");
+    }
+
+    @Scheduled(every = "${axis.analytics.retention.interval:10m}", delayed = "1m",
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void run() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        if (!archiveAfter.minus(compactAfter).isPositive()) {
+            log.warn("Event retention skipped: archive-after must be longer than compact-after");
+            return;
+        }
+        // Moving events between tiers would hide them from a replay's cursors
+        Optional<EventLogLease.Held> held = lease.acquire("retention");
+        if (held.isEmpty()) {
+            log.info("Event retention postponed: a replay or another retention run holds the event log lease");
+            return;
+        }
+        try (EventLogLease.Held run = held.get()) {
+            compact(Instant.now().minus(compactAfter), run);
+            archive(Instant.now().minus(archiveAfter), run);
+        }
+    }
+
+    /** Folds hot events older than {@code cutoff} into segments of up to {@code segmentEvents}. */
+    void compact(Instant cutoff, EventLogLease.Held run) throws InterruptedException {
+        Throttle throttle = new Throttle(maxEventsPerSecond);
+        int compacted = 0;
+        for (GoalEventDocument goal : eventRepository.findGoalsWithEventsBefore(cutoff, maxEventsPerRun)) {
+            List<GoalEventDocument> events;
+            while (compacted < maxEventsPerRun && !(events = eventRepository.findOldestBefore(
+                    goal.getGoalId(), goal.getUserId(), cutoff, segmentEvents)).isEmpty()) {
+                eventRepository.deleteByIds(storeSegment(goal, events));
+                compacted += events.size();
+                compactedEventsCounter.increment(events.size());
+                throttle.acquire(events.size());
+                run.renew();
+            }
+        }
+        if (compacted > 0) {
+            log.info("Compacted {} events older than {}", compacted, cutoff);
+        }
+    }
+
+    /**
+     * Stores the events as a segment and returns the ids now safe to delete from the hot tier.
+     * If the segment already exists, an earlier run stored it but did not get to delete its events.
+     */
+    private List<ObjectId> storeSegment(GoalEventDocument goal, List<GoalEventDocument> events) {
+        Set<String> eventTypes = new LinkedHashSet<>();
+        events.forEach(event -> eventTypes.add(event.getEventType()));
+        GoalEventSegment segment = GoalEventSegment.builder()
+            .id(events.getFirst().getId())
+            .goalId(goal.getGoalId())
+            .userId(goal.getUserId())
+            .firstOccurredAt(events.getFirst().getOccurredAt())
+            .lastOccurredAt(events.getLast().getOccurredAt())
+            .count(events.size())
+            .eventTypes(new ArrayList<>(eventTypes))
+            .events(archiveFormat.compress(events))
+            .build();
+        try {
+            segmentRepository.persist(segment);
+            return events.stream().map(GoalEventDocument::getId).toList();
+        } catch (MongoWriteException e) {
+            if (ErrorCategory.fromErrorCode(e.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            GoalEventSegment existing = segmentRepository.findById(segment.getId());
+            return archiveFormat.decompress(existing.getEvents()).stream().map(GoalEventDocument::getId).toList();
+        }
+    }
+
+    /** Exports segments whose newest event is older than {@code cutoff} to one archive file. */
+    void archive(Instant cutoff, EventLogLease.Held run) throws IOException, InterruptedException {
+        Throttle throttle = new Throttle(maxEventsPerSecond);
+        List<GoalEventSegment> segments = segmentRepository.findEndingBefore(cutoff,
+            Math.max(1, maxEventsPerRun / Math.max(1, segmentEvents)));
+        if (segments.isEmpty()) {
+            return;
+        }
+        List<GoalEventDocument> events = new ArrayList<>();
+        for (GoalEventSegment segment : segments) {
+            events.addAll(archiveFormat.decompress(segment.getEvents()));
+            throttle.acquire(segment.getCount());
+            run.renew();
+        }
+
+        Path dir = Files.createDirectories(Path.of(archiveDir));
+        Path file = dir.resolve("goal-events-" + ARCHIVE_NAME.format(Instant.now()) + ARCHIVE_SUFFIX);
+        Path partial = dir.resolve(file.getFileName() + ".part");
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            archiveFormat.write(events, out);
+        }
+        sync(partial, StandardOpenOption.WRITE);
+        // Only complete files carry the archive suffix, readers never see a half-written one
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        // The rename is only durable once the directory is synced; the segments go after that
+        sync(dir, StandardOpenOption.READ);
+        run.renew();
+        segmentRepository.deleteByIds(segments.stream().map(GoalEventSegment::getId).toList());
+
+        archivedEventsCounter.increment(events.size());
+        log.info("Archived {} events of {} segments to {}", events.size(), segments.size(), file);
+    }
+
+    /** Flushes a file, or the entries of a directory, to the storage device. */
+    private static void sync(Path path, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+        }
+    }
+
+    /** Paces a job to at most {@code eventsPerSecond}; zero or less disables the cap. */
+    private static final class Throttle {
+        private final int eventsPerSecond;
+        private final long startedNanos = System.nanoTime();
+        private long events;
+
+        Throttle(int eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+        }
+
+        void acquire(int count) throws InterruptedException {
+            events += count;
+            if (eventsPerSecond <= 0) {
+                return;
+            }
+            long waitNanos = startedNanos + events * 1_000_000_000L / eventsPerSecond - System.nanoTime();
+            if (waitNanos > 0) {
+                Thread.sleep(Duration.ofNanos(waitNanos));
+            }
+        }
+    }
+}
@@ -2,13 +2,34 @@ package com.axis.analytics.service;
 
 import com.axis.analytics.model.document.GoalEventDocument;
 import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.dto.ActivityCalendarResponse;
+import com.axis.analytics.model.dto.GoalSummaryResponse;
+import com.axis.analytics.model.dto.GoalTimelinePageResponse;
+import com.axis.analytics.model.dto.RollupBucketResponse;
+import com.axis.analytics.model.dto.StatusDurationResponse;
+import com.axis.analytics.model.enums.RollupGranularity;
 import com.axis.common.event.GoalDomainEvent;
+import io.smallrye.mutiny.Multi;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 public interface AnalyticsService {
     void processEvent(GoalDomainEvent event);
+    void processBatch(List<GoalDomainEvent> events);
+    Map<String, Long> findLastSequences(Collection<String> goalIds);
     GoalSnapshot getGoalSnapshot(String goalId, UUID userId);
-    List<GoalEventDocument> getGoalTimeline(String goalId, UUID userId);
-    List<GoalSnapshot> getUserSummary(UUID userId);
+    GoalTimelinePageResponse getGoalTimeline(String goalId, UUID userId, Set<String> eventTypes,
+                                             Instant from, Instant to, String cursor, int size);
+    Multi<GoalEventDocument> streamGoalTimeline(String goalId, UUID userId, Set<String> eventTypes,
+                                                Instant from, Instant to);
+    List<GoalSummaryResponse> getUserSummary(UUID userId);
+    Multi<GoalSummaryResponse> streamUserSummary(UUID userId);
+    List<StatusDurationResponse> getStatusDurations(UUID userId, String entityType, String lifeAspectId);
+    List<RollupBucketResponse> getUserRollups(UUID userId, RollupGranularity granularity, Instant from, Instant to);
+    ActivityCalendarResponse getActivityCalendar(UUID userId, LocalDate from, LocalDate to);
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.UserActivity;
+import com.axis.common.event.GoalDomainEvent;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the per-day completion counters and streaks of a {@link UserActivity}. Days are UTC,
+ * like the rollup buckets. Counters only grow, so a day that became active stays active and a
+ * streak can only grow or merge with its neighbours: the streaks are advanced from the days that
+ * became active instead of being recomputed from the whole calendar.
+ * Like the rollups, the calendar keeps the ids of the events it recorded last, and recording
+ * skips those, so a batch retried after a partial failure does not count a completion twice.
+ */
+public final class ActivityCalendar {
+
+    private static final String COMPLETED = "COMPLETED";
+    private static final int DAYS_PER_YEAR = 366;
+    private static final int MAX_DAY_COUNT = 0xFF;
+
+    private ActivityCalendar() {
+    }
+
+    /** Completions per user among the events; other events are no activity. */
+    public static Map<String, List<GoalDomainEvent>> completionsByUser(Iterable<GoalDomainEvent> events) {
+        Map<String, List<GoalDomainEvent>> completions = new HashMap<>();
+        for (GoalDomainEvent event : events) {
+            if (!isCompletion(event) || event.userId() == null || event.occurredAt() == null) {
+                continue;
+            }
+            completions.computeIfAbsent(event.userId().toString(), userId -> new ArrayList<>()).add(event);
+        }
+        return completions;
+    }
+
+    /** Completions per UTC day among those the calendar has not recorded yet. */
+    private static Map<LocalDate, Integer> completionsByDay(UserActivity activity, List<GoalDomainEvent> completions) {
+        Map<LocalDate, Integer> days = new TreeMap<>();
+        for (GoalDomainEvent completion : completions) {
+            if (!activity.getAppliedEventIds().contains(completion.eventId().toString())) {
+                days.merge(LocalDate.ofInstant(completion.occurredAt(), ZoneOffset.UTC), 1, Integer::sum);
+            }
+        }
+        return days;
+    }
+
+    private static boolean isCompletion(GoalDomainEvent event) {
+        return switch (event.eventType()) {
+            case GOAL_STATUS_CHANGED, SUBGOAL_STATUS_CHANGED -> COMPLETED.equals(event.newStatus());
+            default -> false;
+        };
+    }
+
+    /**
+     * Adds the completions the calendar has not recorded yet and advances the streaks. Returns
+     * false when it had recorded all of them, leaving the calendar unchanged.
+     */
+    public static boolean record(UserActivity activity, List<GoalDomainEvent> completions) {
+        Map<LocalDate, Integer> days = completionsByDay(activity, completions);
+        if (days.isEmpty()) {
+            return false;
+        }
+        boolean lastDayMoved = false;
+        for (Map.Entry<LocalDate, Integer> entry : days.entrySet()) {
+            LocalDate day = entry.getKey();
+            byte[] year = activity.getYears().computeIfAbsent(String.valueOf(day.getYear()), key -> new byte[DAYS_PER_YEAR]);
+            int index = day.getDayOfYear() - 1;
+            int before = Byte.toUnsignedInt(year[index]);
+            year[index] = (byte) Math.min(MAX_DAY_COUNT, before + entry.getValue());
+            if (before > 0) {
+                continue;
+            }
+            // The day joins the runs ending the day before and starting the day after
+            int streak = activeDaysBefore(activity, day) + 1 + activeDaysAfter(activity, day);
+            activity.setLongestStreak(Math.max(activity.getLongestStreak(), streak));
+            if (activity.getLastActiveDay() == null || day.isAfter(activity.getLastActiveDay())) {
+                activity.setLastActiveDay(day);
+                lastDayMoved = true;
+            } else if (!day.isBefore(activity.getLastActiveDay().minusDays(activity.getCurrentStreak()))) {
+                // Filled the gap right before the current streak
+                lastDayMoved = true;
+            }
+        }
+        if (lastDayMoved) {
+            activity.setCurrentStreak(activeDaysBefore(activity, activity.getLastActiveDay()) + 1);
+        }
+        List<String> applied = activity.getAppliedEventIds();
+        completions.forEach(completion -> {
+            if (!applied.contains(completion.eventId().toString())) {
+                applied.add(completion.eventId().toString());
+            }
+        });
+        if (applied.size() > RollupUpdates.APPLIED_EVENTS_WINDOW) {
+            applied.subList(0, applied.size() - RollupUpdates.APPLIED_EVENTS_WINDOW).clear();
+        }
+        return true;
+    }
+
+    /** Completions on the day, 255 meaning 255 or more. */
+    public static int count(UserActivity activity, LocalDate day) {
+        byte[] year = activity.getYears().get(String.valueOf(day.getYear()));
+        return year == null ? 0 : Byte.toUnsignedInt(year[day.getDayOfYear() - 1]);
+    }
+
+    /** The current streak as of {@code today}: broken once a whole day passed without completions. */
+    public static int currentStreak(UserActivity activity, LocalDate today) {
+        LocalDate last = activity.getLastActiveDay();
+        return last != null && !last.isBefore(today.minusDays(1)) ? activity.getCurrentStreak() : 0;
+    }
+
+    private static int activeDaysBefore(UserActivity activity, LocalDate day) {
+        int days = 0;
+        for (LocalDate d = day.minusDays(1); count(activity, d) > 0; d = d.minusDays(1)) {
+            days++;
+        }
+        return days;
+    }
+
+    private static int activeDaysAfter(UserActivity activity, LocalDate day) {
+        int days = 0;
+        for (LocalDate d = day.plusDays(1); count(activity, d) > 0; d = d.plusDays(1)) {
+            days++;
+        }
+        return days;
+    }
+}
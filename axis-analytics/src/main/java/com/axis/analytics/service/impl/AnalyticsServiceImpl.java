@@ -3,34 +3,337 @@ package com.axis.analytics.service.impl;
 import com.axis.analytics.model.document.GoalEventDocument;
 import com.axis.analytics.model.document.GoalSnapshot;
 import com.axis.analytics.model.document.StatusPeriod;
+import com.axis.analytics.model.document.StatusPeriodBucket;
 import com.axis.analytics.model.document.SubGoalSummary;
+import com.axis.analytics.model.document.UserActivity;
+import com.axis.analytics.model.document.UserRollup;
+import com.axis.analytics.model.dto.ActivityCalendarResponse;
+import com.axis.analytics.model.dto.GoalSummaryResponse;
+import com.axis.analytics.model.dto.GoalTimelinePageResponse;
+import com.axis.analytics.model.dto.RollupBucketResponse;
+import com.axis.analytics.model.dto.StatusDurationResponse;
+import com.axis.analytics.model.enums.RollupGranularity;
+import com.axis.analytics.projection.SnapshotProjection;
 import com.axis.analytics.repository.GoalEventRepository;
 import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.ReactiveGoalEventRepository;
+import com.axis.analytics.repository.ReactiveGoalSnapshotRepository;
+import com.axis.analytics.repository.StatusDurationSketchRepository;
+import com.axis.analytics.repository.StatusPeriodBucketRepository;
+import com.axis.analytics.repository.SubGoalBucketRepository;
+import com.axis.analytics.repository.UserActivityRepository;
+import com.axis.analytics.repository.UserRollupRepository;
+import com.axis.analytics.retention.EventHistoryReader;
 import com.axis.analytics.service.AnalyticsService;
+import com.axis.analytics.sketch.LogLinearHistogram;
 import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.axis.common.exception.BusinessException;
 import com.axis.common.exception.ResourceNotFoundException;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CacheResult;
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 @Slf4j
 @ApplicationScoped
 public class AnalyticsServiceImpl implements AnalyticsService {
 
+    /** Per-user dashboard summaries; dropped whenever an event changes one of the user's goals. */
+    public static final String SUMMARY_CACHE = "user-goal-summaries";
+
+    private static final int MAX_TIMELINE_PAGE_SIZE = 200;
+    private static final int DEFAULT_ROLLUP_BUCKETS = 12;
+    private static final int MAX_ROLLUP_BUCKETS = 400;
+    private static final int DEFAULT_CALENDAR_DAYS = 365;
+    private static final int MAX_CALENDAR_DAYS = 731;
+    private static final int MAX_ACTIVITY_ATTEMPTS = 5;
+
     @Inject
     GoalEventRepository eventRepository;
 
+    @Inject
+    EventHistoryReader historyReader;
+
     @Inject
     GoalSnapshotRepository snapshotRepository;
 
+    @Inject
+    SubGoalBucketRepository subGoalBucketRepository;
+
+    @Inject
+    StatusPeriodBucketRepository periodBucketRepository;
+
+    @Inject
+    UserRollupRepository rollupRepository;
+
+    @Inject
+    StatusDurationSketchRepository sketchRepository;
+
+    @Inject
+    UserActivityRepository activityRepository;
+
+    @Inject
+    SnapshotProjection projection;
+
+    @Inject
+    ReactiveGoalEventRepository reactiveEventRepository;
+
+    @Inject
+    ReactiveGoalSnapshotRepository reactiveSnapshotRepository;
+
+    @Inject
+    @CacheName(SUMMARY_CACHE)
+    Cache summaryCache;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Map<GoalEventType, Counter> processedCounters = new EnumMap<>(GoalEventType.class);
+    private Timer batchTimer;
+
+    @PostConstruct
+    void initMetrics() {
+        for (GoalEventType type : GoalEventType.values()) {
+            processedCounters.put(type, Counter.builder("axis.analytics.events.processed")
+                .description("Events applied to the analytics store")
+                .tag("type", type.name())
+                .register(meterRegistry));
+        }
+        // Events of a batch are applied together by bulk writes, so time is only known per batch
+        batchTimer = Timer.builder("axis.analytics.batches.processing")
+            .description("Time spent applying one batch of events")
+            .register(meterRegistry);
+    }
+
     @Override
     public void processEvent(GoalDomainEvent event) {
-        // Save raw event
-        GoalEventDocument doc = GoalEventDocument.builder()
+        processBatch(List.of(event));
+    }
+
+    /**
+     * Applies a batch: one insertMany for the raw events, ordered bulkWrites of targeted
+     * snapshot and bucket updates in event order, and unordered bulkWrites of rollup and duration
+     * sketch increments. Raw events are stored marked unprocessed and unmarked once all their
+     * increments landed; increments are applied to events stored for the first time and to
+     * redeliveries of events still marked. Every derived write is guarded by the ids of the events
+     * its document applied, so increments that landed before a failure are not applied again.
+     * With the write-behind projection, snapshots are updated in memory instead and written back later.
+     */
+    @Override
+    public void processBatch(List<GoalDomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!projection.enabled()) {
+            applyBatch(events);
+            return;
+        }
+        // Taken before the events get their ids, so no checkpoint passes them before they are projected
+        ObjectId ticket = projection.begin();
+        try {
+            applyBatch(events);
+        } finally {
+            projection.end(ticket);
+        }
+    }
+
+    private void applyBatch(List<GoalDomainEvent> events) {
+        long started = System.nanoTime();
+        // Durations need the start of the periods being closed, so read them before the snapshots
+        // change; they are stored with the events so a later attempt still has them
+        Set<String> statusChangedGoals = StatusDurations.goalsWithStatusChanges(events);
+        Map<String, Long> closedPeriodMs = new HashMap<>();
+        if (!statusChangedGoals.isEmpty()) {
+            StatusDurations.closedPeriods(events, StatusDurations.openPeriodStarts(
+                    currentSnapshots(statusChangedGoals, snapshotRepository::findStatusSince),
+                    subGoalBucketRepository.findStatusSince(statusChangedGoals)))
+                .forEach(period -> closedPeriodMs.put(period.closedBy().eventId().toString(), period.durationMs()));
+        }
+        List<GoalEventDocument> documents = events.stream()
+            .map(event -> toDocument(event, closedPeriodMs.get(event.eventId().toString())))
+            .toList();
+        Set<Integer> duplicates = eventRepository.insertIgnoringDuplicates(documents);
+
+        SnapshotWrites writes = new SnapshotWrites(!projection.enabled());
+        events.forEach(writes::add);
+        // Events whose increments are still due: the new ones, and stored ones an earlier attempt did not finish
+        List<GoalEventDocument> unprocessed = new ArrayList<>();
+        List<String> duplicateIds = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (duplicates.contains(i)) {
+                duplicateIds.add(events.get(i).eventId().toString());
+            } else {
+                unprocessed.add(documents.get(i));
+            }
+        }
+        if (!duplicateIds.isEmpty()) {
+            List<GoalEventDocument> unfinished = eventRepository.findUnprocessed(duplicateIds);
+            log.info("Skipped {} already stored events, {} of them still need their increments",
+                duplicateIds.size(), unfinished.size());
+            unprocessed.addAll(unfinished);
+        }
+        List<GoalDomainEvent> pendingEvents = unprocessed.stream().map(GoalEventDocument::toDomainEvent).toList();
+        List<WriteModel<UserRollup>> rollupCreates = new ArrayList<>();
+        List<WriteModel<UserRollup>> rollupWrites = new ArrayList<>();
+        pendingEvents.forEach(event -> {
+            rollupCreates.addAll(RollupUpdates.bucketsOf(event));
+            rollupWrites.addAll(RollupUpdates.forEvent(event));
+        });
+        List<StatusDurations.ClosedPeriod> closedPeriods = IntStream.range(0, unprocessed.size())
+            .filter(i -> unprocessed.get(i).getClosedPeriodMs() != null)
+            .mapToObj(i -> new StatusDurations.ClosedPeriod(pendingEvents.get(i),
+                pendingEvents.get(i).previousStatus(), unprocessed.get(i).getClosedPeriodMs()))
+            .toList();
+
+        writes.applyTo(snapshotRepository.mongoCollection(), subGoalBucketRepository.mongoCollection(),
+            periodBucketRepository.mongoCollection());
+        if (projection.enabled()) {
+            projection.apply(events, IntStream.range(0, events.size())
+                .mapToObj(i -> duplicates.contains(i) ? null : documents.get(i).getId())
+                .toList());
+        }
+        invalidateSummaries(events);
+        applyIncrements(rollupRepository.mongoCollection(), rollupCreates, rollupWrites);
+        applyIncrements(sketchRepository.mongoCollection(), StatusDurations.sketchCreates(closedPeriods),
+            StatusDurations.sketchUpdates(closedPeriods));
+        ActivityCalendar.completionsByUser(pendingEvents).forEach(this::recordActivity);
+        if (!unprocessed.isEmpty()) {
+            eventRepository.markProcessed(unprocessed.stream().map(GoalEventDocument::getId).toList());
+        }
+        recordMetrics(events, System.nanoTime() - started);
+        log.debug("Processed batch of {} events", events.size());
+    }
+
+    /**
+     * Creates the documents the increments target, then applies the increments. Two lanes may
+     * create the same document at once; the loser's duplicate key error is ignored, since the
+     * document it was about to create exists.
+     */
+    private static <T> void applyIncrements(MongoCollection<T> collection, List<WriteModel<T>> creates,
+                                            List<WriteModel<T>> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        try {
+            collection.bulkWrite(creates, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            boolean onlyDuplicates = e.getWriteConcernError() == null && e.getWriteErrors().stream()
+                .allMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+        }
+        collection.bulkWrite(increments, new BulkWriteOptions().ordered(false));
+    }
+
+    private void recordMetrics(List<GoalDomainEvent> events, long elapsedNanos) {
+        batchTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        events.forEach(event -> processedCounters.get(event.eventType()).increment());
+    }
+
+    /**
+     * Read, update and replace the user's calendar if no other lane wrote it meanwhile. Each
+     * conflict means another writer succeeded; after {@link #MAX_ACTIVITY_ATTEMPTS} of them the
+     * batch fails, so its events stay unprocessed and are retried through the lane instead of
+     * spinning here. Calendars of other users already written by then skip the completions
+     * they recorded when the retry comes.
+     */
+    private void recordActivity(String userId, List<GoalDomainEvent> completions) {
+        for (int attempt = 1; attempt <= MAX_ACTIVITY_ATTEMPTS; attempt++) {
+            UserActivity activity = activityRepository.findByUserId(userId)
+                .orElseGet(() -> UserActivity.builder().userId(userId).build());
+            long version = activity.getVersion();
+            if (!ActivityCalendar.record(activity, completions)
+                    || activityRepository.saveIfUnchanged(activity, version)) {
+                return;
+            }
+            log.debug("Activity of user {} changed concurrently, retrying", userId);
+        }
+        throw new IllegalStateException("Activity of user " + userId + " kept changing concurrently; gave up after "
+            + MAX_ACTIVITY_ATTEMPTS + " attempts");
+    }
+
+    /** Dropped after the writes, so a summary loaded meanwhile cannot outlive the change. */
+    private void invalidateSummaries(List<GoalDomainEvent> events) {
+        events.stream()
+            .filter(event -> changesSummary(event.eventType()))
+            .map(GoalDomainEvent::userId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .forEach(userId -> summaryCache.invalidate(userId).await().indefinitely());
+    }
+
+    private static boolean changesSummary(GoalEventType type) {
+        return switch (type) {
+            case GOAL_CREATED, GOAL_UPDATED, GOAL_STATUS_CHANGED, GOAL_DELETED,
+                 SUBGOAL_CREATED, SUBGOAL_STATUS_CHANGED, SUBGOAL_DELETED -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    public Map<String, Long> findLastSequences(Collection<String> goalIds) {
+        Map<String, Long> sequences = new HashMap<>();
+        for (GoalSnapshot snapshot : currentSnapshots(goalIds, snapshotRepository::findByGoalIds)) {
+            if (snapshot.getLastSequence() != null) {
+                sequences.put(snapshot.getGoalId(), snapshot.getLastSequence());
+            }
+        }
+        return sequences;
+    }
+
+    /** The snapshots held by the write-behind projection, and the others as {@code loader} reads them. */
+    private List<GoalSnapshot> currentSnapshots(Collection<String> goalIds,
+                                                Function<Collection<String>, List<GoalSnapshot>> loader) {
+        if (!projection.enabled()) {
+            return loader.apply(goalIds);
+        }
+        Map<String, GoalSnapshot> held = projection.held(goalIds);
+        List<GoalSnapshot> snapshots = new ArrayList<>(held.values().stream().filter(Objects::nonNull).toList());
+        List<String> missing = goalIds.stream().filter(goalId -> !held.containsKey(goalId)).toList();
+        if (!missing.isEmpty()) {
+            snapshots.addAll(loader.apply(missing));
+        }
+        return snapshots;
+    }
+
+    private GoalEventDocument toDocument(GoalDomainEvent event, Long closedPeriodMs) {
+        return GoalEventDocument.builder()
+            .id(new ObjectId())
             .eventId(event.eventId().toString())
             .eventType(event.eventType().name())
             .entityType(event.entityType())
@@ -44,169 +347,183 @@ public class AnalyticsServiceImpl implements AnalyticsService {
             .lifeAspectId(event.lifeAspectId())
             .changes(event.changes())
             .occurredAt(event.occurredAt())
+            .sequence(event.sequence())
+            .processed(false)
+            .closedPeriodMs(closedPeriodMs)
             .build();
-        eventRepository.persist(doc);
-
-        // Update snapshot
-        updateSnapshot(event);
-        log.debug("Processed event {} for goal {}", event.eventType(), event.goalId());
-    }
-
-    private void updateSnapshot(GoalDomainEvent event) {
-        String goalId = event.goalId().toString();
-
-        switch (event.eventType()) {
-            case GOAL_CREATED -> {
-                GoalSnapshot snapshot = GoalSnapshot.builder()
-                    .goalId(goalId)
-                    .userId(event.userId().toString())
-                    .title(event.title())
-                    .lifeAspectId(event.lifeAspectId())
-                    .currentStatus(event.newStatus())
-                    .createdAt(event.occurredAt())
-                    .statusHistory(new ArrayList<>(List.of(
-                        StatusPeriod.builder()
-                            .status(event.newStatus())
-                            .enteredAt(event.occurredAt())
-                            .build()
-                    )))
-                    .subGoals(new ArrayList<>())
-                    .build();
-                snapshotRepository.persist(snapshot);
-            }
-            case GOAL_STATUS_CHANGED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    // Close previous status period
-                    if (!snapshot.getStatusHistory().isEmpty()) {
-                        StatusPeriod last = snapshot.getStatusHistory().getLast();
-                        if (last.getExitedAt() == null) {
-                            last.setExitedAt(event.occurredAt());
-                            last.setDurationMs(event.occurredAt().toEpochMilli() - last.getEnteredAt().toEpochMilli());
-                        }
-                    }
-                    // Open new status period
-                    snapshot.getStatusHistory().add(StatusPeriod.builder()
-                        .status(event.newStatus())
-                        .enteredAt(event.occurredAt())
-                        .build());
-                    snapshot.setCurrentStatus(event.newStatus());
-                    if ("COMPLETED".equals(event.newStatus())) {
-                        snapshot.setCompletedAt(event.occurredAt());
-                    }
-                    snapshotRepository.update(snapshot);
-                });
-            }
-            case GOAL_UPDATED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    if (event.title() != null) snapshot.setTitle(event.title());
-                    if (event.lifeAspectId() != null) snapshot.setLifeAspectId(event.lifeAspectId());
-                    snapshotRepository.update(snapshot);
-                });
-            }
-            case GOAL_DELETED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshotRepository::delete);
-            }
-            case SUBGOAL_CREATED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    snapshot.getSubGoals().add(SubGoalSummary.builder()
-                        .subGoalId(event.entityId().toString())
-                        .title(event.title())
-                        .currentStatus(event.newStatus())
-                        .createdAt(event.occurredAt())
-                        .statusHistory(new ArrayList<>(List.of(
-                            StatusPeriod.builder()
-                                .status(event.newStatus())
-                                .enteredAt(event.occurredAt())
-                                .build()
-                        )))
-                        .build());
-                    snapshot.setTotalSubGoals(snapshot.getSubGoals().size());
-                    recalculateCompletionRate(snapshot);
-                    snapshotRepository.update(snapshot);
-                });
-            }
-            case SUBGOAL_STATUS_CHANGED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    String subGoalId = event.entityId().toString();
-                    snapshot.getSubGoals().stream()
-                        .filter(sg -> sg.getSubGoalId().equals(subGoalId))
-                        .findFirst()
-                        .ifPresent(sg -> {
-                            if (!sg.getStatusHistory().isEmpty()) {
-                                StatusPeriod last = sg.getStatusHistory().getLast();
-                                if (last.getExitedAt() == null) {
-                                    last.setExitedAt(event.occurredAt());
-                                    last.setDurationMs(event.occurredAt().toEpochMilli() - last.getEnteredAt().toEpochMilli());
-                                }
-                            }
-                            sg.getStatusHistory().add(StatusPeriod.builder()
-                                .status(event.newStatus())
-                                .enteredAt(event.occurredAt())
-                                .build());
-                            sg.setCurrentStatus(event.newStatus());
-                            if ("COMPLETED".equals(event.newStatus())) {
-                                sg.setCompletedAt(event.occurredAt());
-                                long totalMs = sg.getStatusHistory().stream()
-                                    .filter(p -> p.getDurationMs() != null)
-                                    .mapToLong(StatusPeriod::getDurationMs)
-                                    .sum();
-                                sg.setTotalDurationMs(totalMs);
-                            }
-                        });
-                    recalculateCompletionRate(snapshot);
-                    snapshotRepository.update(snapshot);
-                });
-            }
-            case SUBGOAL_UPDATED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    String subGoalId = event.entityId().toString();
-                    snapshot.getSubGoals().stream()
-                        .filter(sg -> sg.getSubGoalId().equals(subGoalId))
-                        .findFirst()
-                        .ifPresent(sg -> {
-                            if (event.title() != null) sg.setTitle(event.title());
-                        });
-                    snapshotRepository.update(snapshot);
-                });
-            }
-            case SUBGOAL_DELETED -> {
-                snapshotRepository.findByGoalId(goalId).ifPresent(snapshot -> {
-                    String subGoalId = event.entityId().toString();
-                    snapshot.getSubGoals().removeIf(sg -> sg.getSubGoalId().equals(subGoalId));
-                    snapshot.setTotalSubGoals(snapshot.getSubGoals().size());
-                    recalculateCompletionRate(snapshot);
-                    snapshotRepository.update(snapshot);
-                });
-            }
-        }
-    }
-
-    private void recalculateCompletionRate(GoalSnapshot snapshot) {
-        long completed = snapshot.getSubGoals().stream()
-            .filter(sg -> "COMPLETED".equals(sg.getCurrentStatus()))
-            .count();
-        snapshot.setCompletedSubGoals((int) completed);
-        snapshot.setCompletionRate(snapshot.getTotalSubGoals() > 0
-            ? (double) completed / snapshot.getTotalSubGoals()
-            : 0.0);
     }
 
     @Override
     public GoalSnapshot getGoalSnapshot(String goalId, UUID userId) {
-        return snapshotRepository.findByGoalId(goalId)
+        GoalSnapshot snapshot = currentSnapshots(List.of(goalId), snapshotRepository::findAllByGoalIds).stream()
+            .findFirst()
             .filter(s -> s.getUserId().equals(userId.toString()))
             .orElseThrow(() -> new ResourceNotFoundException("GoalSnapshot", goalId));
+        attachBuckets(snapshot);
+        return snapshot;
+    }
+
+    /** Fills the sub-goals and status histories of a snapshot from its buckets. */
+    private void attachBuckets(GoalSnapshot snapshot) {
+        List<SubGoalSummary> subGoals = new ArrayList<>();
+        subGoalBucketRepository.findByGoalId(snapshot.getGoalId())
+            .forEach(bucket -> subGoals.addAll(bucket.getSubGoals()));
+        subGoals.sort(Comparator.comparing(SubGoalSummary::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        Map<String, List<StatusPeriod>> histories = new HashMap<>();
+        for (StatusPeriodBucket bucket : periodBucketRepository.findByGoalId(snapshot.getGoalId())) {
+            histories.computeIfAbsent(StatusDurations.periodKey(snapshot.getGoalId(), bucket.getSubGoalId()),
+                key -> new ArrayList<>()).addAll(bucket.getPeriods());
+        }
+        snapshot.setStatusHistory(histories.getOrDefault(snapshot.getGoalId(), new ArrayList<>()));
+        for (SubGoalSummary subGoal : subGoals) {
+            subGoal.setStatusHistory(histories.getOrDefault(
+                StatusDurations.periodKey(snapshot.getGoalId(), subGoal.getSubGoalId()), new ArrayList<>()));
+        }
+        snapshot.setSubGoals(subGoals);
     }
 
     @Override
-    public List<GoalEventDocument> getGoalTimeline(String goalId, UUID userId) {
-        return eventRepository.findByGoalIdOrderByOccurredAt(goalId).stream()
-            .filter(e -> e.getUserId().equals(userId.toString()))
+    public GoalTimelinePageResponse getGoalTimeline(String goalId, UUID userId, Set<String> eventTypes,
+                                                    Instant from, Instant to, String cursor, int size) {
+        if (size < 1 || size > MAX_TIMELINE_PAGE_SIZE) {
+            throw new BusinessException("Timeline page size must be between 1 and " + MAX_TIMELINE_PAGE_SIZE,
+                Response.Status.BAD_REQUEST);
+        }
+        if (eventTypes != null) {
+            eventTypes.forEach(this::requireKnownEventType);
+        }
+        TimelineCursor after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        // Fetch one extra event to know whether the timeline continues past this page. Old events
+        // live in compacted segments, and late arrivals can interleave with them, so both are merged.
+        Instant afterOccurredAt = after == null ? null : after.occurredAt();
+        ObjectId afterId = after == null ? null : after.id();
+        List<GoalEventDocument> events = new ArrayList<>(eventRepository.findTimelinePage(goalId, userId.toString(),
+            eventTypes, from, to, afterOccurredAt, afterId, size + 1));
+        events.addAll(historyReader.findCompactedTimelinePage(goalId, userId.toString(),
+            eventTypes, from, to, afterOccurredAt, afterId, size + 1));
+        events.sort(EventHistoryReader.TIMELINE_ORDER);
+        boolean hasMore = events.size() > size;
+        if (hasMore) {
+            events = events.subList(0, size);
+        }
+        return new GoalTimelinePageResponse(events, hasMore ? encodeCursor(events.getLast()) : null);
+    }
+
+    /**
+     * Compacted events first, then the hot ones; the stream is not re-sorted across tiers, so
+     * only events that arrived after their goal was compacted can appear out of place.
+     */
+    @Override
+    public Multi<GoalEventDocument> streamGoalTimeline(String goalId, UUID userId, Set<String> eventTypes,
+                                                       Instant from, Instant to) {
+        if (eventTypes != null) {
+            eventTypes.forEach(this::requireKnownEventType);
+        }
+        return Multi.createBy().concatenating().streams(
+            historyReader.streamCompactedTimeline(goalId, userId.toString(), eventTypes, from, to),
+            reactiveEventRepository.streamTimeline(goalId, userId.toString(), eventTypes, from, to));
+    }
+
+    @Override
+    @CacheResult(cacheName = SUMMARY_CACHE)
+    public List<GoalSummaryResponse> getUserSummary(UUID userId) {
+        return snapshotRepository.findSummariesByUserId(userId.toString()).stream()
+            .map(AnalyticsServiceImpl::toSummary)
+            .toList();
+    }
+
+    /** Reads straight from the store, bypassing the summary cache. */
+    @Override
+    public Multi<GoalSummaryResponse> streamUserSummary(UUID userId) {
+        return reactiveSnapshotRepository.streamSummariesByUserId(userId.toString())
+            .map(AnalyticsServiceImpl::toSummary);
+    }
+
+    private static GoalSummaryResponse toSummary(GoalSnapshot snapshot) {
+        return new GoalSummaryResponse(snapshot.getGoalId(), snapshot.getTitle(), snapshot.getCurrentStatus(),
+            snapshot.getCompletionRate());
+    }
+
+    @Override
+    public List<StatusDurationResponse> getStatusDurations(UUID userId, String entityType, String lifeAspectId) {
+        if (!"GOAL".equals(entityType) && !"SUB_GOAL".equals(entityType)) {
+            throw new BusinessException("Entity type must be GOAL or SUB_GOAL", Response.Status.BAD_REQUEST);
+        }
+        return sketchRepository.findByScope(userId.toString(), entityType, lifeAspectId).stream()
+            .map(sketch -> new StatusDurationResponse(
+                sketch.getStatus(),
+                sketch.getCount(),
+                sketch.getCount() > 0 ? sketch.getSumMs() / sketch.getCount() : null,
+                LogLinearHistogram.valueAtQuantile(sketch.getBuckets(), 0.5),
+                LogLinearHistogram.valueAtQuantile(sketch.getBuckets(), 0.9),
+                LogLinearHistogram.valueAtQuantile(sketch.getBuckets(), 0.99)))
             .toList();
     }
 
     @Override
-    public List<GoalSnapshot> getUserSummary(UUID userId) {
-        return snapshotRepository.findByUserId(userId.toString());
+    public List<RollupBucketResponse> getUserRollups(UUID userId, RollupGranularity granularity, Instant from, Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        // Without a start, the current bucket and the ones before it
+        Instant start = from != null
+            ? granularity.bucketStart(from)
+            : granularity.plus(granularity.bucketStart(end), 1 - DEFAULT_ROLLUP_BUCKETS);
+        if (!start.isBefore(end)) {
+            throw new BusinessException("Rollup range must end after it starts", Response.Status.BAD_REQUEST);
+        }
+        if (granularity.plus(start, MAX_ROLLUP_BUCKETS).isBefore(end)) {
+            throw new BusinessException("Rollup range must not span more than " + MAX_ROLLUP_BUCKETS + " buckets",
+                Response.Status.BAD_REQUEST);
+        }
+        return rollupRepository.findRange(userId.toString(), granularity.name(), start, end).stream()
+            .map(rollup -> new RollupBucketResponse(rollup.getBucketStart(), rollup.getTotals(), rollup.getLifeAspects()))
+            .toList();
     }
-}
\ No newline at end of file
+
+    @Override
+    public ActivityCalendarResponse getActivityCalendar(UUID userId, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate end = to != null ? to : today;
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_CALENDAR_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new BusinessException("Calendar must not end before it starts", Response.Status.BAD_REQUEST);
+        }
+        if (start.plusDays(MAX_CALENDAR_DAYS).isBefore(end.plusDays(1))) {
+            throw new BusinessException("Calendar must not span more than " + MAX_CALENDAR_DAYS + " days",
+                Response.Status.BAD_REQUEST);
+        }
+        UserActivity activity = activityRepository.findByUserId(userId.toString())
+            .orElseGet(() -> UserActivity.builder().userId(userId.toString()).build());
+        List<Integer> completions = start.datesUntil(end.plusDays(1))
+            .map(day -> ActivityCalendar.count(activity, day))
+            .toList();
+        return new ActivityCalendarResponse(start, end, completions, ActivityCalendar.currentStreak(activity, today),
+            activity.getLongestStreak(), activity.getLastActiveDay());
+    }
+
+    private void requireKnownEventType(String eventType) {
+        try {
+            GoalEventType.valueOf(eventType);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Unknown event type: " + eventType, Response.Status.BAD_REQUEST);
+        }
+    }
+
+    private String encodeCursor(GoalEventDocument event) {
+        String raw = event.getOccurredAt() + "|" + event.getId().toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private TimelineCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return new TimelineCursor(Instant.parse(parts[0]), new ObjectId(parts[1]));
+        } catch (RuntimeException e) {
+            throw new BusinessException("Invalid timeline cursor", Response.Status.BAD_REQUEST);
+        }
+    }
+
+    private record TimelineCursor(Instant occurredAt, ObjectId id) {}
+}
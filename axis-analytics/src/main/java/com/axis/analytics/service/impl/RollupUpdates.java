@@ -0,0 +1,114 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.UserRollup;
+import com.axis.analytics.model.enums.RollupGranularity;
+import com.axis.common.event.GoalDomainEvent;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.PushOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.conversions.Bson;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates goal events into {@code $inc} updates of the user's day, week and month rollups.
+ * Like snapshot updates, each increment is guarded by "event not applied yet" and records the
+ * event id along with the counters, so a batch retried after a partial failure does not count
+ * its events twice. The guard cannot be part of an upsert (a bucket that already applied the
+ * event would look missing and be inserted again), so buckets are created by {@link #bucketsOf}
+ * first and the increments only update existing ones.
+ */
+public final class RollupUpdates {
+
+    /**
+     * Number of recently applied event ids kept per rollup or sketch. These documents see every
+     * event of their user rather than of one goal, so they keep a longer window than snapshots.
+     */
+    static final int APPLIED_EVENTS_WINDOW = 256;
+
+    private RollupUpdates() {
+    }
+
+    /** Upserts creating the buckets the event counts in; they change nothing once the buckets exist. */
+    public static List<WriteModel<UserRollup>> bucketsOf(GoalDomainEvent event) {
+        if (!counts(event)) {
+            return List.of();
+        }
+        List<WriteModel<UserRollup>> creates = new ArrayList<>();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            creates.add(createIfMissing(bucket(event.userId().toString(), granularity, event.occurredAt())));
+        }
+        return creates;
+    }
+
+    /** Increments of the buckets created by {@link #bucketsOf}; a redelivered event matches nothing. */
+    public static List<WriteModel<UserRollup>> forEvent(GoalDomainEvent event) {
+        if (!counts(event)) {
+            return List.of();
+        }
+        String counter = counter(event);
+        String eventId = event.eventId().toString();
+        List<WriteModel<UserRollup>> updates = new ArrayList<>();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            List<Bson> increments = new ArrayList<>();
+            increments.add(Updates.inc("totals." + counter, 1));
+            if (event.lifeAspectId() != null) {
+                increments.add(Updates.inc("lifeAspects." + event.lifeAspectId() + "." + counter, 1));
+            }
+            increments.add(recordApplied(eventId));
+            updates.add(new UpdateOneModel<>(
+                notYetApplied(bucket(event.userId().toString(), granularity, event.occurredAt()), eventId),
+                Updates.combine(increments)));
+        }
+        return updates;
+    }
+
+    /** An upsert that only inserts; the equality fields of {@code filter} become the new document's keys. */
+    static <T> WriteModel<T> createIfMissing(Bson filter) {
+        return new UpdateOneModel<>(filter, Updates.setOnInsert("appliedEventIds", List.of()),
+            new UpdateOptions().upsert(true));
+    }
+
+    static Bson notYetApplied(Bson filter, String eventId) {
+        return Filters.and(filter, Filters.ne("appliedEventIds", eventId));
+    }
+
+    static Bson recordApplied(String eventId) {
+        return Updates.pushEach("appliedEventIds", List.of(eventId), new PushOptions().slice(-APPLIED_EVENTS_WINDOW));
+    }
+
+    private static boolean counts(GoalDomainEvent event) {
+        return counter(event) != null && event.userId() != null && event.occurredAt() != null;
+    }
+
+    /** Name of the counter the event increments, null when it does not count. */
+    private static String counter(GoalDomainEvent event) {
+        return switch (event.eventType()) {
+            case GOAL_CREATED -> "goalsCreated";
+            case GOAL_STATUS_CHANGED -> switch (String.valueOf(event.newStatus())) {
+                case "COMPLETED" -> "goalsCompleted";
+                case "CANCELED" -> "goalsCanceled";
+                default -> null;
+            };
+            case SUBGOAL_CREATED -> "subGoalsCreated";
+            case SUBGOAL_STATUS_CHANGED -> switch (String.valueOf(event.newStatus())) {
+                case "COMPLETED" -> "subGoalsCompleted";
+                case "CANCELED" -> "subGoalsCanceled";
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+
+    private static Bson bucket(String userId, RollupGranularity granularity, Instant occurredAt) {
+        return Filters.and(
+            Filters.eq("userId", userId),
+            Filters.eq("granularity", granularity.name()),
+            Filters.eq("bucketStart", granularity.bucketStart(occurredAt)));
+    }
+}
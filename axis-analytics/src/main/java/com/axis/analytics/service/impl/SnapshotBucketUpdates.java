@@ -0,0 +1,262 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.StatusPeriod;
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.analytics.model.document.SubGoalSummary;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Translates goal events into updates of the fixed-capacity buckets holding sub-goal summaries
+ * and status periods. An entry is appended to a bucket with room, and a new bucket is upserted
+ * once all are full, so no document outgrows its capacity however long a goal lives.
+ * <p>
+ * Buckets cannot see the applied-event window of their snapshot, so every update is idempotent
+ * on its own: appends are skipped when the entry is already present, and periods and statuses
+ * are only replaced by events that are not older than them.
+ * <p>
+ * An append's filter matches the bucket already holding the entry, but also any bucket with
+ * room, and the update may pick the latter and add the entry again. So the buckets holding the
+ * entries of a batch are looked up first ({@link #storedSubGoals}, {@link #storedPeriods}) and
+ * no append is made for those.
+ */
+public final class SnapshotBucketUpdates {
+
+    private static final String COMPLETED = "COMPLETED";
+
+    /** Entries per bucket. */
+    public static final int CAPACITY = 50;
+
+    private SnapshotBucketUpdates() {
+    }
+
+    /**
+     * Ids of the sub-goals created by the events that a bucket already holds.
+     */
+    public static Set<String> storedSubGoals(MongoCollection<SubGoalBucket> buckets, List<GoalDomainEvent> events) {
+        Set<String> goalIds = new HashSet<>();
+        Set<String> subGoalIds = new HashSet<>();
+        for (GoalDomainEvent event : events) {
+            if (event.eventType() == GoalEventType.SUBGOAL_CREATED) {
+                goalIds.add(event.goalId().toString());
+                subGoalIds.add(event.entityId().toString());
+            }
+        }
+        Set<String> stored = new HashSet<>();
+        if (subGoalIds.isEmpty()) {
+            return stored;
+        }
+        buckets.find(Filters.and(Filters.in("goalId", goalIds), Filters.in("subGoals.subGoalId", subGoalIds)))
+            .projection(Projections.include("subGoals.subGoalId"))
+            .into(new ArrayList<>())
+            .forEach(bucket -> bucket.getSubGoals().stream()
+                .map(SubGoalSummary::getSubGoalId)
+                .filter(subGoalIds::contains)
+                .forEach(stored::add));
+        return stored;
+    }
+
+    /**
+     * Ids of the events among {@code events} whose period a bucket already holds, or that a newer
+     * stored period supersedes.
+     */
+    public static Set<String> storedPeriods(MongoCollection<StatusPeriodBucket> buckets, List<GoalDomainEvent> events) {
+        List<GoalDomainEvent> opening = events.stream().filter(SnapshotBucketUpdates::opensPeriod).toList();
+        Set<String> stored = new HashSet<>();
+        if (opening.isEmpty()) {
+            return stored;
+        }
+        List<Bson> clauses = new ArrayList<>();
+        for (GoalDomainEvent event : opening) {
+            clauses.add(Filters.and(periodScope(event.goalId().toString(), event), Filters.or(
+                Filters.eq("periods.openedBy", event.eventId().toString()),
+                Filters.gt("periods.enteredAt", event.occurredAt()))));
+        }
+        List<StatusPeriodBucket> matching = buckets.find(Filters.or(clauses))
+            .projection(Projections.include("goalId", "subGoalId", "periods.openedBy", "periods.enteredAt"))
+            .into(new ArrayList<>());
+        for (GoalDomainEvent event : opening) {
+            String eventId = event.eventId().toString();
+            String subGoalId = subGoalIdOf(event);
+            boolean found = matching.stream()
+                .filter(bucket -> bucket.getGoalId().equals(event.goalId().toString())
+                    && Objects.equals(bucket.getSubGoalId(), subGoalId))
+                .flatMap(bucket -> bucket.getPeriods().stream())
+                .anyMatch(period -> eventId.equals(period.getOpenedBy())
+                    || period.getEnteredAt() != null && period.getEnteredAt().isAfter(event.occurredAt()));
+            if (found) {
+                stored.add(eventId);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * @param stored ids of the sub-goals already in a bucket, see {@link #storedSubGoals}; a
+     *               sub-goal is added once its append is made, so a duplicate later in the same
+     *               batch is skipped too
+     */
+    public static List<WriteModel<SubGoalBucket>> subGoalUpdates(GoalDomainEvent event, Set<String> stored) {
+        String goalId = event.goalId().toString();
+        return switch (event.eventType()) {
+            case GOAL_DELETED -> List.of(new DeleteManyModel<>(byGoal(goalId)));
+            case SUBGOAL_CREATED -> {
+                if (!stored.add(event.entityId().toString())) {
+                    yield List.of();
+                }
+                SubGoalSummary summary = SubGoalSummary.builder()
+                    .subGoalId(event.entityId().toString())
+                    .title(event.title())
+                    .currentStatus(event.newStatus())
+                    .statusSince(event.occurredAt())
+                    .createdAt(event.occurredAt())
+                    .build();
+                yield List.of(appendOnce(byGoal(goalId), "subGoals", "subGoalId", summary.getSubGoalId(), summary,
+                    null, null));
+            }
+            case SUBGOAL_STATUS_CHANGED -> {
+                List<Bson> sets = new ArrayList<>();
+                sets.add(Updates.set("subGoals.$.currentStatus", event.newStatus()));
+                sets.add(Updates.set("subGoals.$.statusSince", event.occurredAt()));
+                if (COMPLETED.equals(event.newStatus())) {
+                    sets.add(Updates.set("subGoals.$.completedAt", event.occurredAt()));
+                }
+                // A stale redelivery must not move the sub-goal back to an older status
+                Bson notNewer = Filters.and(byGoal(goalId), Filters.elemMatch("subGoals", Filters.and(
+                    Filters.eq("subGoalId", event.entityId().toString()),
+                    Filters.lte("statusSince", event.occurredAt()))));
+                yield List.of(new UpdateOneModel<>(notNewer, Updates.combine(sets)));
+            }
+            case SUBGOAL_UPDATED -> event.title() == null
+                ? List.of()
+                : List.of(new UpdateOneModel<>(withSubGoal(goalId, event), Updates.set("subGoals.$.title", event.title())));
+            case SUBGOAL_DELETED -> List.of(
+                new UpdateOneModel<>(withSubGoal(goalId, event), Updates.combine(
+                    Updates.pull("subGoals", Filters.eq("subGoalId", event.entityId().toString())),
+                    Updates.inc("count", -1))),
+                new DeleteManyModel<>(Filters.and(byGoal(goalId), Filters.lte("count", 0))));
+            default -> List.of();
+        };
+    }
+
+    /**
+     * @param stored ids of the events whose period is stored or superseded, see
+     *               {@link #storedPeriods}; an event is added once its period is appended
+     */
+    public static List<WriteModel<StatusPeriodBucket>> periodUpdates(GoalDomainEvent event, Set<String> stored) {
+        String goalId = event.goalId().toString();
+        boolean opens = opensPeriod(event) && stored.add(event.eventId().toString());
+        return switch (event.eventType()) {
+            case GOAL_CREATED, SUBGOAL_CREATED -> opens
+                ? List.of(openPeriod(periodScope(goalId, event), event))
+                : List.of();
+            // Closing is guarded on its own, so it is kept when the event's own period is skipped
+            case GOAL_STATUS_CHANGED, SUBGOAL_STATUS_CHANGED -> opens
+                ? List.of(closePeriod(periodScope(goalId, event), event), openPeriod(periodScope(goalId, event), event))
+                : List.of(closePeriod(periodScope(goalId, event), event));
+            case GOAL_DELETED -> List.of(new DeleteManyModel<>(byGoal(goalId)));
+            case SUBGOAL_DELETED -> List.of(new DeleteManyModel<>(periodScope(goalId, event)));
+            default -> List.of();
+        };
+    }
+
+    /**
+     * Like {@link #closePeriod}, a late event does not open a period when a newer one was already
+     * entered: the bucket holding the newer period matches (even when full) and is left unchanged.
+     */
+    private static WriteModel<StatusPeriodBucket> openPeriod(Bson scope, GoalDomainEvent event) {
+        StatusPeriod period = StatusPeriod.builder()
+            .status(event.newStatus())
+            .enteredAt(event.occurredAt())
+            .openedBy(event.eventId().toString())
+            .build();
+        Bson newerFilter = Filters.elemMatch("periods", Filters.gt("enteredAt", event.occurredAt()));
+        Document newer = new Document("$anyElementTrue", List.of(new Document("$map", new Document()
+            .append("input", new Document("$ifNull", List.of("$periods", List.of())))
+            .append("as", "period")
+            .append("in", new Document("$gt", List.of("$$period.enteredAt", event.occurredAt()))))));
+        return appendOnce(scope, "periods", "openedBy", period.getOpenedBy(), period, newerFilter, newer);
+    }
+
+    private static WriteModel<StatusPeriodBucket> closePeriod(Bson scope, GoalDomainEvent event) {
+        String eventId = event.eventId().toString();
+        return new UpdateOneModel<>(
+            Filters.and(scope, Filters.elemMatch("periods", Filters.and(
+                Filters.eq("exitedAt", null),
+                Filters.ne("openedBy", eventId),
+                Filters.lte("enteredAt", event.occurredAt())))),
+            Updates.set("periods.$[open].exitedAt", event.occurredAt()),
+            new UpdateOptions().arrayFilters(List.of(new Document("open.exitedAt", null)
+                .append("open.openedBy", new Document("$ne", eventId))
+                .append("open.enteredAt", new Document("$lte", event.occurredAt())))));
+    }
+
+    /**
+     * Appends {@code entry} to a bucket of {@code scope} with room, creating the next bucket when
+     * all are full. The bucket that already holds an entry with the same key matches as well and
+     * is left unchanged, which makes a redelivery a no-op even when its append filled the bucket.
+     * A bucket matching {@code supersededFilter} is left unchanged the same way; a non-null
+     * {@code supersededFilter} needs {@code superseded}, the same condition as an expression.
+     */
+    private static <T> WriteModel<T> appendOnce(Bson scope, String array, String keyField, String key, Object entry,
+                                                Bson supersededFilter, Document superseded) {
+        Document present = new Document("$in", List.of(key,
+            new Document("$ifNull", List.of("$" + array + "." + keyField, List.of()))));
+        Document skip = supersededFilter == null ? present : new Document("$or", List.of(present, superseded));
+        Document appended = new Document("$concatArrays", List.of(
+            new Document("$ifNull", List.of("$" + array, List.of())),
+            List.of(new Document("$literal", entry))));
+        Document incremented = new Document("$add", List.of(new Document("$ifNull", List.of("$count", 0)), 1));
+        List<Bson> matching = new ArrayList<>(List.of(Filters.lt("count", CAPACITY), Filters.eq(array + "." + keyField, key)));
+        if (supersededFilter != null) {
+            matching.add(supersededFilter);
+        }
+        return new UpdateOneModel<>(
+            Filters.and(scope, Filters.or(matching)),
+            List.of(new Document("$set", new Document()
+                .append(array, new Document("$cond", List.of(skip, "$" + array, appended)))
+                .append("count", new Document("$cond", List.of(skip, "$count", incremented))))),
+            new UpdateOptions().upsert(true));
+    }
+
+    private static Bson periodScope(String goalId, GoalDomainEvent event) {
+        return Filters.and(byGoal(goalId), Filters.eq("subGoalId", subGoalIdOf(event)));
+    }
+
+    private static String subGoalIdOf(GoalDomainEvent event) {
+        boolean subGoal = event.eventType().name().startsWith("SUBGOAL_");
+        return subGoal ? event.entityId().toString() : null;
+    }
+
+    private static boolean opensPeriod(GoalDomainEvent event) {
+        return switch (event.eventType()) {
+            case GOAL_CREATED, SUBGOAL_CREATED, GOAL_STATUS_CHANGED, SUBGOAL_STATUS_CHANGED -> true;
+            default -> false;
+        };
+    }
+
+    private static Bson withSubGoal(String goalId, GoalDomainEvent event) {
+        return Filters.and(byGoal(goalId), Filters.eq("subGoals.subGoalId", event.entityId().toString()));
+    }
+
+    private static Bson byGoal(String goalId) {
+        return Filters.eq("goalId", goalId);
+    }
+}
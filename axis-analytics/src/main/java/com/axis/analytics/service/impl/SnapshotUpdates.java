@@ -0,0 +1,265 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates goal events into targeted updates on {@code goal_snapshots}, so a snapshot is never
+ * read back or rewritten as a whole. Snapshots hold the current state and counters only; status
+ * periods and sub-goal summaries are written by {@link SnapshotBucketUpdates}.
+ * <p>
+ * Every event is one pipeline update that changes the snapshot and records the event id and
+ * sequence together, so a failure can never leave counters moved without the event being
+ * recorded (or the other way round).
+ */
+public final class SnapshotUpdates {
+
+    private static final String COMPLETED = "COMPLETED";
+
+    /**
+     * Number of recently applied event ids kept per snapshot. Redeliveries arrive shortly after
+     * the original, so a small window is enough to recognize them.
+     */
+    static final int APPLIED_EVENTS_WINDOW = 64;
+
+    /** Fraction of completed sub-goals, computed from the counters set by the previous stage. */
+    private static final Bson RECALCULATE_COMPLETION_RATE = new Document("$set",
+        new Document("completionRate", new Document("$cond", List.of(
+            new Document("$gt", List.of("$totalSubGoals", 0)),
+            new Document("$divide", List.of("$completedSubGoals", "$totalSubGoals")),
+            0.0))));
+
+    private SnapshotUpdates() {
+    }
+
+    /**
+     * The update is guarded by "event not applied yet", so a redelivered event matches nothing.
+     * Creation and deletion are idempotent as is.
+     */
+    public static List<WriteModel<GoalSnapshot>> forEvent(GoalDomainEvent event) {
+        String goalId = event.goalId().toString();
+        if (event.eventType() == GoalEventType.GOAL_CREATED) {
+            return List.of(goalCreated(goalId, event));
+        }
+        if (event.eventType() == GoalEventType.GOAL_DELETED) {
+            return List.of(new DeleteOneModel<>(byGoal(goalId)));
+        }
+        List<Bson> stages = switch (event.eventType()) {
+            case GOAL_STATUS_CHANGED -> goalStatusChanged(event);
+            case GOAL_UPDATED -> goalUpdated(event);
+            case SUBGOAL_CREATED -> subGoalCreated(event);
+            case SUBGOAL_STATUS_CHANGED -> subGoalStatusChanged(event);
+            case SUBGOAL_DELETED -> subGoalDeleted(event);
+            // Sub-goal edits, deadline reminders and other informational events do not change the snapshot
+            default -> List.of();
+        };
+        if (stages.isEmpty() && event.sequence() == null) {
+            return List.of();
+        }
+        // Sequenced events always advance the stored position, even when they change nothing else
+        List<Bson> pipeline = new ArrayList<>(stages);
+        pipeline.add(recordApplied(event));
+        Bson target = Filters.and(byGoal(goalId), Filters.ne("appliedEventIds", event.eventId().toString()));
+        return List.of(new UpdateOneModel<>(target, pipeline));
+    }
+
+    /**
+     * Applies the event to a snapshot held in memory, with the same effect as the updates of
+     * {@link #forEvent} on the stored one. Returns the snapshot, or null when the goal has no
+     * snapshot (anymore); {@code snapshot} is null when none exists yet.
+     */
+    public static GoalSnapshot apply(GoalSnapshot snapshot, GoalDomainEvent event) {
+        String eventId = event.eventId().toString();
+        switch (event.eventType()) {
+            case GOAL_CREATED -> {
+                return snapshot != null ? snapshot : created(event);
+            }
+            case GOAL_DELETED -> {
+                return null;
+            }
+            default -> {
+                if (snapshot == null || snapshot.getAppliedEventIds().contains(eventId)) {
+                    return snapshot;
+                }
+            }
+        }
+        boolean updated = switch (event.eventType()) {
+            case GOAL_STATUS_CHANGED -> {
+                if (snapshot.getStatusSince() == null || event.occurredAt() == null
+                        || !snapshot.getStatusSince().isAfter(event.occurredAt())) {
+                    snapshot.setCurrentStatus(event.newStatus());
+                    snapshot.setStatusSince(event.occurredAt());
+                    if (COMPLETED.equals(event.newStatus())) {
+                        snapshot.setCompletedAt(event.occurredAt());
+                    }
+                }
+                yield true;
+            }
+            case GOAL_UPDATED -> {
+                if (event.title() != null) snapshot.setTitle(event.title());
+                if (event.lifeAspectId() != null) snapshot.setLifeAspectId(event.lifeAspectId());
+                yield event.title() != null || event.lifeAspectId() != null;
+            }
+            case SUBGOAL_CREATED -> {
+                snapshot.setTotalSubGoals(snapshot.getTotalSubGoals() + 1);
+                if (COMPLETED.equals(event.newStatus())) {
+                    snapshot.setCompletedSubGoals(snapshot.getCompletedSubGoals() + 1);
+                }
+                yield recalculateCompletionRate(snapshot);
+            }
+            case SUBGOAL_STATUS_CHANGED -> {
+                int delta = (COMPLETED.equals(event.newStatus()) ? 1 : 0) - (COMPLETED.equals(event.previousStatus()) ? 1 : 0);
+                if (delta == 0) {
+                    yield false;
+                }
+                snapshot.setCompletedSubGoals(snapshot.getCompletedSubGoals() + delta);
+                yield recalculateCompletionRate(snapshot);
+            }
+            case SUBGOAL_DELETED -> {
+                snapshot.setTotalSubGoals(snapshot.getTotalSubGoals() - 1);
+                if (COMPLETED.equals(event.previousStatus())) {
+                    snapshot.setCompletedSubGoals(snapshot.getCompletedSubGoals() - 1);
+                }
+                yield recalculateCompletionRate(snapshot);
+            }
+            default -> false;
+        };
+        if (!updated && event.sequence() == null) {
+            return snapshot;
+        }
+        List<String> applied = snapshot.getAppliedEventIds();
+        applied.add(eventId);
+        if (applied.size() > APPLIED_EVENTS_WINDOW) {
+            applied.subList(0, applied.size() - APPLIED_EVENTS_WINDOW).clear();
+        }
+        if (event.sequence() != null) {
+            snapshot.setLastSequence(snapshot.getLastSequence() == null
+                ? event.sequence()
+                : Math.max(snapshot.getLastSequence(), event.sequence()));
+        }
+        return snapshot;
+    }
+
+    private static GoalSnapshot created(GoalDomainEvent event) {
+        List<String> applied = new ArrayList<>();
+        applied.add(event.eventId().toString());
+        return GoalSnapshot.builder()
+            .goalId(event.goalId().toString())
+            .userId(event.userId().toString())
+            .title(event.title())
+            .lifeAspectId(event.lifeAspectId())
+            .currentStatus(event.newStatus())
+            .statusSince(event.occurredAt())
+            .createdAt(event.occurredAt())
+            .completionRate(0.0)
+            .appliedEventIds(applied)
+            .lastSequence(event.sequence())
+            .build();
+    }
+
+    private static boolean recalculateCompletionRate(GoalSnapshot snapshot) {
+        snapshot.setCompletionRate(snapshot.getTotalSubGoals() > 0
+            ? (double) snapshot.getCompletedSubGoals() / snapshot.getTotalSubGoals()
+            : 0.0);
+        return true;
+    }
+
+    /** Inserts the snapshot only if it does not exist yet, so a redelivered creation is a no-op. */
+    private static WriteModel<GoalSnapshot> goalCreated(String goalId, GoalDomainEvent event) {
+        return new UpdateOneModel<>(byGoal(goalId), Updates.combine(
+            Updates.setOnInsert("userId", event.userId().toString()),
+            Updates.setOnInsert("title", event.title()),
+            Updates.setOnInsert("lifeAspectId", event.lifeAspectId()),
+            Updates.setOnInsert("currentStatus", event.newStatus()),
+            Updates.setOnInsert("statusSince", event.occurredAt()),
+            Updates.setOnInsert("createdAt", event.occurredAt()),
+            Updates.setOnInsert("totalSubGoals", 0),
+            Updates.setOnInsert("completedSubGoals", 0),
+            Updates.setOnInsert("completionRate", 0.0),
+            Updates.setOnInsert("appliedEventIds", List.of(event.eventId().toString())),
+            Updates.setOnInsert("lastSequence", event.sequence())
+        ), new UpdateOptions().upsert(true));
+    }
+
+    /** A status change that arrives late (e.g. after a retry) must not replace a newer status. */
+    private static List<Bson> goalStatusChanged(GoalDomainEvent event) {
+        Bson newer = new Document("$gt", List.of("$statusSince", event.occurredAt()));
+        Document sets = new Document()
+            .append("currentStatus", unlessNewer(newer, "currentStatus", event.newStatus()))
+            .append("statusSince", unlessNewer(newer, "statusSince", event.occurredAt()));
+        if (COMPLETED.equals(event.newStatus())) {
+            sets.append("completedAt", unlessNewer(newer, "completedAt", event.occurredAt()));
+        }
+        return List.of(new Document("$set", sets));
+    }
+
+    private static List<Bson> goalUpdated(GoalDomainEvent event) {
+        Document sets = new Document();
+        if (event.title() != null) sets.append("title", literal(event.title()));
+        if (event.lifeAspectId() != null) sets.append("lifeAspectId", literal(event.lifeAspectId()));
+        return sets.isEmpty() ? List.of() : List.of(new Document("$set", sets));
+    }
+
+    private static List<Bson> subGoalCreated(GoalDomainEvent event) {
+        return counters(1, COMPLETED.equals(event.newStatus()) ? 1 : 0);
+    }
+
+    /** The counter only moves when the sub-goal actually enters or leaves COMPLETED. */
+    private static List<Bson> subGoalStatusChanged(GoalDomainEvent event) {
+        int delta = (COMPLETED.equals(event.newStatus()) ? 1 : 0) - (COMPLETED.equals(event.previousStatus()) ? 1 : 0);
+        return delta == 0 ? List.of() : counters(0, delta);
+    }
+
+    /** Deletions carry the status the sub-goal had in {@code previousStatus}. */
+    private static List<Bson> subGoalDeleted(GoalDomainEvent event) {
+        return counters(-1, COMPLETED.equals(event.previousStatus()) ? -1 : 0);
+    }
+
+    /** Moves the sub-goal counters, then recomputes the completion rate from the moved values. */
+    private static List<Bson> counters(int totalDelta, int completedDelta) {
+        return List.of(
+            new Document("$set", new Document()
+                .append("totalSubGoals", new Document("$add", List.of(new Document("$ifNull", List.of("$totalSubGoals", 0)), totalDelta)))
+                .append("completedSubGoals", new Document("$add", List.of(new Document("$ifNull", List.of("$completedSubGoals", 0)), completedDelta)))),
+            RECALCULATE_COMPLETION_RATE
+        );
+    }
+
+    /** Appends the event id to the bounded window and advances {@code lastSequence}. */
+    private static Bson recordApplied(GoalDomainEvent event) {
+        Document sets = new Document("appliedEventIds", new Document("$slice", List.of(
+            new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$appliedEventIds", List.of())),
+                List.of(literal(event.eventId().toString())))),
+            -APPLIED_EVENTS_WINDOW)));
+        if (event.sequence() != null) {
+            sets.append("lastSequence", new Document("$max", List.of("$lastSequence", event.sequence())));
+        }
+        return new Document("$set", sets);
+    }
+
+    private static Bson unlessNewer(Bson newer, String field, Object value) {
+        return new Document("$cond", List.of(newer, "$" + field, literal(value)));
+    }
+
+    /** Event values go into an aggregation pipeline, where a string starting with "$" would be a field path. */
+    private static Bson literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    private static Bson byGoal(String goalId) {
+        return Filters.eq("goalId", goalId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.common.event.GoalDomainEvent;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.WriteModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the snapshot and bucket updates of a sequence of events and applies them with one
+ * ordered bulkWrite per collection. Buckets are written before the snapshots, but since every
+ * update is idempotent a retry after a partial failure converges either way. Bucket updates are
+ * only built when applied, once the entries the buckets already hold have been looked up.
+ * Without snapshots, only the buckets are collected; the write-behind projection keeps the
+ * snapshots itself.
+ */
+public final class SnapshotWrites {
+
+    private final boolean withSnapshots;
+
+    private final List<WriteModel<GoalSnapshot>> snapshots = new ArrayList<>();
+    private final List<GoalDomainEvent> events = new ArrayList<>();
+
+    public SnapshotWrites() {
+        this(true);
+    }
+
+    public SnapshotWrites(boolean withSnapshots) {
+        this.withSnapshots = withSnapshots;
+    }
+
+    public void add(GoalDomainEvent event) {
+        if (withSnapshots) {
+            snapshots.addAll(SnapshotUpdates.forEvent(event));
+        }
+        events.add(event);
+    }
+
+    /** Number of events collected. */
+    public int size() {
+        return events.size();
+    }
+
+    public void applyTo(MongoCollection<GoalSnapshot> snapshotCollection,
+                        MongoCollection<SubGoalBucket> subGoalBucketCollection,
+                        MongoCollection<StatusPeriodBucket> periodBucketCollection) {
+        List<WriteModel<SubGoalBucket>> subGoalBuckets = new ArrayList<>();
+        List<WriteModel<StatusPeriodBucket>> periodBuckets = new ArrayList<>();
+        if (!events.isEmpty()) {
+            Set<String> storedSubGoals = SnapshotBucketUpdates.storedSubGoals(subGoalBucketCollection, events);
+            Set<String> storedPeriods = SnapshotBucketUpdates.storedPeriods(periodBucketCollection, events);
+            for (GoalDomainEvent event : events) {
+                subGoalBuckets.addAll(SnapshotBucketUpdates.subGoalUpdates(event, storedSubGoals));
+                periodBuckets.addAll(SnapshotBucketUpdates.periodUpdates(event, storedPeriods));
+            }
+        }
+        if (!subGoalBuckets.isEmpty()) {
+            subGoalBucketCollection.bulkWrite(subGoalBuckets);
+        }
+        if (!periodBuckets.isEmpty()) {
+            periodBucketCollection.bulkWrite(periodBuckets);
+        }
+        if (!snapshots.isEmpty()) {
+            snapshotCollection.bulkWrite(snapshots);
+        }
+    }
+
+    public void clear() {
+        snapshots.clear();
+        events.clear();
+    }
+}
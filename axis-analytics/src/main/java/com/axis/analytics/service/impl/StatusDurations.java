@@ -0,0 +1,148 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.StatusDurationSketch;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.analytics.model.document.SubGoalSummary;
+import com.axis.analytics.sketch.LogLinearHistogram;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.conversions.Bson;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the status periods a batch of events closes and turns them into {@code $inc} updates of
+ * the duration sketches, guarded per event like the rollup increments (see {@link RollupUpdates}). Start times of periods opened before the batch come from the snapshots
+ * and sub-goal buckets, keyed by {@link #periodKey}; periods opened within the batch are tracked
+ * while folding.
+ */
+final class StatusDurations {
+
+    record ClosedPeriod(GoalDomainEvent closedBy, String status, long durationMs) {}
+
+    private StatusDurations() {
+    }
+
+    static String periodKey(String goalId, String subGoalId) {
+        return subGoalId == null ? goalId : goalId + "/" + subGoalId;
+    }
+
+    /** Start of the open period of each goal and sub-goal, keyed by {@link #periodKey}. */
+    static Map<String, Instant> openPeriodStarts(List<GoalSnapshot> goals, List<SubGoalBucket> subGoalBuckets) {
+        Map<String, Instant> starts = new HashMap<>();
+        for (GoalSnapshot goal : goals) {
+            if (goal.getStatusSince() != null) {
+                starts.put(periodKey(goal.getGoalId(), null), goal.getStatusSince());
+            }
+        }
+        for (SubGoalBucket bucket : subGoalBuckets) {
+            for (SubGoalSummary subGoal : bucket.getSubGoals()) {
+                if (subGoal.getStatusSince() != null) {
+                    starts.put(periodKey(bucket.getGoalId(), subGoal.getSubGoalId()), subGoal.getStatusSince());
+                }
+            }
+        }
+        return starts;
+    }
+
+    /** Goals whose open periods must be known to process the events. */
+    static Set<String> goalsWithStatusChanges(List<GoalDomainEvent> events) {
+        Set<String> goalIds = new LinkedHashSet<>();
+        for (GoalDomainEvent event : events) {
+            if (isStatusChange(event.eventType())) {
+                goalIds.add(event.goalId().toString());
+            }
+        }
+        return goalIds;
+    }
+
+    static List<ClosedPeriod> closedPeriods(List<GoalDomainEvent> events, Map<String, Instant> openedAt) {
+        Map<String, Instant> open = new HashMap<>(openedAt);
+        List<ClosedPeriod> closed = new ArrayList<>();
+        for (GoalDomainEvent event : events) {
+            switch (event.eventType()) {
+                case GOAL_CREATED, SUBGOAL_CREATED -> open.put(key(event), event.occurredAt());
+                case GOAL_STATUS_CHANGED, SUBGOAL_STATUS_CHANGED -> {
+                    Instant since = open.get(key(event));
+                    // A late or redelivered event neither closes nor reopens a newer period
+                    if (since == null || !event.occurredAt().isBefore(since)) {
+                        open.put(key(event), event.occurredAt());
+                        if (since != null && event.previousStatus() != null) {
+                            closed.add(new ClosedPeriod(event, event.previousStatus(),
+                                event.occurredAt().toEpochMilli() - since.toEpochMilli()));
+                        }
+                    }
+                }
+                case GOAL_DELETED, SUBGOAL_DELETED -> open.remove(key(event));
+                default -> {
+                    // Other events do not open or close periods
+                }
+            }
+        }
+        return closed;
+    }
+
+    /** Upserts creating the sketches {@link #sketchUpdates} increments; no-ops once they exist. */
+    static List<WriteModel<StatusDurationSketch>> sketchCreates(List<ClosedPeriod> periods) {
+        List<WriteModel<StatusDurationSketch>> creates = new ArrayList<>();
+        for (ClosedPeriod period : periods) {
+            creates.add(RollupUpdates.createIfMissing(sketch(period, null)));
+            if (period.closedBy().lifeAspectId() != null) {
+                creates.add(RollupUpdates.createIfMissing(sketch(period, period.closedBy().lifeAspectId())));
+            }
+        }
+        return creates;
+    }
+
+    /** Every closed period counts towards the user's overall sketch and, if known, its life aspect's. */
+    static List<WriteModel<StatusDurationSketch>> sketchUpdates(List<ClosedPeriod> periods) {
+        List<WriteModel<StatusDurationSketch>> updates = new ArrayList<>();
+        for (ClosedPeriod period : periods) {
+            updates.add(sketchUpdate(period, null));
+            if (period.closedBy().lifeAspectId() != null) {
+                updates.add(sketchUpdate(period, period.closedBy().lifeAspectId()));
+            }
+        }
+        return updates;
+    }
+
+    private static WriteModel<StatusDurationSketch> sketchUpdate(ClosedPeriod period, String lifeAspectId) {
+        String eventId = period.closedBy().eventId().toString();
+        return new UpdateOneModel<>(
+            RollupUpdates.notYetApplied(sketch(period, lifeAspectId), eventId),
+            Updates.combine(
+                Updates.inc("count", 1L),
+                Updates.inc("sumMs", period.durationMs()),
+                Updates.inc("buckets." + LogLinearHistogram.bucketIndex(period.durationMs()), 1L),
+                RollupUpdates.recordApplied(eventId)));
+    }
+
+    private static Bson sketch(ClosedPeriod period, String lifeAspectId) {
+        GoalDomainEvent event = period.closedBy();
+        return Filters.and(
+            Filters.eq("userId", event.userId().toString()),
+            Filters.eq("entityType", event.entityType()),
+            Filters.eq("lifeAspectId", lifeAspectId),
+            Filters.eq("status", period.status()));
+    }
+
+    private static String key(GoalDomainEvent event) {
+        boolean subGoal = event.eventType().name().startsWith("SUBGOAL_");
+        return periodKey(event.goalId().toString(), subGoal ? event.entityId().toString() : null);
+    }
+
+    private static boolean isStatusChange(GoalEventType type) {
+        return type == GoalEventType.GOAL_STATUS_CHANGED || type == GoalEventType.SUBGOAL_STATUS_CHANGED;
+    }
+}
@@ -0,0 +1,75 @@
+package com.axis.analytics.sketch;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bucketing of a log-linear histogram (the HdrHistogram layout): every power of two is split
+ * into {@value #SUB_BUCKETS} linear sub-buckets, so a bucket's width is at most ~3% of its values.
+ * Counts live in a sparse map keyed by bucket index, which makes histograms mergeable by adding
+ * counts and lets them be maintained in place with {@code $inc}.
+ */
+public final class LogLinearHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private LogLinearHistogram() {
+    }
+
+    /** Bucket of a non-negative value; values below {@value #SUB_BUCKETS} get exact buckets. */
+    public static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Lowest value that falls into the bucket. */
+    public static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    /** Value reported for the bucket: its midpoint. */
+    public static long bucketValue(int index) {
+        long lower = bucketLowerBound(index);
+        long upper = bucketLowerBound(index + 1);
+        return lower + (upper - lower - 1) / 2;
+    }
+
+    /**
+     * Value at quantile {@code q} (0..1) of the histogram, or null when it is empty.
+     *
+     * @param buckets counts by bucket index, as stored
+     */
+    public static Long valueAtQuantile(Map<String, Long> buckets, double q) {
+        TreeMap<Integer, Long> sorted = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> bucket : buckets.entrySet()) {
+            if (bucket.getValue() != null && bucket.getValue() > 0) {
+                sorted.merge(Integer.parseInt(bucket.getKey()), bucket.getValue(), Long::sum);
+                total += bucket.getValue();
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : sorted.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return bucketValue(bucket.getKey());
+            }
+        }
+        return bucketValue(sorted.lastKey());
+    }
+}
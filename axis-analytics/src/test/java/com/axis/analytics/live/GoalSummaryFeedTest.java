@@ -0,0 +1,202 @@
+package com.axis.analytics.live;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.dto.GoalSummaryChange;
+import com.axis.analytics.model.dto.GoalSummaryChange.ChangeType;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.ReactiveGoalSnapshotRepository;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the feed against scripted change streams in place of a replica set: each stream replays
+ * a fixed list of changes and errors, then idles.
+ */
+class GoalSummaryFeedTest {
+
+    private static final UUID USER = UUID.randomUUID();
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final MongoCollection<Document> documents = mockCollection();
+    private AssertSubscriber<GoalSummaryChange> subscriber;
+    private GoalSummaryFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        GoalSnapshotRepository snapshotRepository = mock(GoalSnapshotRepository.class);
+        MongoCollection<GoalSnapshot> snapshots = mockSnapshots();
+        when(snapshotRepository.mongoCollection()).thenReturn(snapshots);
+        when(snapshots.withDocumentClass(Document.class)).thenReturn(documents);
+        when(snapshotRepository.mongoDatabase()).thenReturn(mock(MongoDatabase.class));
+
+        ReactiveGoalSnapshotRepository reactiveSnapshotRepository = mock(ReactiveGoalSnapshotRepository.class);
+        when(reactiveSnapshotRepository.streamSummariesByUserId(USER.toString())).thenReturn(Multi.createFrom().empty());
+
+        feed = new GoalSummaryFeed();
+        feed.snapshotRepository = snapshotRepository;
+        feed.reactiveSnapshotRepository = reactiveSnapshotRepository;
+        feed.meterRegistry = new SimpleMeterRegistry();
+        feed.buffer = 16;
+        feed.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (subscriber != null) {
+            subscriber.cancel();
+        }
+        feed.shutdown();
+    }
+
+    @Test
+    void invalidateSendsResyncAndReopensWithoutTheToken() {
+        ScriptedStream first = new ScriptedStream(insert("goal-1", token("a")), invalidate(token("b")));
+        ScriptedStream second = new ScriptedStream();
+        when(documents.watch(anyList())).thenReturn(first.iterable, second.iterable);
+
+        subscriber = feed.watch(USER).subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        List<GoalSummaryChange> changes = subscriber.awaitItems(2, WAIT).getItems();
+        assertEquals(ChangeType.UPSERT, changes.get(0).type());
+        assertEquals("goal-1", changes.get(0).goalId());
+        assertEquals(ChangeType.RESYNC, changes.get(1).type());
+
+        verify(first.iterable).startAtOperationTime(any(BsonTimestamp.class));
+        verify(second.iterable, timeout(WAIT.toMillis())).cursor();
+        verify(second.iterable, never()).resumeAfter(any());
+        verify(second.iterable, never()).startAtOperationTime(any());
+    }
+
+    @Test
+    void transientErrorResumesAfterTheLastToken() {
+        ScriptedStream first = new ScriptedStream(insert("goal-1", token("a")), new MongoException(6, "host unreachable"));
+        ScriptedStream second = new ScriptedStream(insert("goal-2", token("b")));
+        when(documents.watch(anyList())).thenReturn(first.iterable, second.iterable);
+
+        subscriber = feed.watch(USER).subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        List<GoalSummaryChange> changes = subscriber.awaitItems(2, WAIT).getItems();
+        assertEquals("goal-1", changes.get(0).goalId());
+        assertEquals("goal-2", changes.get(1).goalId());
+        verify(second.iterable).resumeAfter(token("a"));
+        verify(second.iterable, never()).startAtOperationTime(any());
+    }
+
+    @Test
+    void lostHistorySendsResyncAndStartsOver() {
+        ScriptedStream first = new ScriptedStream(insert("goal-1", token("a")), new MongoException(286, "history lost"));
+        ScriptedStream second = new ScriptedStream(insert("goal-2", token("b")));
+        when(documents.watch(anyList())).thenReturn(first.iterable, second.iterable);
+
+        subscriber = feed.watch(USER).subscribe().withSubscriber(AssertSubscriber.create(Long.MAX_VALUE));
+
+        List<GoalSummaryChange> changes = subscriber.awaitItems(3, WAIT).getItems();
+        assertEquals(List.of(ChangeType.UPSERT, ChangeType.RESYNC, ChangeType.UPSERT),
+            changes.stream().map(GoalSummaryChange::type).toList());
+        verify(second.iterable, never()).resumeAfter(any());
+        verify(second.iterable, never()).startAtOperationTime(any());
+    }
+
+    private static ChangeStreamDocument<Document> insert(String goalId, BsonDocument token) {
+        ChangeStreamDocument<Document> change = change(OperationType.INSERT, token);
+        when(change.getFullDocument()).thenReturn(new Document("goalId", goalId)
+            .append("userId", USER.toString())
+            .append("title", "Goal " + goalId)
+            .append("currentStatus", "IN_PROGRESS")
+            .append("completionRate", 0.5));
+        return change;
+    }
+
+    private static ChangeStreamDocument<Document> invalidate(BsonDocument token) {
+        return change(OperationType.INVALIDATE, token);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> change(OperationType type, BsonDocument token) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(type);
+        when(change.getResumeToken()).thenReturn(token);
+        return change;
+    }
+
+    private static BsonDocument token(String value) {
+        return new BsonDocument("_data", new BsonString(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<Document> mockCollection() {
+        return mock(MongoCollection.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MongoCollection<GoalSnapshot> mockSnapshots() {
+        return mock(MongoCollection.class);
+    }
+
+    /**
+     * A change stream that returns its script one entry per {@code tryNext}, throwing the
+     * exceptions in it, and then idles like a stream without new changes.
+     */
+    private static final class ScriptedStream {
+
+        final ChangeStreamIterable<Document> iterable;
+        private final Deque<Object> script;
+        private BsonDocument resumeToken;
+
+        @SuppressWarnings("unchecked")
+        ScriptedStream(Object... script) {
+            this.script = new ArrayDeque<>(List.of(script));
+            MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = mock(MongoChangeStreamCursor.class);
+            when(cursor.tryNext()).thenAnswer(invocation -> next());
+            when(cursor.getResumeToken()).thenAnswer(invocation -> resumeToken);
+            iterable = mock(ChangeStreamIterable.class, RETURNS_SELF);
+            when(iterable.cursor()).thenReturn(cursor);
+        }
+
+        @SuppressWarnings("unchecked")
+        private synchronized ChangeStreamDocument<Document> next() throws InterruptedException {
+            Object entry = script.poll();
+            if (entry == null) {
+                Thread.sleep(10);
+                return null;
+            }
+            if (entry instanceof MongoException e) {
+                throw e;
+            }
+            ChangeStreamDocument<Document> change = (ChangeStreamDocument<Document>) entry;
+            resumeToken = change.getResumeToken();
+            return change;
+        }
+    }
+}
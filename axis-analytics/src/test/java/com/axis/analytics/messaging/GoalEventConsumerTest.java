@@ -0,0 +1,35 @@
+package com.axis.analytics.messaging;
+
+import com.axis.common.event.GoalEventPartitioner;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoalEventConsumerTest {
+
+    private static final int PARTITIONS = 4;
+
+    /** A replica consuming one partition still spreads its goals evenly over all lanes. */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 8, 12})
+    void goalsOfOnePartitionSpreadOverAllLanes(int lanes) {
+        Random random = new Random(42);
+        int[] goalsPerLane = new int[lanes];
+        int goals = 0;
+        while (goals < 10_000 * lanes) {
+            UUID goalId = new UUID(random.nextLong(), random.nextLong());
+            if (GoalEventPartitioner.partition(goalId, PARTITIONS) == 0) {
+                goalsPerLane[GoalEventConsumer.laneIndex(goalId, lanes)]++;
+                goals++;
+            }
+        }
+        for (int lane = 0; lane < lanes; lane++) {
+            assertTrue(Math.abs(goalsPerLane[lane] - 10_000) < 500,
+                "lane " + lane + " of " + lanes + " got " + goalsPerLane[lane] + " goals");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.axis.analytics.messaging;
+
+import com.axis.analytics.messaging.GoalEventBatchLane.Pending;
+import com.axis.analytics.messaging.GoalEventReorderBuffer.Released;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoalEventReorderBufferTest {
+
+    private static final Duration MAX_DELAY = Duration.ofSeconds(2);
+    private static final UUID GOAL = UUID.randomUUID();
+
+    private final List<Collection<String>> loads = new ArrayList<>();
+    private final GoalEventReorderBuffer buffer = new GoalEventReorderBuffer(MAX_DELAY, 100, goalIds -> {
+        loads.add(goalIds);
+        return Map.of(GOAL.toString(), 2L);
+    });
+
+    @Test
+    void eventsFollowingTheLastAppliedOneAreReady() {
+        Released released = buffer.offer(List.of(event(3), event(4)), 0);
+
+        assertEquals(List.of(3L, 4L), sequences(released.ready()));
+        assertTrue(released.stale().isEmpty());
+        assertFalse(buffer.hasWaiting());
+    }
+
+    @Test
+    void eventsAtOrBelowTheLastAppliedOneAreStale() {
+        Released released = buffer.offer(List.of(event(1), event(2), event(3)), 0);
+
+        assertEquals(List.of(3L), sequences(released.ready()));
+        assertEquals(List.of(1L, 2L), sequences(released.stale()));
+    }
+
+    @Test
+    void eventAheadOfAGapWaitsForItsPredecessors() {
+        assertTrue(buffer.offer(List.of(event(5)), 0).ready().isEmpty());
+        assertTrue(buffer.hasWaiting());
+
+        assertEquals(List.of(3L), sequences(buffer.offer(List.of(event(3)), 10).ready()));
+        assertEquals(List.of(4L, 5L), sequences(buffer.offer(List.of(event(4)), 20).ready()));
+        assertFalse(buffer.hasWaiting());
+    }
+
+    @Test
+    void duplicateOfAWaitingEventIsStale() {
+        buffer.offer(List.of(event(5)), 0);
+
+        Released released = buffer.offer(List.of(event(5)), 10);
+
+        assertTrue(released.ready().isEmpty());
+        assertEquals(List.of(5L), sequences(released.stale()));
+    }
+
+    @Test
+    void gapIsSkippedOnceMaxDelayPassed() {
+        long maxDelay = MAX_DELAY.toNanos();
+        buffer.offer(List.of(event(5), event(6)), 0);
+
+        assertTrue(buffer.expire(maxDelay - 1).ready().isEmpty());
+        assertEquals(1, buffer.nanosUntilNextExpiry(maxDelay - 1));
+
+        Released released = buffer.expire(maxDelay);
+        assertEquals(List.of(5L, 6L), sequences(released.ready()));
+        assertFalse(buffer.hasWaiting());
+        // A predecessor arriving after its gap was skipped can no longer be applied in order
+        assertEquals(List.of(3L, 4L), sequences(buffer.offer(List.of(event(3), event(4)), maxDelay + 1).stale()));
+    }
+
+    @Test
+    void expiryOnlyReleasesUpToTheNextGap() {
+        long maxDelay = MAX_DELAY.toNanos();
+        buffer.offer(List.of(event(4), event(6)), 0);
+
+        assertEquals(List.of(4L), sequences(buffer.expire(maxDelay).ready()));
+        assertTrue(buffer.hasWaiting());
+        // The wait for 5 starts over when 4 is released
+        assertEquals(maxDelay, buffer.nanosUntilNextExpiry(maxDelay));
+        assertEquals(List.of(6L), sequences(buffer.expire(2 * maxDelay).ready()));
+    }
+
+    @Test
+    void unsequencedEventsAreReadyRightAway() {
+        Pending unsequenced = new Pending(Message.of(new byte[0]), new GoalDomainEvent(UUID.randomUUID(),
+            GoalEventType.GOAL_UPDATED, "GOAL", GOAL, GOAL, UUID.randomUUID(), null, null, null, "Title", null,
+            null, Instant.now()), false);
+
+        assertEquals(List.of(unsequenced), buffer.offer(List.of(unsequenced), 0).ready());
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void positionIsLoadedOnceAndAgainAfterInvalidation() {
+        buffer.offer(List.of(event(3)), 0);
+        buffer.offer(List.of(event(4)), 10);
+        assertEquals(1, loads.size());
+
+        buffer.invalidate(List.of(event(5)));
+        // Reloaded at 2, so 3 and 4 come again as if they had failed to apply
+        assertEquals(List.of(3L), sequences(buffer.offer(List.of(event(3)), 20).ready()));
+        assertEquals(2, loads.size());
+    }
+
+    private static Pending event(long sequence) {
+        GoalDomainEvent event = new GoalDomainEvent(UUID.randomUUID(), GoalEventType.GOAL_UPDATED, "GOAL", GOAL, GOAL,
+            UUID.randomUUID(), null, null, null, "Title", null, null, Instant.now(), sequence);
+        return new Pending(Message.of(new byte[0]), event, false);
+    }
+
+    private static List<Long> sequences(List<Pending> pending) {
+        return pending.stream().map(p -> p.event().sequence()).toList();
+    }
+}
@@ -0,0 +1,269 @@
+package com.axis.analytics.projection;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.ProjectionCheckpoint;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.ProjectionCheckpointRepository;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventPartitioner;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.cache.Cache;
+import io.smallrye.mutiny.Uni;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Takes partitions over, loses and hands them over against mocked repositories. The checkpoint
+ * repository stands in for the epoch fencing of the checkpoint documents.
+ */
+class SnapshotProjectionTest {
+
+    private static final int PARTITIONS = 4;
+    private static final UUID USER = UUID.randomUUID();
+    private static final Instant T0 = Instant.parse("2026-03-02T10:00:00Z");
+    private static final UUID GOAL = goalIn(0);
+
+    private final GoalSnapshotRepository snapshotRepository = mock(GoalSnapshotRepository.class);
+    private final GoalEventRepository eventRepository = mock(GoalEventRepository.class);
+    private final ProjectionCheckpointRepository checkpointRepository = mock(ProjectionCheckpointRepository.class);
+    private final MongoCollection<GoalSnapshot> snapshots = mockCollection();
+    private final List<GoalSnapshot> storedSnapshots = new ArrayList<>();
+    private SnapshotProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        when(snapshotRepository.mongoCollection()).thenReturn(snapshots);
+        when(snapshotRepository.findAllByGoalIds(anyCollection())).thenAnswer(invocation -> List.copyOf(storedSnapshots));
+        storedEvents();
+        when(checkpointRepository.owns(anyInt(), anyLong())).thenReturn(true);
+        when(checkpointRepository.advance(anyInt(), any(), anyLong())).thenReturn(true);
+        Cache summaryCache = mock(Cache.class);
+        when(summaryCache.invalidate(any())).thenReturn(Uni.createFrom().voidItem());
+
+        projection = new SnapshotProjection();
+        projection.snapshotRepository = snapshotRepository;
+        projection.eventRepository = eventRepository;
+        projection.checkpointRepository = checkpointRepository;
+        projection.summaryCache = summaryCache;
+        projection.meterRegistry = new SimpleMeterRegistry();
+        projection.enabled = true;
+        projection.maxGoals = 1000;
+        projection.flushDirty = 1000;
+        projection.partitions = PARTITIONS;
+        projection.init();
+    }
+
+    @Test
+    void takeOverRecoversTheEventsFromTheCheckpoint() {
+        ObjectId checkpoint = id(10);
+        GoalEventDocument written = stored(id(11), subGoalCreated(GOAL));
+        GoalEventDocument lost = stored(id(12), subGoalCreated(GOAL));
+        storedSnapshots.add(snapshot(1, written.getId()));
+        // The replay reads the whole log from the checkpoint, events of other partitions too
+        storedEvents(written, stored(id(13), subGoalCreated(goalIn(1))), lost);
+        takeOverAt(checkpoint, 7);
+
+        apply(subGoalCreated(GOAL), id(14));
+        projection.flush();
+
+        assertEquals(3, written().getFirst().getTotalSubGoals());
+        verify(checkpointRepository).advance(eq(0), any(), eq(7L));
+    }
+
+    @Test
+    void liveEventStoredBehindTheSnapshotsPositionIsApplied() {
+        // Stamped by a replica whose clock is ahead of this one's
+        storedSnapshots.add(snapshot(1, id(100)));
+        takeOverAt(null, 1);
+
+        apply(subGoalCreated(GOAL), id(20));
+        projection.flush();
+
+        assertEquals(2, written().getFirst().getTotalSubGoals());
+    }
+
+    @Test
+    void pausedPartitionFailsRightAwayAndIsTakenOverOnceResumed() {
+        when(checkpointRepository.takeOver(eq(0), any(), anyString()))
+            .thenReturn(null)
+            .thenReturn(checkpoint(null, 2));
+
+        assertThrows(ProjectionPausedException.class, () -> apply(subGoalCreated(GOAL), id(20)));
+        assertTrue(projection.held(List.of(GOAL.toString())).isEmpty());
+
+        apply(subGoalCreated(GOAL), id(21));
+        assertEquals(1, projection.held(List.of(GOAL.toString())).size());
+        verify(checkpointRepository, times(2)).takeOver(eq(0), any(), anyString());
+    }
+
+    @Test
+    void partitionTakenOverElsewhereIsDroppedWithoutWriting() {
+        takeOverAt(null, 3);
+        apply(subGoalCreated(GOAL), id(20));
+        when(checkpointRepository.owns(0, 3L)).thenReturn(false);
+
+        projection.flush();
+
+        assertTrue(projection.held(List.of(GOAL.toString())).isEmpty());
+        verify(snapshots, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+        verify(checkpointRepository, never()).advance(eq(0), any(), anyLong());
+    }
+
+    @Test
+    void partitionTakenOverBeforeTheCheckpointMovedIsRecoveredWhenDeliveredAgain() {
+        storedSnapshots.add(snapshot(0, null));
+        takeOverAt(id(19), 3);
+        GoalDomainEvent first = subGoalCreated(GOAL);
+        apply(first, id(20));
+        when(checkpointRepository.advance(eq(0), any(), eq(3L))).thenReturn(false);
+        projection.flush();
+        assertTrue(projection.held(List.of(GOAL.toString())).isEmpty());
+
+        // The snapshot was written, the checkpoint stayed before it; the replay skips the event
+        storedSnapshots.set(0, written().getFirst());
+        storedEvents(stored(id(20), first));
+        takeOverAt(id(19), 5);
+        apply(subGoalCreated(GOAL), id(21));
+        projection.flush();
+
+        assertEquals(2, written().getLast().getTotalSubGoals());
+        verify(checkpointRepository).advance(eq(0), any(), eq(5L));
+    }
+
+    @Test
+    void eventsOfAnotherReplicasPartitionAreHandedOver() {
+        UUID other = goalIn(2);
+        GoalDomainEvent redelivered = subGoalCreated(other);
+        when(eventRepository.findIds(List.of(redelivered.eventId().toString()))).thenReturn(List.of(id(15)));
+
+        projection.apply(List.of(subGoalCreated(other), redelivered, subGoalCreated(other)),
+            Arrays.asList(id(30), null, id(31)));
+
+        verify(checkpointRepository).rewind(2, id(15));
+        verify(checkpointRepository, never()).takeOver(anyInt(), any(), anyString());
+        assertTrue(projection.held(List.of(other.toString())).isEmpty());
+    }
+
+    private void apply(GoalDomainEvent event, ObjectId position) {
+        projection.assigned(event);
+        projection.apply(List.of(event), List.of(position));
+    }
+
+    private void takeOverAt(ObjectId position, long epoch) {
+        when(checkpointRepository.takeOver(eq(0), any(), anyString())).thenReturn(checkpoint(position, epoch));
+    }
+
+    private static ProjectionCheckpoint checkpoint(ObjectId position, long epoch) {
+        return ProjectionCheckpoint.builder().partition(0).position(position).epoch(epoch).build();
+    }
+
+    /** The snapshots the write-backs replaced, in order. */
+    @SuppressWarnings("unchecked")
+    private List<GoalSnapshot> written() {
+        ArgumentCaptor<List<WriteModel<GoalSnapshot>>> writes = ArgumentCaptor.forClass(List.class);
+        verify(snapshots, atLeastOnce()).bulkWrite(writes.capture(), any(BulkWriteOptions.class));
+        return writes.getAllValues().stream()
+            .flatMap(List::stream)
+            .map(model -> ((ReplaceOneModel<GoalSnapshot>) model).getReplacement())
+            .toList();
+    }
+
+    /** The events {@code goal_events} returns from now on, in id order. */
+    @SuppressWarnings("unchecked")
+    private void storedEvents(GoalEventDocument... documents) {
+        Iterator<GoalEventDocument> iterator = List.of(documents).iterator();
+        MongoCursor<GoalEventDocument> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        FindIterable<GoalEventDocument> found = mock(FindIterable.class, RETURNS_SELF);
+        when(found.cursor()).thenReturn(cursor);
+        MongoCollection<GoalEventDocument> collection = mock(MongoCollection.class);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(eventRepository.mongoCollection()).thenReturn(collection);
+    }
+
+    private static GoalSnapshot snapshot(int subGoals, ObjectId projectedEventId) {
+        return GoalSnapshot.builder()
+            .goalId(GOAL.toString())
+            .userId(USER.toString())
+            .currentStatus("IN_PROGRESS")
+            .totalSubGoals(subGoals)
+            .projectedEventId(projectedEventId)
+            .build();
+    }
+
+    private static GoalEventDocument stored(ObjectId id, GoalDomainEvent event) {
+        return GoalEventDocument.builder()
+            .id(id)
+            .eventId(event.eventId().toString())
+            .eventType(event.eventType().name())
+            .entityType(event.entityType())
+            .entityId(event.entityId().toString())
+            .goalId(event.goalId().toString())
+            .userId(event.userId().toString())
+            .newStatus(event.newStatus())
+            .occurredAt(event.occurredAt())
+            .build();
+    }
+
+    private static GoalDomainEvent subGoalCreated(UUID goalId) {
+        return new GoalDomainEvent(UUID.randomUUID(), GoalEventType.SUBGOAL_CREATED, "SUB_GOAL", UUID.randomUUID(),
+            goalId, USER, null, null, "IN_PROGRESS", "Step", null, null, T0);
+    }
+
+    /** Ids stored {@code seconds} after T0; a later second sorts after an earlier one. */
+    private static ObjectId id(int seconds) {
+        return new ObjectId(Date.from(T0.plusSeconds(seconds)), 0);
+    }
+
+    private static UUID goalIn(int partition) {
+        UUID goalId;
+        do {
+            goalId = UUID.randomUUID();
+        } while (GoalEventPartitioner.partition(goalId, PARTITIONS) != partition);
+        return goalId;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> MongoCollection<T> mockCollection() {
+        return mock(MongoCollection.class);
+    }
+}
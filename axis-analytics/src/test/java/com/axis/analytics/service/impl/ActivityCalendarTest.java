@@ -0,0 +1,184 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.UserActivity;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityCalendarTest {
+
+    private static final UUID USER = UUID.randomUUID();
+
+    private final UserActivity activity = UserActivity.builder().userId(USER.toString()).build();
+
+    @Test
+    void groupsCompletionsByUserAndIgnoresOtherEvents() {
+        UUID other = UUID.randomUUID();
+        GoalDomainEvent completed = completion(USER, "2026-03-02T10:00:00Z");
+        GoalDomainEvent subGoalCompleted = event(USER, GoalEventType.SUBGOAL_STATUS_CHANGED, "COMPLETED",
+            "2026-03-02T11:00:00Z");
+        GoalDomainEvent otherUser = completion(other, "2026-03-02T12:00:00Z");
+
+        Map<String, List<GoalDomainEvent>> byUser = ActivityCalendar.completionsByUser(List.of(
+            completed,
+            event(USER, GoalEventType.GOAL_STATUS_CHANGED, "IN_PROGRESS", "2026-03-02T10:30:00Z"),
+            event(USER, GoalEventType.GOAL_CREATED, "COMPLETED", "2026-03-02T10:45:00Z"),
+            subGoalCompleted,
+            otherUser));
+
+        assertEquals(Map.of(USER.toString(), List.of(completed, subGoalCompleted), other.toString(), List.of(otherUser)),
+            byUser);
+    }
+
+    @Test
+    void bucketsCompletionsByUtcDay() {
+        ActivityCalendar.record(activity, List.of(
+            completion(USER, "2026-03-02T23:59:59Z"),
+            completion(USER, "2026-03-02T00:00:00Z"),
+            completion(USER, "2026-03-03T00:00:00Z")));
+
+        assertEquals(0, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 1)));
+        assertEquals(2, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 2)));
+        assertEquals(1, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 3)));
+    }
+
+    @Test
+    void dayCountSaturates() {
+        List<GoalDomainEvent> completions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            completions.add(completion(USER, "2026-03-02T10:00:00Z"));
+        }
+        ActivityCalendar.record(activity, completions);
+
+        assertEquals(255, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 2)));
+    }
+
+    @Test
+    void consecutiveDaysExtendTheStreak() {
+        record("2026-03-02T10:00:00Z");
+        record("2026-03-03T10:00:00Z");
+        record("2026-03-04T10:00:00Z");
+
+        assertEquals(LocalDate.of(2026, 3, 4), activity.getLastActiveDay());
+        assertEquals(3, activity.getCurrentStreak());
+        assertEquals(3, activity.getLongestStreak());
+    }
+
+    @Test
+    void gapStartsANewStreakAndKeepsTheLongest() {
+        record("2026-03-02T10:00:00Z");
+        record("2026-03-03T10:00:00Z");
+        record("2026-03-05T10:00:00Z");
+
+        assertEquals(1, activity.getCurrentStreak());
+        assertEquals(2, activity.getLongestStreak());
+    }
+
+    @Test
+    void lateCompletionFillingTheGapMergesTheStreaks() {
+        record("2026-03-02T10:00:00Z");
+        record("2026-03-03T10:00:00Z");
+        record("2026-03-05T10:00:00Z");
+        record("2026-03-04T10:00:00Z");
+
+        assertEquals(LocalDate.of(2026, 3, 5), activity.getLastActiveDay());
+        assertEquals(4, activity.getCurrentStreak());
+        assertEquals(4, activity.getLongestStreak());
+    }
+
+    @Test
+    void lateCompletionBeforeAnEarlierGapLeavesTheCurrentStreak() {
+        record("2026-03-05T10:00:00Z");
+        record("2026-03-06T10:00:00Z");
+        record("2026-03-01T10:00:00Z");
+
+        assertEquals(LocalDate.of(2026, 3, 6), activity.getLastActiveDay());
+        assertEquals(2, activity.getCurrentStreak());
+        assertEquals(2, activity.getLongestStreak());
+    }
+
+    @Test
+    void streakRunsAcrossTheTurnOfTheYear() {
+        record("2025-12-30T10:00:00Z");
+        record("2025-12-31T10:00:00Z");
+        record("2026-01-01T10:00:00Z");
+
+        assertEquals(3, activity.getCurrentStreak());
+        assertEquals(1, ActivityCalendar.count(activity, LocalDate.of(2025, 12, 31)));
+        assertEquals(1, ActivityCalendar.count(activity, LocalDate.of(2026, 1, 1)));
+    }
+
+    @Test
+    void currentStreakBreaksOnceAWholeDayPassedWithoutCompletions() {
+        record("2026-03-02T10:00:00Z");
+        record("2026-03-03T10:00:00Z");
+
+        assertEquals(2, ActivityCalendar.currentStreak(activity, LocalDate.of(2026, 3, 3)));
+        assertEquals(2, ActivityCalendar.currentStreak(activity, LocalDate.of(2026, 3, 4)));
+        assertEquals(0, ActivityCalendar.currentStreak(activity, LocalDate.of(2026, 3, 5)));
+        assertEquals(0, ActivityCalendar.currentStreak(UserActivity.builder().build(), LocalDate.of(2026, 3, 5)));
+    }
+
+    @Test
+    void recordedCompletionsAreSkippedOnRedelivery() {
+        GoalDomainEvent first = completion(USER, "2026-03-02T10:00:00Z");
+        GoalDomainEvent second = completion(USER, "2026-03-03T10:00:00Z");
+
+        assertTrue(ActivityCalendar.record(activity, List.of(first)));
+        assertFalse(ActivityCalendar.record(activity, List.of(first)));
+        assertTrue(ActivityCalendar.record(activity, List.of(first, second)));
+
+        assertEquals(1, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 2)));
+        assertEquals(1, ActivityCalendar.count(activity, LocalDate.of(2026, 3, 3)));
+        assertEquals(2, activity.getCurrentStreak());
+        assertEquals(List.of(first.eventId().toString(), second.eventId().toString()), activity.getAppliedEventIds());
+    }
+
+    @Test
+    void appliedEventIdsKeepTheLatestWindow() {
+        List<GoalDomainEvent> completions = new ArrayList<>();
+        for (int i = 0; i < RollupUpdates.APPLIED_EVENTS_WINDOW + 10; i++) {
+            completions.add(completion(USER, "2026-03-02T10:00:00Z"));
+        }
+        ActivityCalendar.record(activity, completions);
+
+        List<String> applied = activity.getAppliedEventIds();
+        assertEquals(RollupUpdates.APPLIED_EVENTS_WINDOW, applied.size());
+        assertEquals(completions.getLast().eventId().toString(), applied.getLast());
+        assertEquals(completions.get(10).eventId().toString(), applied.getFirst());
+    }
+
+    @Test
+    void emptyCalendarHasNoActiveDay() {
+        assertFalse(ActivityCalendar.record(activity, List.of()));
+        assertNull(activity.getLastActiveDay());
+        assertEquals(0, ActivityCalendar.count(activity, LocalDate.now(ZoneOffset.UTC)));
+    }
+
+    private void record(String occurredAt) {
+        ActivityCalendar.record(activity, List.of(completion(USER, occurredAt)));
+    }
+
+    private static GoalDomainEvent completion(UUID userId, String occurredAt) {
+        return event(userId, GoalEventType.GOAL_STATUS_CHANGED, "COMPLETED", occurredAt);
+    }
+
+    private static GoalDomainEvent event(UUID userId, GoalEventType type, String newStatus, String occurredAt) {
+        UUID goalId = UUID.randomUUID();
+        return new GoalDomainEvent(UUID.randomUUID(), type, "GOAL", goalId, goalId, userId, null, "IN_PROGRESS",
+            newStatus, null, null, null, Instant.parse(occurredAt));
+    }
+}
@@ -0,0 +1,319 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.GoalEventDocument;
+import com.axis.analytics.model.document.StatusDurationSketch;
+import com.axis.analytics.model.document.UserRollup;
+import com.axis.analytics.projection.SnapshotProjection;
+import com.axis.analytics.repository.GoalEventRepository;
+import com.axis.analytics.repository.GoalSnapshotRepository;
+import com.axis.analytics.repository.StatusDurationSketchRepository;
+import com.axis.analytics.repository.StatusPeriodBucketRepository;
+import com.axis.analytics.repository.SubGoalBucketRepository;
+import com.axis.analytics.repository.UserActivityRepository;
+import com.axis.analytics.repository.UserRollupRepository;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.cache.Cache;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Retries a batch that failed part-way through its derived writes. Rollups and duration sketches
+ * live in in-memory stores that apply the bulk writes the way the server would, so the test can
+ * check the counters after the retry.
+ */
+class AnalyticsServiceImplTest {
+
+    private static final UUID USER = UUID.randomUUID();
+    private static final UUID GOAL = UUID.randomUUID();
+    private static final String LIFE_ASPECT = "health";
+    private static final Instant CREATED_AT = Instant.parse("2026-03-02T10:00:00Z");
+    private static final Instant COMPLETED_AT = Instant.parse("2026-03-02T11:00:00Z");
+
+    private final IncrementStore<UserRollup> rollups = new IncrementStore<>();
+    private final IncrementStore<StatusDurationSketch> sketches = new IncrementStore<>();
+    private final GoalEventRepository eventRepository = mock(GoalEventRepository.class);
+    private final List<GoalEventDocument> stored = new ArrayList<>();
+    private AnalyticsServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        // The first attempt stores the events, later ones find them stored and still unprocessed
+        when(eventRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            if (!stored.isEmpty()) {
+                return Set.of(0, 1);
+            }
+            stored.addAll(invocation.getArgument(0));
+            return Set.of();
+        });
+        when(eventRepository.findUnprocessed(anyCollection())).thenAnswer(invocation -> List.copyOf(stored));
+
+        GoalSnapshotRepository snapshotRepository = mock(GoalSnapshotRepository.class);
+        when(snapshotRepository.mongoCollection()).thenReturn(mockCollection());
+        SubGoalBucketRepository subGoalBucketRepository = mock(SubGoalBucketRepository.class);
+        when(subGoalBucketRepository.mongoCollection()).thenReturn(emptyBuckets());
+        StatusPeriodBucketRepository periodBucketRepository = mock(StatusPeriodBucketRepository.class);
+        when(periodBucketRepository.mongoCollection()).thenReturn(emptyBuckets());
+        UserRollupRepository rollupRepository = mock(UserRollupRepository.class);
+        when(rollupRepository.mongoCollection()).thenReturn(rollups.collection);
+        StatusDurationSketchRepository sketchRepository = mock(StatusDurationSketchRepository.class);
+        when(sketchRepository.mongoCollection()).thenReturn(sketches.collection);
+        UserActivityRepository activityRepository = mock(UserActivityRepository.class);
+        when(activityRepository.saveIfUnchanged(any(), anyLong())).thenReturn(true);
+        Cache summaryCache = mock(Cache.class);
+        when(summaryCache.invalidate(any())).thenReturn(Uni.createFrom().voidItem());
+
+        service = new AnalyticsServiceImpl();
+        service.eventRepository = eventRepository;
+        service.snapshotRepository = snapshotRepository;
+        service.subGoalBucketRepository = subGoalBucketRepository;
+        service.periodBucketRepository = periodBucketRepository;
+        service.rollupRepository = rollupRepository;
+        service.sketchRepository = sketchRepository;
+        service.activityRepository = activityRepository;
+        service.projection = mock(SnapshotProjection.class);
+        service.summaryCache = summaryCache;
+        service.meterRegistry = new SimpleMeterRegistry();
+        service.initMetrics();
+    }
+
+    @Test
+    void retryAfterFailureBetweenRollupsAndSketchesCountsEachEventOnce() {
+        sketches.failNextWrite = true;
+
+        assertThrows(MongoException.class, () -> service.processBatch(events()));
+        assertRollups(1, 1);
+        assertEquals(0, sketches.documents.size());
+
+        service.processBatch(events());
+        assertRollups(1, 1);
+        assertSketches(1);
+        verify(eventRepository).markProcessed(anyCollection());
+    }
+
+    @Test
+    void retryAfterAllIncrementsLandedChangesNothing() {
+        doThrow(new MongoException("primary stepped down")).doNothing()
+            .when(eventRepository).markProcessed(anyCollection());
+
+        assertThrows(MongoException.class, () -> service.processBatch(events()));
+        service.processBatch(events());
+
+        assertRollups(1, 1);
+        assertSketches(1);
+        verify(eventRepository, times(2)).markProcessed(anyCollection());
+    }
+
+    private static List<GoalDomainEvent> events() {
+        return List.of(
+            event(GoalEventType.GOAL_CREATED, null, "IN_PROGRESS", CREATED_AT, 1L),
+            event(GoalEventType.GOAL_STATUS_CHANGED, "IN_PROGRESS", "COMPLETED", COMPLETED_AT, 2L));
+    }
+
+    private static GoalDomainEvent event(GoalEventType type, String previousStatus, String newStatus,
+                                         Instant occurredAt, long sequence) {
+        // Redeliveries carry the same event ids
+        UUID eventId = UUID.nameUUIDFromBytes((GOAL + "/" + sequence).getBytes());
+        return new GoalDomainEvent(eventId, type, "GOAL", GOAL, GOAL, USER, LIFE_ASPECT, previousStatus, newStatus,
+            "Run a marathon", null, Map.of(), occurredAt, sequence);
+    }
+
+    /** Every day, week and month bucket counts the goal as created and completed exactly once. */
+    private void assertRollups(long created, long completed) {
+        assertEquals(3, rollups.documents.size());
+        for (BsonDocument rollup : rollups.documents) {
+            assertEquals(created, counter(rollup, "totals.goalsCreated"));
+            assertEquals(completed, counter(rollup, "totals.goalsCompleted"));
+            assertEquals(created, counter(rollup, "lifeAspects." + LIFE_ASPECT + ".goalsCreated"));
+        }
+    }
+
+    /** The hour in progress counts towards the overall and the life aspect's sketch. */
+    private void assertSketches(long count) {
+        assertEquals(2, sketches.documents.size());
+        for (BsonDocument sketch : sketches.documents) {
+            assertEquals("IN_PROGRESS", sketch.getString("status").getValue());
+            assertEquals(count, counter(sketch, "count"));
+            assertEquals(count * 3_600_000L, counter(sketch, "sumMs"));
+        }
+    }
+
+    private static long counter(BsonDocument document, String path) {
+        BsonValue value = document;
+        for (String field : path.split("\\.")) {
+            value = value.asDocument().get(field);
+            if (value == null) {
+                return 0;
+            }
+        }
+        return value.asNumber().longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> MongoCollection<T> mockCollection() {
+        return mock(MongoCollection.class);
+    }
+
+    /** A bucket collection whose lookups find nothing. */
+    @SuppressWarnings("unchecked")
+    private static <T> MongoCollection<T> emptyBuckets() {
+        MongoCollection<T> collection = mockCollection();
+        FindIterable<T> found = mock(FindIterable.class, RETURNS_SELF);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(found.into(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        return collection;
+    }
+
+    /**
+     * Documents held as BSON, updated by unordered bulk writes of {@link UpdateOneModel}s. Supports
+     * what the increments use: equality, {@code $ne} and {@code $and} filters, upserts, and
+     * {@code $setOnInsert}, {@code $inc} and {@code $push} with {@code $each} and {@code $slice}.
+     */
+    private static final class IncrementStore<T> {
+
+        final MongoCollection<T> collection = mockCollection();
+        final List<BsonDocument> documents = new ArrayList<>();
+        boolean failNextWrite;
+
+        @SuppressWarnings("unchecked")
+        IncrementStore() {
+            when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenAnswer(invocation -> {
+                if (failNextWrite) {
+                    failNextWrite = false;
+                    throw new MongoException("connection reset");
+                }
+                List<WriteModel<T>> models = invocation.getArgument(0);
+                models.forEach(model -> apply((UpdateOneModel<T>) model));
+                return null;
+            });
+        }
+
+        private void apply(UpdateOneModel<T> model) {
+            BsonDocument filter = render(model.getFilter());
+            BsonDocument update = render(model.getUpdate());
+            BsonDocument target = documents.stream().filter(document -> matches(document, filter)).findFirst().orElse(null);
+            boolean inserted = target == null;
+            if (inserted) {
+                if (!model.getOptions().isUpsert()) {
+                    return;
+                }
+                target = new BsonDocument();
+                copyEqualities(filter, target);
+                documents.add(target);
+            }
+            for (String operator : update.keySet()) {
+                BsonDocument fields = update.getDocument(operator);
+                switch (operator) {
+                    case "$setOnInsert" -> {
+                        if (inserted) {
+                            fields.forEach(target::put);
+                        }
+                    }
+                    case "$inc" -> fields.forEach((path, by) -> increment(target, path, by.asNumber().longValue()));
+                    case "$push" -> fields.forEach((path, spec) -> push(target, path, spec.asDocument()));
+                    default -> throw new IllegalArgumentException("Unsupported update operator " + operator);
+                }
+            }
+        }
+
+        private static BsonDocument render(Bson bson) {
+            return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+        }
+
+        private static boolean matches(BsonDocument document, BsonDocument filter) {
+            for (Map.Entry<String, BsonValue> condition : filter.entrySet()) {
+                if (condition.getKey().equals("$and")) {
+                    if (!condition.getValue().asArray().stream().allMatch(f -> matches(document, f.asDocument()))) {
+                        return false;
+                    }
+                    continue;
+                }
+                BsonValue actual = document.get(condition.getKey());
+                BsonValue expected = condition.getValue();
+                boolean negated = expected.isDocument() && expected.asDocument().containsKey("$ne");
+                if (negated == holds(actual, negated ? expected.asDocument().get("$ne") : expected)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Equality as a query sees it: null matches a missing field, an array matches its elements. */
+        private static boolean holds(BsonValue actual, BsonValue expected) {
+            if (actual == null || actual.isNull()) {
+                return expected.isNull();
+            }
+            return actual.equals(expected) || actual.isArray() && actual.asArray().contains(expected);
+        }
+
+        private static void copyEqualities(BsonDocument filter, BsonDocument target) {
+            filter.forEach((field, value) -> {
+                if (field.equals("$and")) {
+                    value.asArray().forEach(f -> copyEqualities(f.asDocument(), target));
+                } else if (!value.isDocument()) {
+                    target.put(field, value);
+                }
+            });
+        }
+
+        private static void increment(BsonDocument document, String path, long by) {
+            String[] fields = path.split("\\.");
+            BsonDocument parent = document;
+            for (int i = 0; i < fields.length - 1; i++) {
+                if (!parent.containsKey(fields[i])) {
+                    parent.put(fields[i], new BsonDocument());
+                }
+                parent = parent.getDocument(fields[i]);
+            }
+            BsonValue current = parent.get(fields[fields.length - 1]);
+            parent.put(fields[fields.length - 1], new BsonInt64((current == null ? 0 : current.asNumber().longValue()) + by));
+        }
+
+        private static void push(BsonDocument document, String path, BsonDocument spec) {
+            BsonArray values = document.containsKey(path) ? document.getArray(path) : new BsonArray();
+            values.addAll(spec.getArray("$each"));
+            if (spec.containsKey("$slice")) {
+                int keep = -spec.getNumber("$slice").intValue();
+                while (values.size() > keep) {
+                    values.remove(0);
+                }
+            }
+            document.put(path, values);
+        }
+    }
+}
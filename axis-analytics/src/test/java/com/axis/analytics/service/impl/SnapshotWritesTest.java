@@ -0,0 +1,218 @@
+package com.axis.analytics.service.impl;
+
+import com.axis.analytics.model.document.GoalSnapshot;
+import com.axis.analytics.model.document.StatusPeriod;
+import com.axis.analytics.model.document.StatusPeriodBucket;
+import com.axis.analytics.model.document.SubGoalBucket;
+import com.axis.analytics.model.document.SubGoalSummary;
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Applies redelivered events to a goal whose first bucket is full and whose second still has
+ * room. The bucket collections answer the lookup with the buckets the server would return.
+ */
+class SnapshotWritesTest {
+
+    private static final UUID USER = UUID.randomUUID();
+    private static final UUID GOAL = UUID.randomUUID();
+    private static final Instant T0 = Instant.parse("2026-03-02T10:00:00Z");
+    /** The appended entries are POJOs, as with the codecs of the Mongo client. */
+    private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+        MongoClientSettings.getDefaultCodecRegistry(),
+        CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+    private final MongoCollection<GoalSnapshot> snapshots = mockCollection();
+
+    @Test
+    void redeliveredSubGoalHeldByAFullBucketIsNotAppendedAgain() {
+        UUID redelivered = UUID.randomUUID();
+        UUID created = UUID.randomUUID();
+        // The sub-goal filled the first bucket, and a later one opened the second; the lookup
+        // for the redelivered sub-goal only finds the first
+        MongoCollection<SubGoalBucket> subGoalBuckets = holding(List.of(
+            subGoalBucket(SnapshotBucketUpdates.CAPACITY - 1, redelivered)));
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(subGoalCreated(redelivered));
+        writes.add(subGoalCreated(created));
+        writes.applyTo(snapshots, subGoalBuckets, holding(List.of()));
+
+        List<String> appends = rendered(bulkWritten(subGoalBuckets));
+        assertEquals(1, appends.size());
+        assertTrue(appends.getFirst().contains(created.toString()));
+        assertFalse(appends.getFirst().contains(redelivered.toString()));
+    }
+
+    @Test
+    void subGoalCreatedTwiceInOneBatchIsAppendedOnce() {
+        UUID subGoal = UUID.randomUUID();
+        MongoCollection<SubGoalBucket> subGoalBuckets = holding(List.of());
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(subGoalCreated(subGoal));
+        writes.add(subGoalCreated(subGoal));
+        writes.applyTo(snapshots, subGoalBuckets, holding(List.of()));
+
+        assertEquals(1, bulkWritten(subGoalBuckets).size());
+    }
+
+    @Test
+    void redeliveredStatusChangeOnlyClosesWhenItsPeriodIsStored() {
+        GoalDomainEvent change = statusChanged(T0.plusSeconds(60));
+        MongoCollection<StatusPeriodBucket> periodBuckets = holding(List.of(
+            periodBucket(SnapshotBucketUpdates.CAPACITY, period(change.eventId().toString(), change.occurredAt()))));
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(change);
+        writes.applyTo(snapshots, holding(List.of()), periodBuckets);
+
+        List<String> updates = rendered(bulkWritten(periodBuckets));
+        assertEquals(1, updates.size());
+        assertTrue(updates.getFirst().contains("exitedAt"));
+    }
+
+    @Test
+    void lateStatusChangeSupersededByAStoredPeriodOpensNone() {
+        GoalDomainEvent late = statusChanged(T0.plusSeconds(60));
+        MongoCollection<StatusPeriodBucket> periodBuckets = holding(List.of(
+            periodBucket(SnapshotBucketUpdates.CAPACITY, period(UUID.randomUUID().toString(), T0.plusSeconds(120)))));
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(late);
+        writes.applyTo(snapshots, holding(List.of()), periodBuckets);
+
+        assertEquals(1, bulkWritten(periodBuckets).size());
+    }
+
+    @Test
+    void statusChangeWithoutStoredPeriodClosesAndOpens() {
+        MongoCollection<StatusPeriodBucket> periodBuckets = holding(List.of(
+            periodBucket(1, period(UUID.randomUUID().toString(), T0))));
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(statusChanged(T0.plusSeconds(60)));
+        writes.applyTo(snapshots, holding(List.of()), periodBuckets);
+
+        assertEquals(2, bulkWritten(periodBuckets).size());
+    }
+
+    @Test
+    void eventsWithoutAppendsLookNothingUp() {
+        MongoCollection<SubGoalBucket> subGoalBuckets = holding(List.of());
+        MongoCollection<StatusPeriodBucket> periodBuckets = holding(List.of());
+
+        SnapshotWrites writes = new SnapshotWrites();
+        writes.add(new GoalDomainEvent(UUID.randomUUID(), GoalEventType.GOAL_UPDATED, "GOAL", GOAL, GOAL, USER,
+            null, null, null, "Renamed", null, null, T0, 1L));
+        writes.applyTo(snapshots, subGoalBuckets, periodBuckets);
+
+        verify(subGoalBuckets, never()).find(any(Bson.class));
+        verify(periodBuckets, never()).find(any(Bson.class));
+    }
+
+    private static GoalDomainEvent subGoalCreated(UUID subGoalId) {
+        return new GoalDomainEvent(UUID.nameUUIDFromBytes(subGoalId.toString().getBytes()), GoalEventType.SUBGOAL_CREATED,
+            "SUB_GOAL", subGoalId, GOAL, USER, null, null, "IN_PROGRESS", "Step", null, null, T0);
+    }
+
+    private static GoalDomainEvent statusChanged(Instant occurredAt) {
+        return new GoalDomainEvent(UUID.nameUUIDFromBytes(occurredAt.toString().getBytes()),
+            GoalEventType.GOAL_STATUS_CHANGED, "GOAL", GOAL, GOAL, USER, null, "IN_PROGRESS", "COMPLETED", null, null,
+            null, occurredAt);
+    }
+
+    /** A bucket holding {@code others} unrelated sub-goals and, if given, {@code subGoalId}. */
+    private static SubGoalBucket subGoalBucket(int others, UUID subGoalId) {
+        List<SubGoalSummary> subGoals = IntStream.range(0, others)
+            .mapToObj(i -> SubGoalSummary.builder().subGoalId(UUID.randomUUID().toString()).build())
+            .collect(Collectors.toCollection(ArrayList::new));
+        if (subGoalId != null) {
+            subGoals.add(SubGoalSummary.builder().subGoalId(subGoalId.toString()).build());
+        }
+        return SubGoalBucket.builder().goalId(GOAL.toString()).count(subGoals.size()).subGoals(subGoals).build();
+    }
+
+    /** A goal's bucket whose last period is {@code last}, preceded by {@code size - 1} closed ones. */
+    private static StatusPeriodBucket periodBucket(int size, StatusPeriod last) {
+        List<StatusPeriod> periods = IntStream.range(0, size - 1)
+            .mapToObj(i -> period(UUID.randomUUID().toString(), T0.minusSeconds(3600L * (size - i))))
+            .collect(Collectors.toCollection(ArrayList::new));
+        periods.add(last);
+        return StatusPeriodBucket.builder().goalId(GOAL.toString()).count(size).periods(periods).build();
+    }
+
+    private static StatusPeriod period(String openedBy, Instant enteredAt) {
+        return StatusPeriod.builder().status("IN_PROGRESS").enteredAt(enteredAt).openedBy(openedBy).build();
+    }
+
+    /** A bucket collection whose lookups return {@code buckets}. */
+    @SuppressWarnings("unchecked")
+    private static <T> MongoCollection<T> holding(List<T> buckets) {
+        MongoCollection<T> collection = mock(MongoCollection.class);
+        FindIterable<T> found = mock(FindIterable.class, RETURNS_SELF);
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        when(found.into(any())).thenAnswer(invocation -> {
+            Collection<T> target = invocation.getArgument(0);
+            target.addAll(buckets);
+            return target;
+        });
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<WriteModel<T>> bulkWritten(MongoCollection<T> collection) {
+        ArgumentCaptor<List<WriteModel<T>>> models = ArgumentCaptor.forClass(List.class);
+        verify(collection).bulkWrite(models.capture());
+        return models.getValue();
+    }
+
+    /** The updates as JSON, pipeline stages joined. */
+    private static <T> List<String> rendered(List<WriteModel<T>> models) {
+        return models.stream()
+            .map(model -> (UpdateOneModel<T>) model)
+            .map(model -> model.getUpdatePipeline() != null
+                ? model.getUpdatePipeline().stream().map(SnapshotWritesTest::json).collect(Collectors.joining())
+                : json(model.getUpdate()))
+            .toList();
+    }
+
+    private static String json(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, CODECS).toJson();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> MongoCollection<T> mockCollection() {
+        return mock(MongoCollection.class);
+    }
+}
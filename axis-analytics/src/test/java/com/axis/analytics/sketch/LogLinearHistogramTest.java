@@ -0,0 +1,85 @@
+package com.axis.analytics.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogLinearHistogramTest {
+
+    /** Buckets up to values of about 2^50, some 35 years in milliseconds. */
+    private static final int MAX_INDEX = 46 * LogLinearHistogram.SUB_BUCKETS;
+
+    @Test
+    void lowerBoundsAreTheSmallestValuesOfTheirBuckets() {
+        long previous = -1;
+        for (int index = 0; index < MAX_INDEX; index++) {
+            long lower = LogLinearHistogram.bucketLowerBound(index);
+            long nextLower = LogLinearHistogram.bucketLowerBound(index + 1);
+            assertTrue(lower > previous, "bound of bucket " + index);
+            assertEquals(index, LogLinearHistogram.bucketIndex(lower), "lowest value of bucket " + index);
+            assertEquals(index, LogLinearHistogram.bucketIndex(nextLower - 1), "highest value of bucket " + index);
+            previous = lower;
+        }
+    }
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        for (int value = 0; value < LogLinearHistogram.SUB_BUCKETS; value++) {
+            assertEquals(value, LogLinearHistogram.bucketIndex(value));
+            assertEquals(value, LogLinearHistogram.bucketValue(value));
+        }
+        assertEquals(0, LogLinearHistogram.bucketIndex(-5));
+    }
+
+    @Test
+    void reportedValueIsWithinThreePercent() {
+        Random random = new Random(42);
+        for (long value = 1; value <= 100_000; value++) {
+            assertWithinThreePercent(value);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertWithinThreePercent(1 + (random.nextLong() >>> 14));
+        }
+    }
+
+    @Test
+    void emptyHistogramHasNoQuantiles() {
+        assertNull(LogLinearHistogram.valueAtQuantile(Map.of(), 0.5));
+        assertNull(LogLinearHistogram.valueAtQuantile(Map.of("40", 0L), 0.5));
+    }
+
+    @Test
+    void singleBucketAnswersEveryQuantile() {
+        Map<String, Long> buckets = Map.of("40", 3L);
+        long value = LogLinearHistogram.bucketValue(40);
+
+        assertEquals(value, LogLinearHistogram.valueAtQuantile(buckets, 0.0));
+        assertEquals(value, LogLinearHistogram.valueAtQuantile(buckets, 0.5));
+        assertEquals(value, LogLinearHistogram.valueAtQuantile(buckets, 1.0));
+    }
+
+    @Test
+    void quantilesFollowTheCountsInBucketOrder() {
+        Map<String, Long> buckets = new HashMap<>();
+        buckets.put("70", 1L);
+        buckets.put("10", 1L);
+        buckets.put("40", 2L);
+
+        assertEquals(LogLinearHistogram.bucketValue(10), LogLinearHistogram.valueAtQuantile(buckets, 0.25));
+        assertEquals(LogLinearHistogram.bucketValue(40), LogLinearHistogram.valueAtQuantile(buckets, 0.5));
+        assertEquals(LogLinearHistogram.bucketValue(40), LogLinearHistogram.valueAtQuantile(buckets, 0.75));
+        assertEquals(LogLinearHistogram.bucketValue(70), LogLinearHistogram.valueAtQuantile(buckets, 0.76));
+        assertEquals(LogLinearHistogram.bucketValue(70), LogLinearHistogram.valueAtQuantile(buckets, 1.0));
+    }
+
+    private static void assertWithinThreePercent(long value) {
+        long reported = LogLinearHistogram.bucketValue(LogLinearHistogram.bucketIndex(value));
+        assertTrue(Math.abs(reported - value) <= 0.03 * value, value + " reported as " + reported);
+    }
+}
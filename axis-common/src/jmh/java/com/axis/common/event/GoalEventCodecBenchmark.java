@@ -0,0 +1,74 @@
+package com.axis.common.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and binary goal event encodings.
+ * Run with {@code ./gradlew :axis-common:jmh}; encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoalEventCodecBenchmark {
+
+    @Param({"0", "200", "4000"})
+    int descriptionLength;
+
+    private GoalDomainEvent event;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UUID goalId = UUID.randomUUID();
+        event = new GoalDomainEvent(
+            UUID.randomUUID(), GoalEventType.GOAL_STATUS_CHANGED, "GOAL",
+            goalId, goalId, UUID.randomUUID(), UUID.randomUUID().toString(),
+            "READY", "IN_PROGRESS", "Run a half marathon", "x".repeat(descriptionLength),
+            Map.of("title", "Run a half marathon", "position", 3), Instant.now()
+        );
+        json = GoalEventCodec.encode(event, GoalEventCodec.JSON);
+        binary = GoalEventCodec.encode(event, GoalEventCodec.BINARY_V1);
+        System.out.printf("%ndescriptionLength=%d json=%d bytes binary=%d bytes%n",
+            descriptionLength, json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return GoalEventCodec.encode(event, GoalEventCodec.JSON);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return GoalEventCodec.encode(event, GoalEventCodec.BINARY_V1);
+    }
+
+    @Benchmark
+    public GoalDomainEvent decodeJson() {
+        return GoalEventCodec.decode(GoalEventCodec.JSON, json);
+    }
+
+    @Benchmark
+    public GoalDomainEvent decodeBinary() {
+        return GoalEventCodec.decode(GoalEventCodec.BINARY_V1, binary);
+    }
+}
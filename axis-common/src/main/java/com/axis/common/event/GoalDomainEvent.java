@@ -4,6 +4,10 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * @param sequence position of the event among all events of its goal, assigned by the publisher
+ *                 and increasing by one per event; null for events published without one
+ */
 public record GoalDomainEvent(
     UUID eventId,
     GoalEventType eventType,
@@ -17,5 +21,19 @@ public record GoalDomainEvent(
     String title,
     String description,
     Map<String, Object> changes,
-    Instant occurredAt
-) {}
\ No newline at end of file
+    Instant occurredAt,
+    Long sequence
+) {
+
+    public GoalDomainEvent(UUID eventId, GoalEventType eventType, String entityType, UUID entityId, UUID goalId,
+                           UUID userId, String lifeAspectId, String previousStatus, String newStatus, String title,
+                           String description, Map<String, Object> changes, Instant occurredAt) {
+        this(eventId, eventType, entityType, entityId, goalId, userId, lifeAspectId, previousStatus, newStatus,
+            title, description, changes, occurredAt, null);
+    }
+
+    public GoalDomainEvent withSequence(long sequence) {
+        return new GoalDomainEvent(eventId, eventType, entityType, entityId, goalId, userId, lifeAspectId,
+            previousStatus, newStatus, title, description, changes, occurredAt, sequence);
+    }
+}
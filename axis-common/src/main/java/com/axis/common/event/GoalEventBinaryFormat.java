@@ -0,0 +1,330 @@
+package com.axis.common.event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hand-written binary layout of {@link GoalDomainEvent}.
+ *
+ * <pre>
+ * magic(1) version(1) presence(varint)
+ * eventId(16) eventType(varint code) entityType(str) entityId(16) goalId(16) userId(16)
+ * lifeAspectId(str) previousStatus(str) newStatus(str) title(str) description(str)
+ * changes(map) occurredAt(varlong seconds, varint nanos) sequence(varlong)
+ * </pre>
+ *
+ * Nullable fields are only written when their presence bit is set. Strings are varint-length
+ * prefixed UTF-8. Event types use stable wire codes instead of ordinals; new types and new fields
+ * may only be appended, and readers ignore trailing bytes they do not know.
+ */
+final class GoalEventBinaryFormat {
+
+    static final byte MAGIC = (byte) 0xA7;
+    static final byte VERSION = 1;
+
+    // Wire codes are positions in this list. Append only, never reorder.
+    private static final List<GoalEventType> WIRE_TYPES = List.of(
+        GoalEventType.GOAL_CREATED,
+        GoalEventType.GOAL_UPDATED,
+        GoalEventType.GOAL_STATUS_CHANGED,
+        GoalEventType.GOAL_DELETED,
+        GoalEventType.SUBGOAL_CREATED,
+        GoalEventType.SUBGOAL_UPDATED,
+        GoalEventType.SUBGOAL_STATUS_CHANGED,
+        GoalEventType.SUBGOAL_DELETED,
+        GoalEventType.GOAL_DEADLINE_APPROACHING,
+        GoalEventType.SUBGOAL_DEADLINE_APPROACHING
+    );
+
+    private static final int HAS_EVENT_ID = 1;
+    private static final int HAS_ENTITY_TYPE = 1 << 1;
+    private static final int HAS_ENTITY_ID = 1 << 2;
+    private static final int HAS_GOAL_ID = 1 << 3;
+    private static final int HAS_USER_ID = 1 << 4;
+    private static final int HAS_LIFE_ASPECT_ID = 1 << 5;
+    private static final int HAS_PREVIOUS_STATUS = 1 << 6;
+    private static final int HAS_NEW_STATUS = 1 << 7;
+    private static final int HAS_TITLE = 1 << 8;
+    private static final int HAS_DESCRIPTION = 1 << 9;
+    private static final int HAS_CHANGES = 1 << 10;
+    private static final int HAS_OCCURRED_AT = 1 << 11;
+    private static final int HAS_SEQUENCE = 1 << 12;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_STRING = 1;
+    private static final byte T_LONG = 2;
+    private static final byte T_DOUBLE = 3;
+    private static final byte T_TRUE = 4;
+    private static final byte T_FALSE = 5;
+    private static final byte T_MAP = 6;
+    private static final byte T_LIST = 7;
+
+    private GoalEventBinaryFormat() {
+    }
+
+    static byte[] encode(GoalDomainEvent event) {
+        Writer out = new Writer(estimateSize(event));
+        int presence = 0;
+        if (event.eventId() != null) presence |= HAS_EVENT_ID;
+        if (event.entityType() != null) presence |= HAS_ENTITY_TYPE;
+        if (event.entityId() != null) presence |= HAS_ENTITY_ID;
+        if (event.goalId() != null) presence |= HAS_GOAL_ID;
+        if (event.userId() != null) presence |= HAS_USER_ID;
+        if (event.lifeAspectId() != null) presence |= HAS_LIFE_ASPECT_ID;
+        if (event.previousStatus() != null) presence |= HAS_PREVIOUS_STATUS;
+        if (event.newStatus() != null) presence |= HAS_NEW_STATUS;
+        if (event.title() != null) presence |= HAS_TITLE;
+        if (event.description() != null) presence |= HAS_DESCRIPTION;
+        if (event.changes() != null) presence |= HAS_CHANGES;
+        if (event.occurredAt() != null) presence |= HAS_OCCURRED_AT;
+        if (event.sequence() != null) presence |= HAS_SEQUENCE;
+
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.writeVarLong(presence);
+        if ((presence & HAS_EVENT_ID) != 0) out.writeUuid(event.eventId());
+        out.writeVarLong(wireCode(event.eventType()));
+        if ((presence & HAS_ENTITY_TYPE) != 0) out.writeString(event.entityType());
+        if ((presence & HAS_ENTITY_ID) != 0) out.writeUuid(event.entityId());
+        if ((presence & HAS_GOAL_ID) != 0) out.writeUuid(event.goalId());
+        if ((presence & HAS_USER_ID) != 0) out.writeUuid(event.userId());
+        if ((presence & HAS_LIFE_ASPECT_ID) != 0) out.writeString(event.lifeAspectId());
+        if ((presence & HAS_PREVIOUS_STATUS) != 0) out.writeString(event.previousStatus());
+        if ((presence & HAS_NEW_STATUS) != 0) out.writeString(event.newStatus());
+        if ((presence & HAS_TITLE) != 0) out.writeString(event.title());
+        if ((presence & HAS_DESCRIPTION) != 0) out.writeString(event.description());
+        if ((presence & HAS_CHANGES) != 0) out.writeMap(event.changes());
+        if ((presence & HAS_OCCURRED_AT) != 0) {
+            out.writeVarLong(zigZag(event.occurredAt().getEpochSecond()));
+            out.writeVarLong(event.occurredAt().getNano());
+        }
+        if ((presence & HAS_SEQUENCE) != 0) out.writeVarLong(event.sequence());
+        return out.toByteArray();
+    }
+
+    static GoalDomainEvent decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        if (in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary goal event");
+        }
+        byte version = in.readByte();
+        if (version < 1) {
+            throw new IllegalArgumentException("Unsupported goal event version: " + version);
+        }
+        int presence = (int) in.readVarLong();
+        UUID eventId = (presence & HAS_EVENT_ID) != 0 ? in.readUuid() : null;
+        GoalEventType eventType = fromWireCode((int) in.readVarLong());
+        String entityType = (presence & HAS_ENTITY_TYPE) != 0 ? in.readString() : null;
+        UUID entityId = (presence & HAS_ENTITY_ID) != 0 ? in.readUuid() : null;
+        UUID goalId = (presence & HAS_GOAL_ID) != 0 ? in.readUuid() : null;
+        UUID userId = (presence & HAS_USER_ID) != 0 ? in.readUuid() : null;
+        String lifeAspectId = (presence & HAS_LIFE_ASPECT_ID) != 0 ? in.readString() : null;
+        String previousStatus = (presence & HAS_PREVIOUS_STATUS) != 0 ? in.readString() : null;
+        String newStatus = (presence & HAS_NEW_STATUS) != 0 ? in.readString() : null;
+        String title = (presence & HAS_TITLE) != 0 ? in.readString() : null;
+        String description = (presence & HAS_DESCRIPTION) != 0 ? in.readString() : null;
+        Map<String, Object> changes = (presence & HAS_CHANGES) != 0 ? in.readMap() : null;
+        Instant occurredAt = null;
+        if ((presence & HAS_OCCURRED_AT) != 0) {
+            long seconds = unZigZag(in.readVarLong());
+            occurredAt = Instant.ofEpochSecond(seconds, in.readVarLong());
+        }
+        Long sequence = (presence & HAS_SEQUENCE) != 0 ? in.readVarLong() : null;
+        // Fields appended by newer versions are skipped
+        return new GoalDomainEvent(eventId, eventType, entityType, entityId, goalId, userId, lifeAspectId,
+            previousStatus, newStatus, title, description, changes, occurredAt, sequence);
+    }
+
+    private static int wireCode(GoalEventType type) {
+        int code = WIRE_TYPES.indexOf(type);
+        if (code < 0) {
+            throw new IllegalArgumentException("Event type has no wire code: " + type);
+        }
+        return code;
+    }
+
+    private static GoalEventType fromWireCode(int code) {
+        if (code < 0 || code >= WIRE_TYPES.size()) {
+            throw new IllegalArgumentException("Unknown goal event type code: " + code);
+        }
+        return WIRE_TYPES.get(code);
+    }
+
+    private static int estimateSize(GoalDomainEvent event) {
+        int size = 96;
+        if (event.title() != null) size += event.title().length();
+        if (event.description() != null) size += event.description().length();
+        return size;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int count;
+
+        Writer(int size) {
+            this.buf = new byte[size];
+        }
+
+        void write(int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        void write(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[count++] = (byte) value;
+        }
+
+        void writeFixedLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeUuid(UUID uuid) {
+            writeFixedLong(uuid.getMostSignificantBits());
+            writeFixedLong(uuid.getLeastSignificantBits());
+        }
+
+        void writeString(String value) {
+            byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(raw.length);
+            write(raw);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (count + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+            }
+        }
+
+        void writeMap(Map<String, Object> map) {
+            writeVarLong(map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void writeValue(Object value) {
+            switch (value) {
+                case null -> write(T_NULL);
+                case String s -> { write(T_STRING); writeString(s); }
+                case Boolean b -> write(b ? T_TRUE : T_FALSE);
+                case Double d -> { write(T_DOUBLE); writeFixedLong(Double.doubleToRawLongBits(d)); }
+                case Float f -> { write(T_DOUBLE); writeFixedLong(Double.doubleToRawLongBits(f)); }
+                case Number n -> { write(T_LONG); writeVarLong(zigZag(n.longValue())); }
+                case Map<?, ?> m -> { write(T_MAP); writeMap((Map<String, Object>) m); }
+                case List<?> l -> {
+                    write(T_LIST);
+                    writeVarLong(l.size());
+                    l.forEach(this::writeValue);
+                }
+                // Anything else (UUID, Instant, enums) travels as its string form, as it would in JSON
+                default -> { write(T_STRING); writeString(value.toString()); }
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+
+        Reader(byte[] bytes) {
+            this.buffer = ByteBuffer.wrap(bytes);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        UUID readUuid() {
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        Map<String, Object> readMap() {
+            int size = (int) readVarLong();
+            Map<String, Object> map = new LinkedHashMap<>(Math.max(4, size * 2));
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readValue());
+            }
+            return map;
+        }
+
+        Object readValue() {
+            byte tag = buffer.get();
+            return switch (tag) {
+                case T_NULL -> null;
+                case T_STRING -> readString();
+                case T_LONG -> {
+                    // Same narrowing as Jackson, so both encodings yield equal maps
+                    long value = unZigZag(readVarLong());
+                    yield value == (int) value ? (Object) (int) value : (Object) value;
+                }
+                case T_DOUBLE -> Double.longBitsToDouble(buffer.getLong());
+                case T_TRUE -> Boolean.TRUE;
+                case T_FALSE -> Boolean.FALSE;
+                case T_MAP -> readMap();
+                case T_LIST -> {
+                    int size = (int) readVarLong();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    yield list;
+                }
+                default -> throw new IllegalArgumentException("Unknown value tag: " + tag);
+            };
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.axis.common.event;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Encodes and decodes {@link GoalDomainEvent} payloads by message content type.
+ * Consumers accept every supported content type, so producers can switch encodings
+ * independently once all consumers run a version that understands the new one.
+ */
+public final class GoalEventCodec {
+
+    public static final String JSON = "application/json";
+    public static final String BINARY_V1 = "application/vnd.axis.goal-event.v1+binary";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private GoalEventCodec() {
+    }
+
+    public static boolean supports(String contentType) {
+        String normalized = normalize(contentType);
+        return JSON.equals(normalized) || BINARY_V1.equals(normalized);
+    }
+
+    public static byte[] encode(GoalDomainEvent event, String contentType) {
+        String normalized = normalize(contentType);
+        if (BINARY_V1.equals(normalized)) {
+            return GoalEventBinaryFormat.encode(event);
+        }
+        if (JSON.equals(normalized)) {
+            try {
+                return MAPPER.writeValueAsBytes(event);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to encode goal event as JSON", e);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported goal event content type: " + contentType);
+    }
+
+    /**
+     * Decodes a payload. A missing content type is treated as JSON, which is what producers
+     * sent before content types were negotiated.
+     */
+    public static GoalDomainEvent decode(String contentType, byte[] body) {
+        String normalized = contentType == null ? JSON : normalize(contentType);
+        if (BINARY_V1.equals(normalized)) {
+            return GoalEventBinaryFormat.decode(body);
+        }
+        if (JSON.equals(normalized)) {
+            try {
+                return MAPPER.readValue(body, GoalDomainEvent.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to decode goal event JSON", e);
+            }
+        }
+        throw new IllegalArgumentException("Unsupported goal event content type: " + contentType);
+    }
+
+    private static String normalize(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = parameters >= 0 ? contentType.substring(0, parameters) : contentType;
+        return mediaType.trim().toLowerCase(Locale.ROOT);
+    }
+}
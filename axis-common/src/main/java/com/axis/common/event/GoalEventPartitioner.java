@@ -0,0 +1,39 @@
+package com.axis.common.event;
+
+import java.util.UUID;
+
+/**
+ * Maps a goal to one of N event partitions with Lamping and Veach's jump consistent hash.
+ * All events of a goal land in the same partition, and growing from N to N+1 partitions
+ * only moves about 1/(N+1) of the goals.
+ */
+public final class GoalEventPartitioner {
+
+    public static final String ROUTING_KEY_PREFIX = "goal.event.";
+
+    private GoalEventPartitioner() {
+    }
+
+    public static int partition(UUID goalId, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+        long key = goalId.getMostSignificantBits() ^ goalId.getLeastSignificantBits();
+        long b = -1;
+        long j = 0;
+        while (j < partitions) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    public static String routingKey(int partition) {
+        return ROUTING_KEY_PREFIX + partition;
+    }
+
+    public static String routingKey(UUID goalId, int partitions) {
+        return routingKey(partition(goalId, partitions));
+    }
+}
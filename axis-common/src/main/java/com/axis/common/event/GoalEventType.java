@@ -5,8 +5,10 @@ public enum GoalEventType {
     GOAL_UPDATED,
     GOAL_STATUS_CHANGED,
     GOAL_DELETED,
+    GOAL_DEADLINE_APPROACHING,
     SUBGOAL_CREATED,
     SUBGOAL_UPDATED,
     SUBGOAL_STATUS_CHANGED,
-    SUBGOAL_DELETED
+    SUBGOAL_DELETED,
+    SUBGOAL_DEADLINE_APPROACHING
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.axis.common.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoalEventCodecTest {
+
+    @ParameterizedTest
+    @EnumSource(GoalEventType.class)
+    void everyEventTypeRoundTripsInBothEncodings(GoalEventType type) {
+        GoalDomainEvent event = fullEvent(type);
+
+        assertEquals(event, roundTrip(event, GoalEventCodec.BINARY_V1));
+        assertEquals(event, roundTrip(event, GoalEventCodec.JSON));
+    }
+
+    @Test
+    void instantsBeforeTheEpochKeepTheirNanos() {
+        GoalDomainEvent event = new GoalDomainEvent(null, GoalEventType.GOAL_UPDATED, null, null, null, null, null,
+            null, null, null, null, null, Instant.parse("1969-12-31T23:59:59.123456789Z"));
+
+        assertEquals(event.occurredAt(), roundTrip(event, GoalEventCodec.BINARY_V1).occurredAt());
+    }
+
+    @Test
+    void eventWithoutOptionalFieldsIsHeaderAndTypeOnly() {
+        GoalDomainEvent event = onlyType(GoalEventType.GOAL_DELETED);
+
+        byte[] bytes = GoalEventCodec.encode(event, GoalEventCodec.BINARY_V1);
+
+        assertArrayEquals(new byte[]{GoalEventBinaryFormat.MAGIC, GoalEventBinaryFormat.VERSION, 0, 3}, bytes);
+        assertEquals(event, GoalEventCodec.decode(GoalEventCodec.BINARY_V1, bytes));
+    }
+
+    @Test
+    void presenceBitsKeepNullApartFromEmpty() {
+        GoalDomainEvent event = new GoalDomainEvent(null, GoalEventType.GOAL_UPDATED, null, null, null, null,
+            null, null, null, "", null, Map.of(), null, 0L);
+
+        byte[] bytes = GoalEventCodec.encode(event, GoalEventCodec.BINARY_V1);
+        GoalDomainEvent decoded = GoalEventCodec.decode(GoalEventCodec.BINARY_V1, bytes);
+
+        // title (bit 8), changes (bit 10) and sequence (bit 12) as a two byte varint
+        assertEquals((byte) 0x80, bytes[2]);
+        assertEquals((byte) 0x2a, bytes[3]);
+        assertEquals("", decoded.title());
+        assertEquals(Map.of(), decoded.changes());
+        assertEquals(0L, decoded.sequence());
+        assertNull(decoded.description());
+        assertNull(decoded.eventId());
+        assertNull(decoded.occurredAt());
+    }
+
+    @Test
+    void wireCodesAreNotOrdinals() {
+        byte[] bytes = GoalEventCodec.encode(onlyType(GoalEventType.GOAL_DEADLINE_APPROACHING),
+            GoalEventCodec.BINARY_V1);
+
+        assertEquals(8, bytes[3]);
+    }
+
+    @Test
+    void fieldsAppendedByANewerVersionAreSkipped() {
+        GoalDomainEvent event = fullEvent(GoalEventType.SUBGOAL_STATUS_CHANGED);
+        byte[] current = GoalEventCodec.encode(event, GoalEventCodec.BINARY_V1);
+        byte[] appended = "\u0007trailer".getBytes(StandardCharsets.UTF_8);
+        byte[] newer = Arrays.copyOf(current, current.length + appended.length);
+        System.arraycopy(appended, 0, newer, current.length, appended.length);
+        newer[1] = GoalEventBinaryFormat.VERSION + 1;
+
+        assertEquals(event, GoalEventCodec.decode(GoalEventCodec.BINARY_V1, newer));
+    }
+
+    @Test
+    void eventTypeOfANewerVersionIsRejected() {
+        byte[] bytes = {GoalEventBinaryFormat.MAGIC, GoalEventBinaryFormat.VERSION + 1, 0, 10};
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> GoalEventCodec.decode(GoalEventCodec.BINARY_V1, bytes));
+        assertTrue(error.getMessage().contains("10"), error.getMessage());
+    }
+
+    @Test
+    void payloadsThatAreNotBinaryEventsAreRejected() {
+        byte[] json = GoalEventCodec.encode(fullEvent(GoalEventType.GOAL_CREATED), GoalEventCodec.JSON);
+
+        assertThrows(IllegalArgumentException.class, () -> GoalEventCodec.decode(GoalEventCodec.BINARY_V1, json));
+        assertThrows(IllegalArgumentException.class, () -> GoalEventCodec.decode(GoalEventCodec.BINARY_V1,
+            new byte[]{GoalEventBinaryFormat.MAGIC, 0, 0, 0}));
+    }
+
+    @Test
+    void contentTypesAreMatchedWithoutParametersAndCase() {
+        GoalDomainEvent event = fullEvent(GoalEventType.GOAL_CREATED);
+
+        assertEquals(event, GoalEventCodec.decode("Application/JSON; charset=UTF-8",
+            GoalEventCodec.encode(event, GoalEventCodec.JSON)));
+        assertEquals(event, GoalEventCodec.decode(null, GoalEventCodec.encode(event, GoalEventCodec.JSON)));
+        assertTrue(GoalEventCodec.supports(GoalEventCodec.BINARY_V1.toUpperCase()));
+        assertThrows(IllegalArgumentException.class, () -> GoalEventCodec.encode(event, "application/xml"));
+    }
+
+    private static GoalDomainEvent roundTrip(GoalDomainEvent event, String contentType) {
+        return GoalEventCodec.decode(contentType, GoalEventCodec.encode(event, contentType));
+    }
+
+    /**
+     * Every field set, with changes of each value kind. Small integers are Integers and others
+     * Longs, as both decoders return them.
+     */
+    private static GoalDomainEvent fullEvent(GoalEventType type) {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("from", "2026-03-01");
+        nested.put("to", null);
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("title", "Run a marathon ü");
+        changes.put("count", 42);
+        changes.put("bytes", 5_000_000_000L);
+        changes.put("negative", -7);
+        changes.put("rate", 0.25);
+        changes.put("done", true);
+        changes.put("archived", false);
+        changes.put("removed", null);
+        changes.put("deadline", nested);
+        changes.put("tags", List.of("health", 1, List.of()));
+        return new GoalDomainEvent(UUID.randomUUID(), type, "GOAL", UUID.randomUUID(), UUID.randomUUID(),
+            UUID.randomUUID(), "health", "IN_PROGRESS", "COMPLETED", "Marathon", "Under four hours", changes,
+            Instant.parse("2026-03-02T10:15:30.123456789Z"), 300L);
+    }
+
+    private static GoalDomainEvent onlyType(GoalEventType type) {
+        return new GoalDomainEvent(null, type, null, null, null, null, null, null, null, null, null, null, null);
+    }
+}
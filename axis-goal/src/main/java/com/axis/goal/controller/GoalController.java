@@ -1,5 +1,7 @@
 package com.axis.goal.controller;
 
+import com.axis.goal.model.dto.GoalBoardColumnResponse;
+import com.axis.goal.model.dto.GoalBoardResponse;
 import com.axis.goal.model.dto.GoalRequest;
 import com.axis.goal.model.dto.GoalResponse;
 import com.axis.goal.model.dto.PageResponse;
@@ -94,6 +96,32 @@ public class GoalController {
         return goalService.findByStatus(status, page, size, sortBy, sortDirection);
     }
 
+    @GET
+    @Path("/board")
+    @Operation(summary = "Get goals grouped into board columns by progress status",
+            description = "Returns the first goals and the total count of every status column in one call")
+    @APIResponse(responseCode = "200", description = "Board retrieved successfully")
+    public GoalBoardResponse findBoard(
+            @Parameter(description = "Number of goals per column") @QueryParam("size") @DefaultValue("20") int size) {
+        log.debug("Loading goal board");
+        return goalService.findBoard(size);
+    }
+
+    @GET
+    @Path("/board/{status}")
+    @Operation(summary = "Load more goals of a single board column")
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Column page retrieved successfully"),
+        @APIResponse(responseCode = "400", description = "Invalid cursor")
+    })
+    public GoalBoardColumnResponse findBoardColumn(
+            @Parameter(description = "Progress status of the column") @PathParam("status") ProgressStatus status,
+            @Parameter(description = "Cursor returned by the previous board or column call") @QueryParam("cursor") String cursor,
+            @Parameter(description = "Number of goals to load") @QueryParam("size") @DefaultValue("20") int size) {
+        log.debug("Loading board column: {}", status);
+        return goalService.findBoardColumn(status, cursor, size);
+    }
+
     @DELETE
     @Path("/{id}")
     @Operation(summary = "Delete a goal")
@@ -0,0 +1,153 @@
+package com.axis.goal.deadline;
+
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.axis.goal.messaging.GoalEventPublisher;
+import com.axis.goal.repository.GoalRepository;
+import com.axis.goal.repository.SubGoalRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires deadline reminders for goals and sub-goals owned by this replica.
+ * Every refresh the replica rebalances its shard leases and loads the pending reminders of its
+ * shards that fall inside the look-ahead window into an in-memory timing wheel; a ticker thread
+ * advances the wheel and emits the deadline domain events.
+ */
+@Slf4j
+@ApplicationScoped
+public class DeadlineScheduler {
+
+    @Inject
+    GoalRepository goalRepository;
+
+    @Inject
+    SubGoalRepository subGoalRepository;
+
+    @Inject
+    DeadlineShardLeases shardLeases;
+
+    @Inject
+    GoalEventPublisher goalEventPublisher;
+
+    @ConfigProperty(name = "axis.deadlines.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "axis.deadlines.reminder-lead", defaultValue = "24h")
+    Duration reminderLead;
+
+    @ConfigProperty(name = "axis.deadlines.lookahead", defaultValue = "10m")
+    Duration lookahead;
+
+    @ConfigProperty(name = "axis.deadlines.tick", defaultValue = "1s")
+    Duration tick;
+
+    @ConfigProperty(name = "axis.deadlines.wheel-size", defaultValue = "512")
+    int wheelSize;
+
+    private HashedTimingWheel<UUID, UpcomingDeadline> wheel;
+    private ScheduledExecutorService ticker;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            log.info("Deadline scheduler is disabled");
+            return;
+        }
+        wheel = new HashedTimingWheel<>(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("goal-deadline-wheel").daemon().factory());
+        ticker.scheduleAtFixedRate(this::advance, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    @Scheduled(every = "${axis.deadlines.refresh-interval:60s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        if (wheel == null) {
+            return;
+        }
+        Set<Integer> shards = shardLeases.rebalance();
+        wheel.cancelIf(deadline -> !shards.contains(deadline.shard()));
+
+        // A reminder fires reminderLead before the due date; load everything firing before the next window ends
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime horizon = now.plus(reminderLead).plus(lookahead);
+        List<UpcomingDeadline> upcoming = QuarkusTransaction.requiringNew().call(() -> {
+            List<UpcomingDeadline> all = new ArrayList<>(
+                    goalRepository.findUpcomingDeadlines(shards, shardLeases.shardCount(), now, horizon));
+            all.addAll(subGoalRepository.findUpcomingDeadlines(shards, shardLeases.shardCount(), now, horizon));
+            return all;
+        });
+
+        for (UpcomingDeadline deadline : upcoming) {
+            long fireAt = deadline.dueAt().minus(reminderLead).toInstant(ZoneOffset.UTC).toEpochMilli();
+            wheel.schedule(deadline.entityId(), fireAt, deadline);
+        }
+        log.debug("Deadline wheel refreshed: {} shards owned, {} reminders pending", shards.size(), wheel.size());
+    }
+
+    private void advance() {
+        try {
+            for (UpcomingDeadline deadline : wheel.advance(System.currentTimeMillis())) {
+                try {
+                    fire(deadline);
+                } catch (Exception e) {
+                    // Still unclaimed, so the next refresh loads it again
+                    log.error("Failed to fire deadline reminder for {} {}", deadline.entityType(), deadline.entityId(), e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to advance deadline wheel", e);
+        }
+    }
+
+    /** Claims the reminder and stores its event in one transaction, so a failed publish leaves it unclaimed. */
+    void fire(UpcomingDeadline deadline) {
+        LocalDateTime notifiedAt = LocalDateTime.now(ZoneOffset.UTC);
+        boolean goal = "GOAL".equals(deadline.entityType());
+        boolean claimed = QuarkusTransaction.requiringNew().call(() -> {
+            boolean marked = goal
+                    ? goalRepository.markDeadlineNotified(deadline.entityId(), deadline.dueAt(), notifiedAt)
+                    : subGoalRepository.markDeadlineNotified(deadline.entityId(), deadline.dueAt(), notifiedAt);
+            if (marked) {
+                goalEventPublisher.publish(new GoalDomainEvent(
+                    UUID.randomUUID(),
+                    goal ? GoalEventType.GOAL_DEADLINE_APPROACHING : GoalEventType.SUBGOAL_DEADLINE_APPROACHING,
+                    deadline.entityType(),
+                    deadline.entityId(), deadline.goalId(), deadline.userId(),
+                    null, null, null, deadline.title(), null,
+                    Map.of("dueAt", deadline.dueAt().toInstant(ZoneOffset.UTC).toString()),
+                    Instant.now()
+                ));
+            }
+            return marked;
+        });
+        if (!claimed) {
+            log.debug("Skipping stale deadline reminder for {} {}", deadline.entityType(), deadline.entityId());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.axis.goal.deadline;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Splits deadline shards between replicas with PostgreSQL session-level advisory locks.
+ * Every node holds a shared membership lock so the others can count live nodes, and claims
+ * exclusive shard locks up to its fair share. Locks live on one dedicated connection opened
+ * outside the datasource pool, so they never take a pooled connection away from requests, and
+ * are released by the server as soon as that connection goes away.
+ */
+@Slf4j
+@ApplicationScoped
+public class DeadlineShardLeases {
+
+    private static final int LOCK_NAMESPACE = 0x6178_6464; // "axdd"
+    private static final int MEMBERSHIP_KEY = -1;
+
+    @ConfigProperty(name = "quarkus.datasource.jdbc.url")
+    String jdbcUrl;
+
+    @ConfigProperty(name = "quarkus.datasource.username")
+    Optional<String> username;
+
+    @ConfigProperty(name = "quarkus.datasource.password")
+    Optional<String> password;
+
+    @ConfigProperty(name = "axis.deadlines.shards", defaultValue = "16")
+    int shardCount;
+
+    private Connection connection;
+    private final TreeSet<Integer> owned = new TreeSet<>();
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Re-evaluates the fair share for the current number of live nodes, releasing surplus shards
+     * and trying to claim free ones. Returns the shards owned after rebalancing.
+     */
+    public synchronized Set<Integer> rebalance() {
+        try {
+            ensureConnection();
+            int nodes = Math.max(1, countMembers());
+            int fairShare = fairShare(shardCount, nodes);
+
+            while (owned.size() > fairShare) {
+                int shard = owned.pollLast();
+                unlock(shard);
+                log.info("Released deadline shard {} ({} nodes, fair share {})", shard, nodes, fairShare);
+            }
+
+            List<Integer> candidates = new ArrayList<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (!owned.contains(shard)) {
+                    candidates.add(shard);
+                }
+            }
+            // Random order keeps replicas from racing for the same low-numbered shards
+            Collections.shuffle(candidates);
+            for (int shard : candidates) {
+                if (owned.size() >= fairShare) {
+                    break;
+                }
+                if (tryLock(shard)) {
+                    owned.add(shard);
+                    log.info("Claimed deadline shard {}", shard);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Deadline shard lease connection failed, dropping all shards", e);
+            closeConnection();
+        }
+        return Set.copyOf(owned);
+    }
+
+    /** Shards one of {@code nodes} live nodes may hold; rounded up, so together they hold every shard. */
+    static int fairShare(int shardCount, int nodes) {
+        return Math.ceilDiv(shardCount, Math.max(1, nodes));
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        closeConnection();
+    }
+
+    private void ensureConnection() throws SQLException {
+        if (connection != null && connection.isValid(2)) {
+            return;
+        }
+        closeConnection();
+        Properties properties = new Properties();
+        username.ifPresent(user -> properties.setProperty("user", user));
+        password.ifPresent(secret -> properties.setProperty("password", secret));
+        properties.setProperty("ApplicationName", "axis-goal-deadline-leases");
+        connection = DriverManager.getConnection(jdbcUrl, properties);
+        connection.setAutoCommit(true);
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_lock_shared(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, MEMBERSHIP_KEY);
+            ps.execute();
+        }
+    }
+
+    private int countMembers() throws SQLException {
+        String sql = """
+                SELECT count(DISTINCT pid) FROM pg_locks
+                WHERE locktype = 'advisory' AND classid::bigint = ? AND objid::bigint = ? AND objsubid = 2
+                """;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, Integer.toUnsignedLong(LOCK_NAMESPACE));
+            ps.setLong(2, Integer.toUnsignedLong(MEMBERSHIP_KEY));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 1;
+            }
+        }
+    }
+
+    private boolean tryLock(int shard) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, shard);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(int shard) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, shard);
+            ps.execute();
+        }
+    }
+
+    private void closeConnection() {
+        owned.clear();
+        if (connection == null) {
+            return;
+        }
+        // Closing the session releases its advisory locks
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close deadline lease connection", e);
+        }
+        connection = null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.axis.goal.deadline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Hashed timing wheel keyed by an entity id. Scheduling, rescheduling and cancelling are O(1);
+ * advancing the wheel only touches the buckets of the elapsed ticks.
+ * Timeouts further away than one rotation stay in their bucket until their tick comes round.
+ */
+public class HashedTimingWheel<K, V> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final List<Set<Timeout<K, V>>> buckets;
+    private final Map<K, Timeout<K, V>> timeouts = new HashMap<>();
+    private long currentTick;
+
+    public HashedTimingWheel(long tickMillis, int ticksPerWheel, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (ticksPerWheel <= 0 || Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = ticksPerWheel - 1;
+        this.buckets = new ArrayList<>(ticksPerWheel);
+        for (int i = 0; i < ticksPerWheel; i++) {
+            buckets.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Schedules {@code value} to expire at {@code deadlineMillis}, replacing any timeout already
+     * registered for {@code key}. Deadlines in the past expire on the next {@link #advance}.
+     */
+    public synchronized void schedule(K key, long deadlineMillis, V value) {
+        cancel(key);
+        long tick = Math.max(Math.ceilDiv(deadlineMillis - startMillis, tickMillis), currentTick + 1);
+        Timeout<K, V> timeout = new Timeout<>(key, value, tick);
+        buckets.get((int) (tick & mask)).add(timeout);
+        timeouts.put(key, timeout);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Timeout<K, V> timeout = timeouts.remove(key);
+        if (timeout == null) {
+            return false;
+        }
+        buckets.get((int) (timeout.tick & mask)).remove(timeout);
+        return true;
+    }
+
+    public synchronized void cancelIf(Predicate<V> predicate) {
+        List<K> keys = timeouts.values().stream()
+                .filter(t -> predicate.test(t.value))
+                .map(t -> t.key)
+                .toList();
+        keys.forEach(this::cancel);
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMillis} and returns the values whose deadline has passed.
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        if (targetTick <= currentTick) {
+            return List.of();
+        }
+        // After a long pause every bucket is visited at most once
+        long steps = Math.min(targetTick - currentTick, buckets.size());
+        List<V> expired = new ArrayList<>();
+        for (long i = 1; i <= steps; i++) {
+            Set<Timeout<K, V>> bucket = buckets.get((int) ((currentTick + i) & mask));
+            var iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Timeout<K, V> timeout = iterator.next();
+                if (timeout.tick <= targetTick) {
+                    iterator.remove();
+                    timeouts.remove(timeout.key);
+                    expired.add(timeout.value);
+                }
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    public synchronized int size() {
+        return timeouts.size();
+    }
+
+    private static final class Timeout<K, V> {
+        private final K key;
+        private final V value;
+        private final long tick;
+
+        private Timeout(K key, V value, long tick) {
+            this.key = key;
+            this.value = value;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.axis.goal.deadline;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record UpcomingDeadline(
+    String entityType,
+    UUID entityId,
+    UUID goalId,
+    UUID userId,
+    String title,
+    LocalDateTime dueAt,
+    int shard
+) {}
@@ -22,6 +22,7 @@ public interface GoalMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "subGoals", ignore = true)
     @Mapping(target = "labels", ignore = true)
+    @Mapping(target = "deadlineNotifiedAt", ignore = true)
 
     Goal toEntity(GoalRequest request);
 
@@ -32,9 +33,11 @@ public interface GoalMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "subGoals", ignore = true)
     @Mapping(target = "labels", ignore = true)
+    @Mapping(target = "deadlineNotifiedAt", ignore = true)
 
     @Mapping(target = "title", nullValuePropertyMappingStrategy = IGNORE)
     @Mapping(target = "description", nullValuePropertyMappingStrategy = IGNORE)
     @Mapping(target = "status", nullValuePropertyMappingStrategy = IGNORE)
+    @Mapping(target = "dueAt", nullValuePropertyMappingStrategy = IGNORE)
     void patchEntity(GoalRequest request, @MappingTarget Goal goal);
 }
@@ -21,6 +21,7 @@ public interface SubGoalMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "labels", ignore = true)
+    @Mapping(target = "deadlineNotifiedAt", ignore = true)
 
     SubGoal toEntity(SubGoalRequest request);
 
@@ -30,9 +31,11 @@ public interface SubGoalMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "labels", ignore = true)
+    @Mapping(target = "deadlineNotifiedAt", ignore = true)
 
     @Mapping(target = "title", nullValuePropertyMappingStrategy = IGNORE)
     @Mapping(target = "description", nullValuePropertyMappingStrategy = IGNORE)
     @Mapping(target = "status", nullValuePropertyMappingStrategy = IGNORE)
+    @Mapping(target = "dueAt", nullValuePropertyMappingStrategy = IGNORE)
     void patchEntity(SubGoalRequest request, @MappingTarget SubGoal subGoal);
 }
@@ -1,26 +1,117 @@
 package com.axis.goal.messaging;
 
 import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventCodec;
+import com.axis.common.event.GoalEventType;
+import com.axis.goal.model.entity.OutboxEvent;
+import com.axis.goal.repository.GoalRepository;
+import com.axis.goal.repository.OutboxEventRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.microprofile.reactive.messaging.Channel;
-import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Publishes goal domain events through the outbox: the event is numbered per goal and stored
+ * in the caller's transaction, and {@link GoalEventRelay} sends it once that transaction has
+ * committed. A rolled-back transaction therefore neither sends its events nor leaves a gap in
+ * the goal's sequence.
+ * Plain GOAL_UPDATED / SUBGOAL_UPDATED events are held back for a short window and later updates
+ * of the same entity are merged into the held event, so a burst of edits reaches the broker as a
+ * single event. Every other event first makes the held-back events of its goal due, which keeps
+ * the per-goal order intact.
+ */
 @Slf4j
 @ApplicationScoped
 public class GoalEventPublisher {
 
     @Inject
-    @Channel("goal-events-out")
-    Emitter<GoalDomainEvent> emitter;
+    GoalRepository goalRepository;
+
+    @Inject
+    OutboxEventRepository outboxRepository;
+
+    @Inject
+    GoalEventRelay relay;
 
+    @ConfigProperty(name = "axis.events.content-type", defaultValue = GoalEventCodec.JSON)
+    String contentType;
+
+    @ConfigProperty(name = "axis.events.coalesce-window", defaultValue = "500ms")
+    Duration coalesceWindow;
+
+    @Transactional(Transactional.TxType.MANDATORY)
     public void publish(GoalDomainEvent event) {
-        try {
-            emitter.send(event);
-            log.debug("Published event: {} for entity: {}", event.eventType(), event.entityId());
-        } catch (Exception e) {
-            log.error("Failed to publish goal event: {}", event.eventType(), e);
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        boolean held = coalescingEnabled() && isCoalescable(event.eventType());
+        if (held && coalesce(event, now)) {
+            return;
+        }
+        // Locks the goal's counter until the caller commits, so the goal's events commit in sequence order
+        GoalDomainEvent sequenced = event.withSequence(goalRepository.nextEventSequence(event.goalId()));
+        if (!held) {
+            outboxRepository.releaseHeld(event.goalId(), now);
+        }
+        outboxRepository.persist(OutboxEvent.builder()
+            .goalId(event.goalId())
+            .entityId(event.entityId())
+            .eventType(event.eventType().name())
+            .contentType(contentType)
+            .payload(GoalEventCodec.encode(sequenced, contentType))
+            .availableAt(held ? now.plus(coalesceWindow) : now)
+            .build());
+        relay.wakeAfterCommit();
+        log.debug("Queued event: {} for entity: {}", event.eventType(), event.entityId());
+    }
+
+    /** Merges the update into the entity's held-back event, which keeps its sequence and due time. */
+    private boolean coalesce(GoalDomainEvent event, LocalDateTime now) {
+        Optional<OutboxEvent> pending = outboxRepository.findHeldForUpdate(event.entityId(), event.eventType().name(), now);
+        if (pending.isEmpty()) {
+            return false;
+        }
+        OutboxEvent row = pending.get();
+        GoalDomainEvent older = GoalEventCodec.decode(row.getContentType(), row.getPayload());
+        GoalDomainEvent merged = merge(older, event).withSequence(older.sequence());
+        row.setContentType(contentType);
+        row.setPayload(GoalEventCodec.encode(merged, contentType));
+        log.debug("Coalesced {} for entity: {}", event.eventType(), event.entityId());
+        return true;
+    }
+
+    private boolean coalescingEnabled() {
+        return !coalesceWindow.isZero() && !coalesceWindow.isNegative();
+    }
+
+    private static boolean isCoalescable(GoalEventType type) {
+        return type == GoalEventType.GOAL_UPDATED || type == GoalEventType.SUBGOAL_UPDATED;
+    }
+
+    /**
+     * Update events carry the full current state, so the newer one wins; change maps are merged
+     * so no changed field is lost.
+     */
+    private static GoalDomainEvent merge(GoalDomainEvent older, GoalDomainEvent newer) {
+        Map<String, Object> changes = newer.changes();
+        if (older.changes() != null) {
+            changes = new HashMap<>(older.changes());
+            if (newer.changes() != null) {
+                changes.putAll(newer.changes());
+            }
         }
+        return new GoalDomainEvent(
+            newer.eventId(), newer.eventType(), newer.entityType(),
+            newer.entityId(), newer.goalId(), newer.userId(),
+            newer.lifeAspectId(), newer.previousStatus(), newer.newStatus(),
+            newer.title(), newer.description(), changes, newer.occurredAt()
+        );
     }
-}
\ No newline at end of file
+}
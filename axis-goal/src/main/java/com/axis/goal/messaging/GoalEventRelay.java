@@ -0,0 +1,203 @@
+package com.axis.goal.messaging;
+
+import com.axis.common.event.GoalEventPartitioner;
+import com.axis.goal.model.entity.OutboxEvent;
+import com.axis.goal.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.rabbitmq.OutgoingRabbitMQMetadata;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the goal event outbox to the broker. The relay thread wakes when a transaction that
+ * wrote events commits, and polls every {@code axis.events.relay.poll-interval} for held-back
+ * events coming due and for events another replica claimed but never sent.
+ * An event is deleted once the broker confirms it and released for another attempt if it
+ * refuses it, so every committed event is sent at least once. At most one event per goal is in
+ * flight, the oldest one, so a refused event is sent again before any later event of its goal;
+ * a confirmation or refusal wakes the relay to move on to the goal's next event.
+ */
+@Slf4j
+@ApplicationScoped
+public class GoalEventRelay {
+
+    @Inject
+    @Channel("goal-events-out")
+    Emitter<byte[]> emitter;
+
+    @Inject
+    OutboxEventRepository outboxRepository;
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "axis.events.partitions", defaultValue = "4")
+    int partitions;
+
+    @ConfigProperty(name = "axis.events.relay.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "axis.events.relay.poll-interval", defaultValue = "1s")
+    Duration pollInterval;
+
+    @ConfigProperty(name = "axis.events.relay.claim-timeout", defaultValue = "30s")
+    Duration claimTimeout;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private final Queue<Long> sent = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> refused = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean running;
+    private Thread relay;
+
+    void onStart(@Observes StartupEvent event) {
+        running = true;
+        relay = Thread.ofPlatform().name("goal-event-relay").daemon().start(this::run);
+    }
+
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        running = false;
+        if (relay != null) {
+            relay.interrupt();
+            relay.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        settle();
+    }
+
+    /** Wakes the relay once the current transaction commits; registered once per transaction. */
+    void wakeAfterCommit() {
+        if (transactions.getResource(GoalEventRelay.class) != null) {
+            return;
+        }
+        transactions.putResource(GoalEventRelay.class, Boolean.TRUE);
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    wakeups.release();
+                }
+            }
+        });
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                wakeups.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                wakeups.drainPermits();
+                settle();
+                relay();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("Failed to relay goal events", e);
+            }
+        }
+    }
+
+    /** Claims as many due events as fit next to the unconfirmed ones and hands them to the connector. */
+    private void relay() {
+        int limit = batchSize - inFlight.get();
+        if (limit <= 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<OutboxEvent> claimed = QuarkusTransaction.requiringNew()
+                .call(() -> outboxRepository.claim(now, now.plus(claimTimeout), limit));
+        claimed.forEach(this::send);
+        if (claimed.size() == limit) {
+            wakeups.release();
+        }
+    }
+
+    /** Deletes the confirmed events and releases the refused ones. */
+    private void settle() {
+        List<Long> confirmed = drain(sent);
+        List<Long> released = drain(refused);
+        if (confirmed.isEmpty() && released.isEmpty()) {
+            return;
+        }
+        QuarkusTransaction.requiringNew().run(() -> {
+            if (!confirmed.isEmpty()) {
+                outboxRepository.deleteByIds(confirmed);
+            }
+            if (!released.isEmpty()) {
+                outboxRepository.unclaim(released);
+            }
+        });
+    }
+
+    /** Counted as published once the broker has confirmed it, as failed if it could not be sent. */
+    private void send(OutboxEvent event) {
+        inFlight.incrementAndGet();
+        try {
+            Message<byte[]> message = Message.of(event.getPayload()).addMetadata(OutgoingRabbitMQMetadata.builder()
+                .withContentType(event.getContentType())
+                .withRoutingKey(GoalEventPartitioner.routingKey(event.getGoalId(), partitions))
+                .build());
+            emitter.send(message.withAck(() -> {
+                meterRegistry.counter("axis.goal.events.published", "type", event.getEventType()).increment();
+                done(event, sent);
+                return CompletableFuture.completedFuture(null);
+            }).withNack(e -> {
+                publishFailed(event, e);
+                done(event, refused);
+                return CompletableFuture.completedFuture(null);
+            }));
+            log.debug("Published event: {} for entity: {}", event.getEventType(), event.getEntityId());
+        } catch (Exception e) {
+            publishFailed(event, e);
+            done(event, refused);
+        }
+    }
+
+    private void done(OutboxEvent event, Queue<Long> outcome) {
+        outcome.add(event.getId());
+        inFlight.decrementAndGet();
+        wakeups.release();
+    }
+
+    private void publishFailed(OutboxEvent event, Throwable e) {
+        meterRegistry.counter("axis.goal.events.publish.failures", "type", event.getEventType()).increment();
+        log.error("Failed to publish goal event: {}", event.getEventType(), e);
+    }
+
+    private static List<Long> drain(Queue<Long> queue) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id = queue.poll(); id != null; id = queue.poll()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
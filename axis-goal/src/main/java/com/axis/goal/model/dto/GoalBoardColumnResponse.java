@@ -0,0 +1,23 @@
+package com.axis.goal.model.dto;
+
+import com.axis.goal.model.enums.ProgressStatus;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Single board column with the first goals of one progress status")
+public record GoalBoardColumnResponse(
+
+    @Schema(description = "Progress status this column represents")
+    ProgressStatus status,
+
+    @Schema(description = "Goals in this column, newest first")
+    List<GoalResponse> goals,
+
+    @Schema(description = "Total number of goals with this status")
+    long totalElements,
+
+    @Schema(description = "Opaque cursor for loading the next goals of this column, null when there are no more")
+    String nextCursor
+
+) {}
@@ -0,0 +1,13 @@
+package com.axis.goal.model.dto;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Kanban board of the user's goals grouped by progress status")
+public record GoalBoardResponse(
+
+    @Schema(description = "One column per progress status, in workflow order")
+    List<GoalBoardColumnResponse> columns
+
+) {}
@@ -25,6 +25,9 @@ public record GoalResponse(
     @Schema(description = "Progress status of the goal")
     ProgressStatus status,
 
+    @Schema(description = "Due date of the goal (UTC)")
+    LocalDateTime dueAt,
+
     @Schema(description = "ID of the user who owns this goal")
     UUID userId,
 
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,6 +29,12 @@ public record SubGoalRequest(
     @Schema(description = "Progress status of the sub-goal.")
     ProgressStatus status,
 
+    @Schema(description = "Due date of the sub-goal (UTC).")
+    LocalDateTime dueAt,
+
+    @Schema(description = "PATCH only: true removes the due date of the sub-goal. Must not be combined with dueAt.")
+    Boolean clearDueAt,
+
     @Schema(description = "List of label IDs to attach.")
     List<UUID> labelIds
 
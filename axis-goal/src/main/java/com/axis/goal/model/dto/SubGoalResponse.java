@@ -22,6 +22,9 @@ public record SubGoalResponse(
     @Schema(description = "Progress status of the sub-goal")
     ProgressStatus status,
 
+    @Schema(description = "Due date of the sub-goal (UTC)")
+    LocalDateTime dueAt,
+
     @Schema(description = "ID of the parent goal")
     UUID goalId,
 
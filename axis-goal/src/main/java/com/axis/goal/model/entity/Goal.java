@@ -40,6 +40,12 @@ public class Goal {
     @Column(nullable = false)
     private ProgressStatus status;
 
+    @Column(name = "due_at")
+    private LocalDateTime dueAt;
+
+    @Column(name = "deadline_notified_at")
+    private LocalDateTime deadlineNotifiedAt;
+
     @OneToMany(mappedBy = "goal", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<SubGoal> subGoals = new ArrayList<>();
@@ -36,6 +36,12 @@ public class SubGoal {
     @Column(nullable = false)
     private ProgressStatus status;
 
+    @Column(name = "due_at")
+    private LocalDateTime dueAt;
+
+    @Column(name = "deadline_notified_at")
+    private LocalDateTime deadlineNotifiedAt;
+
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
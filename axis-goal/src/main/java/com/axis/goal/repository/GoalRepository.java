@@ -1,12 +1,17 @@
 package com.axis.goal.repository;
 
+import com.axis.goal.deadline.UpcomingDeadline;
 import com.axis.goal.model.entity.Goal;
 import com.axis.goal.model.enums.ProgressStatus;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Page;
 import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +19,72 @@ import java.util.UUID;
 @ApplicationScoped
 public class GoalRepository implements PanacheRepositoryBase<Goal, UUID> {
 
+    private static final String UPCOMING_DEADLINES_QUERY = """
+            SELECT g.id, g.id AS goal_id, g.user_id, g.title, g.due_at,
+                   (abs(hashtext(g.id::text)::bigint) % :shardCount)::int AS shard
+            FROM goals g
+            WHERE g.due_at > :from AND g.due_at <= :to
+              AND g.deadline_notified_at IS NULL
+              AND g.status NOT IN ('COMPLETED', 'CANCELED')
+              AND (abs(hashtext(g.id::text)::bigint) % :shardCount)::int IN (:shards)
+            """;
+
+    private static final String NEXT_EVENT_SEQUENCE_QUERY = """
+            INSERT INTO goal_event_sequences (goal_id, last_sequence) VALUES (:goalId, 1)
+            ON CONFLICT (goal_id) DO UPDATE SET last_sequence = goal_event_sequences.last_sequence + 1
+            RETURNING last_sequence
+            """;
+
+    private static final String BOARD_QUERY = """
+            SELECT ranked.*
+            FROM (
+                SELECT g.*,
+                       row_number() OVER (PARTITION BY g.status ORDER BY g.created_at DESC, g.id DESC) AS column_rank,
+                       count(*) OVER (PARTITION BY g.status) AS column_total
+                FROM goals g
+                WHERE g.user_id = :userId
+            ) ranked
+            WHERE ranked.column_rank <= :perColumn
+            ORDER BY ranked.status, ranked.column_rank
+            """;
+
+    public record BoardRow(Goal goal, long columnTotal) {}
+
+    /**
+     * Loads the first {@code perColumn} goals of every status column together with the
+     * column totals in a single windowed query.
+     */
+    @SuppressWarnings("unchecked")
+    public List<BoardRow> findBoardByUserId(UUID userId, int perColumn) {
+        List<Object[]> rows = getEntityManager().createNativeQuery(BOARD_QUERY)
+                .unwrap(NativeQuery.class)
+                .addEntity("ranked", Goal.class)
+                .addScalar("column_total", StandardBasicTypes.LONG)
+                .setParameter("userId", userId)
+                .setParameter("perColumn", perColumn)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new BoardRow((Goal) row[0], (Long) row[1]))
+                .toList();
+    }
+
+    /**
+     * Keyset page of one board column, continuing after the goal identified by
+     * {@code afterCreatedAt}/{@code afterId}.
+     */
+    public List<Goal> findBoardColumnAfter(UUID userId, ProgressStatus status,
+                                           LocalDateTime afterCreatedAt, UUID afterId, int limit) {
+        if (afterCreatedAt == null) {
+            return find("userId = ?1 and status = ?2", Sort.descending("createdAt", "id"), userId, status)
+                    .range(0, limit - 1)
+                    .list();
+        }
+        return find("userId = ?1 and status = ?2 and (createdAt < ?3 or (createdAt = ?3 and id < ?4))",
+                Sort.descending("createdAt", "id"), userId, status, afterCreatedAt, afterId)
+                .range(0, limit - 1)
+                .list();
+    }
+
     public List<Goal> findByUserId(UUID userId, Page page, Sort sort) {
         return find("userId", sort, userId).page(page).list();
     }
@@ -49,4 +120,52 @@ public class GoalRepository implements PanacheRepositoryBase<Goal, UUID> {
     public boolean existsByIdAndUserId(UUID id, UUID userId) {
         return count("id = ?1 and userId = ?2", id, userId) > 0;
     }
+
+    /**
+     * Pending deadline reminders with {@code due_at} in {@code (from, to]} that hash into one of
+     * the given shards. Uses the partial due_at index, so only the window is scanned.
+     */
+    @SuppressWarnings("unchecked")
+    public List<UpcomingDeadline> findUpcomingDeadlines(Collection<Integer> shards, int shardCount,
+                                                        LocalDateTime from, LocalDateTime to) {
+        if (shards.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> rows = getEntityManager().createNativeQuery(UPCOMING_DEADLINES_QUERY)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("goal_id", StandardBasicTypes.UUID)
+                .addScalar("user_id", StandardBasicTypes.UUID)
+                .addScalar("title", StandardBasicTypes.STRING)
+                .addScalar("due_at", StandardBasicTypes.LOCAL_DATE_TIME)
+                .addScalar("shard", StandardBasicTypes.INTEGER)
+                .setParameter("shardCount", shardCount)
+                .setParameterList("shards", shards)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new UpcomingDeadline("GOAL", (UUID) row[0], (UUID) row[1], (UUID) row[2],
+                        (String) row[3], (LocalDateTime) row[4], (Integer) row[5]))
+                .toList();
+    }
+
+    /**
+     * Claims the reminder for {@code dueAt}. Returns false when another replica already sent it,
+     * the due date moved or the goal is already finished.
+     */
+    public boolean markDeadlineNotified(UUID id, LocalDateTime dueAt, LocalDateTime notifiedAt) {
+        return update("deadlineNotifiedAt = ?1 where id = ?2 and dueAt = ?3 and deadlineNotifiedAt is null"
+                        + " and status not in ?4",
+                notifiedAt, id, dueAt, List.of(ProgressStatus.COMPLETED, ProgressStatus.CANCELED)) > 0;
+    }
+
+    /**
+     * Takes the next event sequence number of the goal, starting at 1. Works for deleted goals too.
+     */
+    public long nextEventSequence(UUID goalId) {
+        return ((Number) getEntityManager().createNativeQuery(NEXT_EVENT_SEQUENCE_QUERY)
+                .setParameter("goalId", goalId)
+                .getSingleResult()).longValue();
+    }
 }
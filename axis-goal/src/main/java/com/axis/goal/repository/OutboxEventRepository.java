@@ -0,0 +1,72 @@
+package com.axis.goal.repository;
+
+import com.axis.goal.model.entity.OutboxEvent;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@ApplicationScoped
+public class OutboxEventRepository implements PanacheRepositoryBase<OutboxEvent, Long> {
+
+    private static final String CLAIM_QUERY = """
+            UPDATE goal_event_outbox SET claimed_until = :until
+            WHERE id IN (
+                SELECT id FROM goal_event_outbox o
+                WHERE available_at <= :now AND (claimed_until IS NULL OR claimed_until < :now)
+                  AND NOT EXISTS (SELECT 1 FROM goal_event_outbox e WHERE e.goal_id = o.goal_id AND e.id < o.id)
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """;
+
+    /**
+     * Claims up to {@code limit} due events until {@code until}, oldest first. Rows another
+     * transaction holds are skipped, so replicas never claim the same event at once.
+     * Only the oldest event of a goal can be claimed: the next one waits until it is deleted on
+     * confirmation, so a goal's events reach the broker in order even when one is refused.
+     */
+    @SuppressWarnings("unchecked")
+    public List<OutboxEvent> claim(LocalDateTime now, LocalDateTime until, int limit) {
+        List<OutboxEvent> claimed = getEntityManager().createNativeQuery(CLAIM_QUERY, OutboxEvent.class)
+                .setParameter("until", until)
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+        return claimed.stream()
+                .sorted(Comparator.comparing(OutboxEvent::getId))
+                .toList();
+    }
+
+    /**
+     * Locks the entity's held-back event of the given type, if it is neither due nor claimed yet.
+     * A relay claiming it at the same time wins, and the caller then stores a new event.
+     */
+    public Optional<OutboxEvent> findHeldForUpdate(UUID entityId, String eventType, LocalDateTime now) {
+        return find("entityId = ?1 and eventType = ?2 and availableAt > ?3 and claimedUntil is null",
+                        entityId, eventType, now)
+                .withLock(LockModeType.PESSIMISTIC_WRITE)
+                .firstResultOptional();
+    }
+
+    /** Makes the goal's held-back events due now, so an event sent right away does not overtake them. */
+    public int releaseHeld(UUID goalId, LocalDateTime now) {
+        return update("availableAt = ?1 where goalId = ?2 and availableAt > ?1", now, goalId);
+    }
+
+    public long deleteByIds(Collection<Long> ids) {
+        return delete("id in ?1", ids);
+    }
+
+    public int unclaim(Collection<Long> ids) {
+        return update("claimedUntil = null where id in ?1", ids);
+    }
+}
@@ -1,12 +1,17 @@
 package com.axis.goal.repository;
 
+import com.axis.goal.deadline.UpcomingDeadline;
 import com.axis.goal.model.entity.SubGoal;
 import com.axis.goal.model.enums.ProgressStatus;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
 import io.quarkus.panache.common.Page;
 import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +19,16 @@ import java.util.UUID;
 @ApplicationScoped
 public class SubGoalRepository implements PanacheRepositoryBase<SubGoal, UUID> {
 
+    private static final String UPCOMING_DEADLINES_QUERY = """
+            SELECT g.id, g.goal_id AS goal_id, g.user_id, g.title, g.due_at,
+                   (abs(hashtext(g.id::text)::bigint) % :shardCount)::int AS shard
+            FROM sub_goals g
+            WHERE g.due_at > :from AND g.due_at <= :to
+              AND g.deadline_notified_at IS NULL
+              AND g.status NOT IN ('COMPLETED', 'CANCELED')
+              AND (abs(hashtext(g.id::text)::bigint) % :shardCount)::int IN (:shards)
+            """;
+
     public List<SubGoal> findByUserId(UUID userId, Page page, Sort sort) {
         return find("userId", sort, userId).page(page).list();
     }
@@ -49,4 +64,43 @@ public class SubGoalRepository implements PanacheRepositoryBase<SubGoal, UUID> {
     public boolean existsByIdAndUserId(UUID id, UUID userId) {
         return count("id = ?1 and userId = ?2", id, userId) > 0;
     }
+
+    /**
+     * Pending deadline reminders with {@code due_at} in {@code (from, to]} that hash into one of
+     * the given shards. Uses the partial due_at index, so only the window is scanned.
+     */
+    @SuppressWarnings("unchecked")
+    public List<UpcomingDeadline> findUpcomingDeadlines(Collection<Integer> shards, int shardCount,
+                                                        LocalDateTime from, LocalDateTime to) {
+        if (shards.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> rows = getEntityManager().createNativeQuery(UPCOMING_DEADLINES_QUERY)
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("goal_id", StandardBasicTypes.UUID)
+                .addScalar("user_id", StandardBasicTypes.UUID)
+                .addScalar("title", StandardBasicTypes.STRING)
+                .addScalar("due_at", StandardBasicTypes.LOCAL_DATE_TIME)
+                .addScalar("shard", StandardBasicTypes.INTEGER)
+                .setParameter("shardCount", shardCount)
+                .setParameterList("shards", shards)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new UpcomingDeadline("SUB_GOAL", (UUID) row[0], (UUID) row[1], (UUID) row[2],
+                        (String) row[3], (LocalDateTime) row[4], (Integer) row[5]))
+                .toList();
+    }
+
+    /**
+     * Claims the reminder for {@code dueAt}. Returns false when another replica already sent it,
+     * the due date moved or the sub-goal is already finished.
+     */
+    public boolean markDeadlineNotified(UUID id, LocalDateTime dueAt, LocalDateTime notifiedAt) {
+        return update("deadlineNotifiedAt = ?1 where id = ?2 and dueAt = ?3 and deadlineNotifiedAt is null"
+                        + " and status not in ?4",
+                notifiedAt, id, dueAt, List.of(ProgressStatus.COMPLETED, ProgressStatus.CANCELED)) > 0;
+    }
 }
@@ -1,5 +1,7 @@
 package com.axis.goal.service;
 
+import com.axis.goal.model.dto.GoalBoardColumnResponse;
+import com.axis.goal.model.dto.GoalBoardResponse;
 import com.axis.goal.model.dto.GoalRequest;
 import com.axis.goal.model.dto.GoalResponse;
 import com.axis.goal.model.dto.PageResponse;
@@ -21,5 +23,9 @@ public interface GoalService {
 
     PageResponse<GoalResponse> findByLifeAspectId(UUID lifeAspectId, int page, int size, String sortBy, String sortDirection);
 
+    GoalBoardResponse findBoard(int size);
+
+    GoalBoardColumnResponse findBoardColumn(ProgressStatus status, String cursor, int size);
+
     void delete(UUID id);
 }
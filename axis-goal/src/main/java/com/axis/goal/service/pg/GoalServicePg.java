@@ -2,10 +2,13 @@ package com.axis.goal.service.pg;
 
 import com.axis.common.event.GoalDomainEvent;
 import com.axis.common.event.GoalEventType;
+import com.axis.common.exception.BusinessException;
 import com.axis.common.exception.ResourceNotFoundException;
 import com.axis.common.security.SecurityUtils;
 import com.axis.goal.mapper.GoalMapper;
 import com.axis.goal.messaging.GoalEventPublisher;
+import com.axis.goal.model.dto.GoalBoardColumnResponse;
+import com.axis.goal.model.dto.GoalBoardResponse;
 import com.axis.goal.model.dto.GoalRequest;
 import com.axis.goal.model.dto.GoalResponse;
 import com.axis.goal.model.dto.PageResponse;
@@ -22,10 +25,18 @@ import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 @Slf4j
@@ -89,12 +100,19 @@ public class GoalServicePg implements GoalService {
                 .orElseThrow(() -> new ResourceNotFoundException("Goal", id));
 
         String previousStatus = existingGoal.getStatus() != null ? existingGoal.getStatus().name() : null;
+        LocalDateTime previousDueAt = existingGoal.getDueAt();
 
         goalMapper.patchEntity(request, existingGoal);
+        if (clearsDueAt(request.clearDueAt(), request.dueAt())) {
+            existingGoal.setDueAt(null);
+        }
         setupLabels(existingGoal, request.labelIds(), userId);
+        if (!Objects.equals(previousDueAt, existingGoal.getDueAt())) {
+            existingGoal.setDeadlineNotifiedAt(null);
+        }
 
         String newStatus = existingGoal.getStatus() != null ? existingGoal.getStatus().name() : null;
-        if (!java.util.Objects.equals(previousStatus, newStatus)) {
+        if (!Objects.equals(previousStatus, newStatus)) {
             goalEventPublisher.publish(new GoalDomainEvent(
                 UUID.randomUUID(), GoalEventType.GOAL_STATUS_CHANGED, "GOAL",
                 existingGoal.getId(), existingGoal.getId(), existingGoal.getUserId(),
@@ -151,6 +169,54 @@ public class GoalServicePg implements GoalService {
         return PageResponse.of(goals.stream().map(goalMapper::toResponse).toList(), total, page, size);
     }
 
+    @Override
+    public GoalBoardResponse findBoard(int size) {
+        UUID userId = getCurrentUserId();
+        log.debug("Loading goal board for user: {} with {} goals per column", userId, size);
+        requirePositiveSize(size);
+
+        Map<ProgressStatus, List<Goal>> goalsByStatus = new EnumMap<>(ProgressStatus.class);
+        Map<ProgressStatus, Long> totalsByStatus = new EnumMap<>(ProgressStatus.class);
+        for (GoalRepository.BoardRow row : goalRepository.findBoardByUserId(userId, size)) {
+            ProgressStatus status = row.goal().getStatus();
+            goalsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(row.goal());
+            totalsByStatus.put(status, row.columnTotal());
+        }
+
+        List<GoalBoardColumnResponse> columns = new ArrayList<>();
+        for (ProgressStatus status : ProgressStatus.values()) {
+            List<Goal> goals = goalsByStatus.getOrDefault(status, List.of());
+            long total = totalsByStatus.getOrDefault(status, 0L);
+            String nextCursor = total > goals.size() ? encodeCursor(goals.getLast()) : null;
+            columns.add(new GoalBoardColumnResponse(
+                status, goals.stream().map(goalMapper::toResponse).toList(), total, nextCursor));
+        }
+        return new GoalBoardResponse(columns);
+    }
+
+    @Override
+    public GoalBoardColumnResponse findBoardColumn(ProgressStatus status, String cursor, int size) {
+        UUID userId = getCurrentUserId();
+        log.debug("Loading board column {} for user: {} after cursor: {}", status, userId, cursor);
+
+        requirePositiveSize(size);
+        BoardCursor after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+
+        // Fetch one extra row to know whether the column continues past this page
+        List<Goal> goals = goalRepository.findBoardColumnAfter(userId, status,
+                after != null ? after.createdAt() : null, after != null ? after.id() : null, size + 1);
+        boolean hasMore = goals.size() > size;
+        if (hasMore) {
+            goals = goals.subList(0, size);
+        }
+        long total = goalRepository.countByUserIdAndStatus(userId, status);
+        return new GoalBoardColumnResponse(
+            status,
+            goals.stream().map(goalMapper::toResponse).toList(),
+            total,
+            hasMore ? encodeCursor(goals.getLast()) : null);
+    }
+
     @Override
     @Transactional
     public void delete(UUID id) {
@@ -172,6 +238,17 @@ public class GoalServicePg implements GoalService {
                 .orElseThrow(() -> new IllegalStateException("User is not authenticated"));
     }
 
+    /** A PATCH leaves a missing dueAt untouched, so removing the due date takes an explicit flag. */
+    private boolean clearsDueAt(Boolean clearDueAt, LocalDateTime dueAt) {
+        if (!Boolean.TRUE.equals(clearDueAt)) {
+            return false;
+        }
+        if (dueAt != null) {
+            throw new BusinessException("dueAt and clearDueAt must not be combined", Response.Status.BAD_REQUEST);
+        }
+        return true;
+    }
+
     private Sort createSort(String sortBy, String sortDirection) {
         if (sortBy == null || sortBy.isEmpty()) sortBy = "createdAt";
         Sort.Direction direction = "asc".equalsIgnoreCase(sortDirection)
@@ -179,6 +256,27 @@ public class GoalServicePg implements GoalService {
         return Sort.by(sortBy, direction);
     }
 
+    private String encodeCursor(Goal goal) {
+        String raw = goal.getCreatedAt() + "|" + goal.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BoardCursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return new BoardCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new BusinessException("Invalid board cursor", Response.Status.BAD_REQUEST);
+        }
+    }
+
+    private void requirePositiveSize(int size) {
+        if (size < 1) {
+            throw new BusinessException("Board column size must be at least 1", Response.Status.BAD_REQUEST);
+        }
+    }
+
     private void setupLabels(Goal goal, List<UUID> labelIds, UUID userId) {
         if (labelIds == null) return;
         if (labelIds.isEmpty()) { goal.getLabels().clear(); return; }
@@ -186,4 +284,6 @@ public class GoalServicePg implements GoalService {
         goal.getLabels().clear();
         goal.getLabels().addAll(labels);
     }
+
+    private record BoardCursor(LocalDateTime createdAt, UUID id) {}
 }
\ No newline at end of file
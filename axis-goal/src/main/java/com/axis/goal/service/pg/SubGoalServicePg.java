@@ -2,6 +2,7 @@ package com.axis.goal.service.pg;
 
 import com.axis.common.event.GoalDomainEvent;
 import com.axis.common.event.GoalEventType;
+import com.axis.common.exception.BusinessException;
 import com.axis.common.exception.ResourceNotFoundException;
 import com.axis.common.security.SecurityUtils;
 import com.axis.goal.mapper.SubGoalMapper;
@@ -21,10 +22,13 @@ import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.Response;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Slf4j
@@ -70,7 +74,7 @@ public class SubGoalServicePg implements SubGoalService {
         goalEventPublisher.publish(new GoalDomainEvent(
             UUID.randomUUID(), GoalEventType.SUBGOAL_CREATED, "SUB_GOAL",
             subGoal.getId(), subGoal.getGoal().getId(), subGoal.getUserId(),
-            null, null, subGoal.getStatus().name(), subGoal.getTitle(), subGoal.getDescription(),
+            lifeAspectId(subGoal), null, subGoal.getStatus().name(), subGoal.getTitle(), subGoal.getDescription(),
             null, Instant.now()
         ));
 
@@ -87,16 +91,23 @@ public class SubGoalServicePg implements SubGoalService {
                 .orElseThrow(() -> new ResourceNotFoundException("SubGoal", id));
 
         String previousStatus = existing.getStatus() != null ? existing.getStatus().name() : null;
+        LocalDateTime previousDueAt = existing.getDueAt();
 
         subGoalMapper.patchEntity(request, existing);
+        if (clearsDueAt(request.clearDueAt(), request.dueAt())) {
+            existing.setDueAt(null);
+        }
         setupLabels(existing, request.labelIds(), userId);
+        if (!Objects.equals(previousDueAt, existing.getDueAt())) {
+            existing.setDeadlineNotifiedAt(null);
+        }
 
         String newStatus = existing.getStatus() != null ? existing.getStatus().name() : null;
-        if (!java.util.Objects.equals(previousStatus, newStatus)) {
+        if (!Objects.equals(previousStatus, newStatus)) {
             goalEventPublisher.publish(new GoalDomainEvent(
                 UUID.randomUUID(), GoalEventType.SUBGOAL_STATUS_CHANGED, "SUB_GOAL",
                 existing.getId(), existing.getGoal().getId(), existing.getUserId(),
-                null, previousStatus, newStatus, existing.getTitle(), existing.getDescription(),
+                lifeAspectId(existing), previousStatus, newStatus, existing.getTitle(), existing.getDescription(),
                 null, Instant.now()
             ));
         } else {
@@ -165,13 +176,15 @@ public class SubGoalServicePg implements SubGoalService {
                 .orElseThrow(() -> new ResourceNotFoundException("SubGoal", id));
 
         UUID goalId = subGoal.getGoal().getId();
+        // Consumers keep completion counters without the sub-goal itself, so the last status goes along
+        String previousStatus = subGoal.getStatus() != null ? subGoal.getStatus().name() : null;
 
         subGoalRepository.deleteByIdAndUserId(id, userId);
         log.info("Deleted sub-goal: {} for user: {}", id, userId);
 
         goalEventPublisher.publish(new GoalDomainEvent(
             UUID.randomUUID(), GoalEventType.SUBGOAL_DELETED, "SUB_GOAL",
-            id, goalId, userId, null, null, null, null, null, null, Instant.now()
+            id, goalId, userId, null, previousStatus, null, null, null, null, Instant.now()
         ));
     }
 
@@ -180,6 +193,22 @@ public class SubGoalServicePg implements SubGoalService {
                 .orElseThrow(() -> new IllegalStateException("User is not authenticated"));
     }
 
+    /** Sub-goal events carry the life aspect of their goal so analytics can attribute them. */
+    private String lifeAspectId(SubGoal subGoal) {
+        return subGoal.getGoal().getLifeAspect() != null ? subGoal.getGoal().getLifeAspect().getId().toString() : null;
+    }
+
+    /** A PATCH leaves a missing dueAt untouched, so removing the due date takes an explicit flag. */
+    private boolean clearsDueAt(Boolean clearDueAt, LocalDateTime dueAt) {
+        if (!Boolean.TRUE.equals(clearDueAt)) {
+            return false;
+        }
+        if (dueAt != null) {
+            throw new BusinessException("dueAt and clearDueAt must not be combined", Response.Status.BAD_REQUEST);
+        }
+        return true;
+    }
+
     private Sort createSort(String sortBy, String sortDirection) {
         if (sortBy == null || sortBy.isEmpty()) {
             sortBy = "createdAt";
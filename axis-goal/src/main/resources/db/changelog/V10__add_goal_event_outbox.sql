@@ -0,0 +1,16 @@
+-- V10: Outbox of goal domain events. A row is written in the transaction that produced the
+--      event and sent to the broker after it commits; it is deleted once the broker confirms it.
+--      claimed_until keeps other replicas off a row while one is sending it.
+
+CREATE TABLE goal_event_outbox (
+    id            BIGSERIAL    PRIMARY KEY,
+    goal_id       UUID         NOT NULL,
+    entity_id     UUID         NOT NULL,
+    event_type    VARCHAR(50)  NOT NULL,
+    content_type  VARCHAR(100) NOT NULL,
+    payload       BYTEA        NOT NULL,
+    available_at  TIMESTAMP    NOT NULL,
+    claimed_until TIMESTAMP    NULL
+);
+
+CREATE INDEX idx_goal_event_outbox_available_at ON goal_event_outbox(available_at, id);
@@ -0,0 +1,4 @@
+-- V11: The relay only claims the oldest row of each goal, looking up earlier rows of the goal
+--      by (goal_id, id).
+
+CREATE INDEX idx_goal_event_outbox_goal_id ON goal_event_outbox(goal_id, id);
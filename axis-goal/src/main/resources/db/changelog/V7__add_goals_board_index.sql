@@ -0,0 +1,5 @@
+-- V7: Composite index backing the board view.
+--     Serves both the row_number() window partitioned by status and the
+--     per-column keyset pagination on (created_at, id).
+
+CREATE INDEX idx_goals_user_status_created ON goals(user_id, status, created_at DESC, id DESC);
@@ -0,0 +1,13 @@
+-- V8: Due dates on goals and sub-goals plus deadline reminder bookkeeping.
+--     deadline_notified_at is set once GOAL_DEADLINE_APPROACHING has been emitted
+--     and reset whenever due_at changes.
+
+ALTER TABLE goals ADD COLUMN due_at TIMESTAMP NULL;
+ALTER TABLE goals ADD COLUMN deadline_notified_at TIMESTAMP NULL;
+
+ALTER TABLE sub_goals ADD COLUMN due_at TIMESTAMP NULL;
+ALTER TABLE sub_goals ADD COLUMN deadline_notified_at TIMESTAMP NULL;
+
+-- Partial indexes: the deadline scheduler only ever scans pending reminders in a due_at window
+CREATE INDEX idx_goals_due_at_pending ON goals(due_at) WHERE deadline_notified_at IS NULL;
+CREATE INDEX idx_sub_goals_due_at_pending ON sub_goals(due_at) WHERE deadline_notified_at IS NULL;
@@ -0,0 +1,8 @@
+-- V9: Per-goal event sequence counters. Every published goal domain event takes the next
+--     number of its goal so consumers can restore the order. No foreign key: the counter
+--     outlives the goal because GOAL_DELETED and late events still need a number.
+
+CREATE TABLE goal_event_sequences (
+    goal_id       UUID PRIMARY KEY,
+    last_sequence BIGINT NOT NULL
+);
@@ -0,0 +1,116 @@
+package com.axis.goal.deadline;
+
+import com.axis.common.event.GoalDomainEvent;
+import com.axis.common.event.GoalEventType;
+import com.axis.goal.messaging.GoalEventPublisher;
+import com.axis.goal.repository.GoalRepository;
+import com.axis.goal.repository.SubGoalRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.narayana.jta.TransactionRunnerOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fires reminders with the transaction reduced to running its task, so a task that throws
+ * is what the real transaction rolls back.
+ */
+class DeadlineSchedulerTest {
+
+    private static final LocalDateTime DUE_AT = LocalDateTime.parse("2026-03-03T09:00:00");
+
+    private final GoalRepository goalRepository = mock(GoalRepository.class);
+    private final SubGoalRepository subGoalRepository = mock(SubGoalRepository.class);
+    private final GoalEventPublisher publisher = mock(GoalEventPublisher.class);
+    private final DeadlineScheduler scheduler = new DeadlineScheduler();
+    private MockedStatic<QuarkusTransaction> transaction;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TransactionRunnerOptions runner = mock(TransactionRunnerOptions.class);
+        when(runner.call(any())).thenAnswer(invocation -> invocation.<Callable<?>>getArgument(0).call());
+        transaction = mockStatic(QuarkusTransaction.class);
+        transaction.when(QuarkusTransaction::requiringNew).thenReturn(runner);
+
+        scheduler.goalRepository = goalRepository;
+        scheduler.subGoalRepository = subGoalRepository;
+        scheduler.goalEventPublisher = publisher;
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.close();
+    }
+
+    @Test
+    void claimedGoalReminderIsPublished() {
+        UpcomingDeadline deadline = deadline("GOAL");
+        when(goalRepository.markDeadlineNotified(eq(deadline.entityId()), eq(DUE_AT), any())).thenReturn(true);
+
+        scheduler.fire(deadline);
+
+        ArgumentCaptor<GoalDomainEvent> published = ArgumentCaptor.forClass(GoalDomainEvent.class);
+        verify(publisher).publish(published.capture());
+        GoalDomainEvent event = published.getValue();
+        assertEquals(GoalEventType.GOAL_DEADLINE_APPROACHING, event.eventType());
+        assertEquals(deadline.entityId(), event.entityId());
+        assertEquals(deadline.goalId(), event.goalId());
+        assertEquals(Map.of("dueAt", "2026-03-03T09:00:00Z"), event.changes());
+    }
+
+    @Test
+    void subGoalReminderIsClaimedOnTheSubGoal() {
+        UpcomingDeadline deadline = deadline("SUB_GOAL");
+        when(subGoalRepository.markDeadlineNotified(eq(deadline.entityId()), eq(DUE_AT), any())).thenReturn(true);
+
+        scheduler.fire(deadline);
+
+        ArgumentCaptor<GoalDomainEvent> published = ArgumentCaptor.forClass(GoalDomainEvent.class);
+        verify(publisher).publish(published.capture());
+        assertEquals(GoalEventType.SUBGOAL_DEADLINE_APPROACHING, published.getValue().eventType());
+        verify(goalRepository, never()).markDeadlineNotified(any(), any(), any());
+    }
+
+    @Test
+    void reminderClaimedElsewhereIsNotPublished() {
+        UpcomingDeadline deadline = deadline("GOAL");
+        when(goalRepository.markDeadlineNotified(any(), any(), any())).thenReturn(false);
+
+        scheduler.fire(deadline);
+
+        verify(publisher, never()).publish(any());
+    }
+
+    @Test
+    void failedPublishFailsTheClaimingTransaction() {
+        UpcomingDeadline deadline = deadline("GOAL");
+        when(goalRepository.markDeadlineNotified(any(), any(), any())).thenReturn(true);
+        doThrow(new IllegalStateException("outbox unavailable")).when(publisher).publish(any());
+
+        assertThrows(IllegalStateException.class, () -> scheduler.fire(deadline));
+        verify(goalRepository).markDeadlineNotified(eq(deadline.entityId()), eq(DUE_AT), any());
+    }
+
+    private static UpcomingDeadline deadline(String entityType) {
+        return new UpcomingDeadline(entityType, UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), "Marathon",
+            DUE_AT, 3);
+    }
+}
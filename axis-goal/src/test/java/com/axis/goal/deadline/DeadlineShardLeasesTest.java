@@ -0,0 +1,41 @@
+package com.axis.goal.deadline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineShardLeasesTest {
+
+    @Test
+    void fairShareFollowsTheMemberCount() {
+        assertEquals(16, DeadlineShardLeases.fairShare(16, 1));
+        assertEquals(8, DeadlineShardLeases.fairShare(16, 2));
+        assertEquals(6, DeadlineShardLeases.fairShare(16, 3));
+        assertEquals(4, DeadlineShardLeases.fairShare(16, 4));
+        assertEquals(4, DeadlineShardLeases.fairShare(16, 5));
+        assertEquals(1, DeadlineShardLeases.fairShare(16, 16));
+    }
+
+    @Test
+    void membersTogetherCanHoldEveryShard() {
+        for (int shards = 1; shards <= 64; shards++) {
+            for (int nodes = 1; nodes <= 2 * shards; nodes++) {
+                int share = DeadlineShardLeases.fairShare(shards, nodes);
+                assertTrue(share * nodes >= shards, shards + " shards on " + nodes + " nodes");
+                // Not so generous that one node fewer would do
+                assertTrue(share == 1 || (share - 1) * nodes < shards, shards + " shards on " + nodes + " nodes");
+            }
+        }
+    }
+
+    @Test
+    void moreMembersThanShardsStillHoldOneEach() {
+        assertEquals(1, DeadlineShardLeases.fairShare(4, 10));
+    }
+
+    @Test
+    void noCountedMemberIsTreatedAsThisNodeAlone() {
+        assertEquals(16, DeadlineShardLeases.fairShare(16, 0));
+    }
+}
@@ -0,0 +1,108 @@
+package com.axis.goal.deadline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK = 100;
+    private static final int TICKS_PER_WHEEL = 8;
+    private static final long ROTATION = TICK * TICKS_PER_WHEEL;
+
+    private final HashedTimingWheel<String, String> wheel = new HashedTimingWheel<>(TICK, TICKS_PER_WHEEL, 0);
+
+    @Test
+    void timeoutExpiresOnTheTickAfterItsDeadline() {
+        wheel.schedule("a", 250, "A");
+
+        assertEquals(List.of(), wheel.advance(299));
+        assertEquals(List.of("A"), wheel.advance(300));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineOnATickBoundaryExpiresOnThatTick() {
+        wheel.schedule("a", 300, "A");
+
+        assertEquals(List.of(), wheel.advance(299));
+        assertEquals(List.of("A"), wheel.advance(300));
+    }
+
+    @Test
+    void timeoutsFurtherThanOneRotationWaitForTheirRound() {
+        // Shares its bucket with the timeout one rotation earlier
+        wheel.schedule("next", 100, "next");
+        wheel.schedule("later", 2 * ROTATION + 100, "later");
+
+        assertEquals(List.of("next"), wheel.advance(100));
+        for (long now = 200; now < 2 * ROTATION + 100; now += TICK) {
+            assertEquals(List.of(), wheel.advance(now), "at " + now);
+        }
+        assertEquals(List.of("later"), wheel.advance(2 * ROTATION + 100));
+    }
+
+    @Test
+    void advancingPastSeveralRotationsAtOnceExpiresEverythingDue() {
+        wheel.schedule("a", 150, "A");
+        wheel.schedule("b", 3 * ROTATION, "B");
+        wheel.schedule("c", 5 * ROTATION, "C");
+
+        List<String> expired = wheel.advance(4 * ROTATION);
+
+        assertEquals(2, expired.size());
+        assertTrue(expired.containsAll(List.of("A", "B")));
+        assertEquals(List.of("C"), wheel.advance(5 * ROTATION));
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() {
+        wheel.schedule("a", 250, "A");
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertEquals(List.of(), wheel.advance(ROTATION));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingReplacesTheTimeout() {
+        wheel.schedule("a", 250, "first");
+        wheel.schedule("a", 650, "second");
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advance(600));
+        assertEquals(List.of("second"), wheel.advance(700));
+    }
+
+    @Test
+    void cancelIfDropsTheMatchingValues() {
+        wheel.schedule("a", 250, "keep");
+        wheel.schedule("b", 250, "drop");
+
+        wheel.cancelIf("drop"::equals);
+
+        assertEquals(List.of("keep"), wheel.advance(300));
+    }
+
+    @Test
+    void deadlineInThePastExpiresOnTheNextTick() {
+        wheel.advance(1000);
+
+        wheel.schedule("a", 200, "A");
+
+        assertEquals(List.of(), wheel.advance(1099));
+        assertEquals(List.of("A"), wheel.advance(1100));
+    }
+
+    @Test
+    void wheelSizeMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<>(TICK, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<>(0, 8, 0));
+    }
+}